@@ -13,6 +13,52 @@ public class Messages extends NLS {
     public static String RunScriptProvider_2;
 
     public static String RunScriptProvider_3;
+
+    public static String RunScriptProvider_4;
+
+    public static String RunScriptProvider_5;
+
+    public static String RunScriptProvider_6;
+
+    public static String RunScriptProvider_7;
+
+    public static String RunScriptProvider_8;
+
+    public static String RunScriptProvider_9;
+
+    public static String RunScriptProvider_10;
+
+    public static String RunScriptProvider_11;
+
+    public static String RunScriptProvider_12;
+
+    public static String RunScriptProvider_13;
+
+    public static String RunScriptProvider_14;
+
+    public static String RunScriptProvider_15;
+
+    public static String RunScriptProvider_16;
+
+    public static String RunScriptProvider_17;
+
+    public static String RunScriptProvider_18;
+
+    public static String RunScriptProvider_19;
+
+    public static String RunScriptProvider_20;
+
+    public static String RunScriptProvider_21;
+
+    public static String RunScriptProvider_22;
+
+    public static String RunScriptProvider_23;
+
+    public static String RunScriptProvider_24;
+
+    public static String RunScriptProvider_25;
+
+    public static String RunScriptProvider_26;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,225 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commandline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.script.RunArchiScript;
+import com.archimatetool.script.views.console.ConsoleOutput;
+
+/**
+ * Runs a script over a set of model files on a pool of worker threads
+ *
+ * Each run loads its own model, creates its own script engine and has its own command and current model state,
+ * so models are processed independently of each other. A model is closed as soon as its run has finished,
+ * discarding any changes that the script did not save.
+ *
+ * Each run's console output is collected and written to standard out and standard err in one piece when the run has finished,
+ * so that the output of runs is not mixed together. Output written to the command line log file is not collected.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class ParallelScriptRunner {
+
+    /**
+     * A model file and the result of running the script on it
+     */
+    static class Result {
+        File modelFile;
+        boolean success;
+        long time;
+    }
+
+    private File scriptFile;
+    private List<File> modelFiles;
+    private int threads;
+
+    /**
+     * @param scriptFile The script to run
+     * @param modelFiles The models to run it on
+     * @param threads Number of worker threads. If less than 1 the number of available processors is used.
+     */
+    ParallelScriptRunner(File scriptFile, List<File> modelFiles, int threads) {
+        this.scriptFile = scriptFile;
+        this.modelFiles = modelFiles;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Expand a list of model files and folders separated by the path separator.
+     * Folders are replaced by the *.archimate files they contain.
+     */
+    static List<File> getModelFiles(String paths) {
+        List<File> files = new ArrayList<>();
+
+        for(String path : paths.split(File.pathSeparator)) {
+            if(path.isBlank()) {
+                continue;
+            }
+
+            File file = new File(path.trim());
+
+            if(file.isDirectory()) {
+                File[] children = file.listFiles((dir, name) -> name.toLowerCase().endsWith(".archimate"));
+                if(children != null) {
+                    Arrays.sort(children);
+                    files.addAll(Arrays.asList(children));
+                }
+            }
+            else {
+                files.add(file);
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Run the script on each model and wait for all runs to finish
+     * @return The results in the same order as the model files
+     */
+    List<Result> run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, modelFiles.size())), new WorkerThreadFactory());
+
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for(File modelFile : modelFiles) {
+                futures.add(executor.submit(() -> runOne(modelFile)));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for(Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                }
+                catch(ExecutionException ex) {
+                    ex.getCause().printStackTrace();
+                }
+            }
+
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result runOne(File modelFile) {
+        Result result = new Result();
+        result.modelFile = modelFile;
+
+        long start = System.currentTimeMillis();
+
+        ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(outBytes, true, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(errBytes, true, StandardCharsets.UTF_8);
+
+        IArchimateModel model = null;
+
+        try {
+            model = loadModel(modelFile);
+
+            if(model == null) {
+                err.println(Messages.RunScriptProvider_0 + " " + Messages.RunScriptProvider_13 + " " + modelFile);
+            }
+            else {
+                RunArchiScript runner = new RunArchiScript(scriptFile);
+                runner.setModel(model);
+                runner.setOutput(out, err);
+                runner.run();
+                result.success = runner.isSuccess();
+            }
+        }
+        catch(Exception ex) {
+            ex.printStackTrace(err);
+        }
+        finally {
+            closeModel(model, err);
+        }
+
+        result.time = System.currentTimeMillis() - start;
+
+        writeOutput(outBytes, errBytes);
+
+        return result;
+    }
+
+    /**
+     * Load a model. EditorModelManager is not thread safe so models are loaded and closed one at a time.
+     */
+    private IArchimateModel loadModel(File file) {
+        if(!file.exists()) {
+            return null;
+        }
+
+        synchronized(IEditorModelManager.INSTANCE) {
+            return IEditorModelManager.INSTANCE.loadModel(file);
+        }
+    }
+
+    /**
+     * Close a model so that it can be garbage collected, discarding unsaved changes
+     */
+    private void closeModel(IArchimateModel model, PrintStream err) {
+        if(model == null) {
+            return;
+        }
+
+        synchronized(IEditorModelManager.INSTANCE) {
+            try {
+                IEditorModelManager.INSTANCE.closeModel(model, false);
+            }
+            catch(IOException ex) {
+                ex.printStackTrace(err);
+            }
+        }
+    }
+
+    /**
+     * Write a run's output to standard out and standard err without output from other runs in between
+     */
+    private static synchronized void writeOutput(ByteArrayOutputStream outBytes, ByteArrayOutputStream errBytes) {
+        if(outBytes.size() > 0) {
+            PrintStream out = ConsoleOutput.getStandardOut();
+            out.print(outBytes.toString(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        if(errBytes.size() > 0) {
+            PrintStream err = ConsoleOutput.getStandardErr();
+            err.print(errBytes.toString(StandardCharsets.UTF_8));
+            err.flush();
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jArchi Script Worker " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -6,14 +6,19 @@
 package com.archimatetool.script.commandline;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
+import org.eclipse.osgi.util.NLS;
 
 import com.archimatetool.commandline.AbstractCommandLineProvider;
 import com.archimatetool.editor.utils.StringUtils;
 import com.archimatetool.script.RunArchiScript;
+import com.archimatetool.script.views.console.ConsoleFileSink;
+import com.archimatetool.script.views.console.ConsoleOutput;
 
 /**
  * Command Line interface for running a script
@@ -21,7 +26,14 @@ import com.archimatetool.script.RunArchiScript;
  * Usage - (should be all on one line):
  * 
  * Archi -consoleLog -nosplash -application com.archimatetool.commandline.app
-   --script.runScript "file"
+   --script.runScript "file" | --script.batch "manifest file"
+   [--script.models "files and folders" [--script.threads n]]
+   [--script.consoleLog "file" [--script.consoleLogMaxSize MB]]
+ * 
+ * Or, to keep Archi running and run scripts sent by ScriptClient:
+ * 
+ * Archi -consoleLog -nosplash -application com.archimatetool.commandline.app
+   --script.serve [port] [--script.serveInfo "file"]
  * 
  * 
  * @author Phillip Beauvoir
@@ -31,6 +43,13 @@ public class RunScriptProvider extends AbstractCommandLineProvider {
     static final String PREFIX = Messages.RunScriptProvider_0;
     
     static final String OPTION_RUN_SCRIPT = "script.runScript"; //$NON-NLS-1$
+    static final String OPTION_BATCH = "script.batch"; //$NON-NLS-1$
+    static final String OPTION_MODELS = "script.models"; //$NON-NLS-1$
+    static final String OPTION_THREADS = "script.threads"; //$NON-NLS-1$
+    static final String OPTION_CONSOLE_LOG = "script.consoleLog"; //$NON-NLS-1$
+    static final String OPTION_CONSOLE_LOG_MAX_SIZE = "script.consoleLogMaxSize"; //$NON-NLS-1$
+    static final String OPTION_SERVE = "script.serve"; //$NON-NLS-1$
+    static final String OPTION_SERVE_INFO = "script.serveInfo"; //$NON-NLS-1$
     
     public RunScriptProvider() {
     }
@@ -41,6 +60,37 @@ public class RunScriptProvider extends AbstractCommandLineProvider {
             return;
         }
         
+        // Console log file
+        String sLogFile = commandLine.getOptionValue(OPTION_CONSOLE_LOG);
+        if(StringUtils.isSet(sLogFile)) {
+            long maxSize = ConsoleFileSink.DEFAULT_MAX_SIZE;
+            
+            String sMaxSize = commandLine.getOptionValue(OPTION_CONSOLE_LOG_MAX_SIZE);
+            if(StringUtils.isSet(sMaxSize)) {
+                try {
+                    maxSize = Long.parseLong(sMaxSize) * 1024 * 1024;
+                }
+                catch(NumberFormatException ex) {
+                    logError(NLS.bind(Messages.RunScriptProvider_8, sMaxSize));
+                    return;
+                }
+            }
+            
+            ConsoleOutput.setCommandLineLogFile(new File(sLogFile), maxSize);
+        }
+        
+        // Script server
+        if(commandLine.hasOption(OPTION_SERVE)) {
+            serve(commandLine);
+            return;
+        }
+        
+        // Batch of scripts
+        if(commandLine.hasOption(OPTION_BATCH)) {
+            runBatch(new File(commandLine.getOptionValue(OPTION_BATCH)));
+            return;
+        }
+        
         String sFile = commandLine.getOptionValue(OPTION_RUN_SCRIPT);
         if(!StringUtils.isSet(sFile)) {
             logError(Messages.RunScriptProvider_1);
@@ -48,6 +98,12 @@ public class RunScriptProvider extends AbstractCommandLineProvider {
         }
         
         File scriptFile = new File(sFile);
+        
+        // Run on a set of models in parallel
+        if(commandLine.hasOption(OPTION_MODELS)) {
+            runParallel(scriptFile, commandLine);
+            return;
+        }
 
         RunArchiScript runner = new RunArchiScript(scriptFile);
         runner.run();
@@ -65,11 +121,162 @@ public class RunScriptProvider extends AbstractCommandLineProvider {
                 .build();
         options.addOption(option);
         
+        option = Option.builder()
+                .longOpt(OPTION_BATCH)
+                .hasArg()
+                .argName(Messages.RunScriptProvider_4)
+                .desc(Messages.RunScriptProvider_16)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_MODELS)
+                .hasArg()
+                .argName(Messages.RunScriptProvider_21)
+                .desc(Messages.RunScriptProvider_22)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_THREADS)
+                .hasArg()
+                .argName(Messages.RunScriptProvider_23)
+                .desc(Messages.RunScriptProvider_24)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_CONSOLE_LOG)
+                .hasArg()
+                .argName(Messages.RunScriptProvider_4)
+                .desc(Messages.RunScriptProvider_5)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_CONSOLE_LOG_MAX_SIZE)
+                .hasArg()
+                .argName(Messages.RunScriptProvider_6)
+                .desc(Messages.RunScriptProvider_7)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_SERVE)
+                .hasArg()
+                .optionalArg(true)
+                .argName(Messages.RunScriptProvider_9)
+                .desc(Messages.RunScriptProvider_10)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_SERVE_INFO)
+                .hasArg()
+                .argName(Messages.RunScriptProvider_4)
+                .desc(Messages.RunScriptProvider_14)
+                .build();
+        options.addOption(option);
+        
         return options;
     }
     
+    private void runBatch(File manifest) throws IOException {
+        long start = System.currentTimeMillis();
+        
+        ScriptBatch batch = ScriptBatch.load(manifest);
+        batch.run();
+        
+        int succeeded = 0;
+        
+        for(ScriptBatch.Entry entry : batch.getEntries()) {
+            String message = NLS.bind(Messages.RunScriptProvider_19,
+                    new Object[] { entry.success ? Messages.RunScriptProvider_17 : Messages.RunScriptProvider_18, entry.file.getPath(), entry.time });
+            
+            if(entry.success) {
+                succeeded++;
+                logMessage(message);
+            }
+            else {
+                logError(message);
+            }
+        }
+        
+        logMessage(NLS.bind(Messages.RunScriptProvider_20,
+                new Object[] { succeeded, batch.getEntries().size(), System.currentTimeMillis() - start }));
+    }
+    
+    private void runParallel(File scriptFile, CommandLine commandLine) throws InterruptedException {
+        int threads = 0;
+        
+        String sThreads = commandLine.getOptionValue(OPTION_THREADS);
+        if(StringUtils.isSet(sThreads)) {
+            try {
+                threads = Integer.parseInt(sThreads);
+            }
+            catch(NumberFormatException ex) {
+                logError(NLS.bind(Messages.RunScriptProvider_25, sThreads));
+                return;
+            }
+        }
+        
+        long start = System.currentTimeMillis();
+        
+        List<File> modelFiles = ParallelScriptRunner.getModelFiles(commandLine.getOptionValue(OPTION_MODELS));
+        
+        // Keep the log file open between runs
+        ConsoleFileSink fileSink = ConsoleOutput.acquireDefaultFileSink();
+        
+        List<ParallelScriptRunner.Result> results;
+        
+        try {
+            results = new ParallelScriptRunner(scriptFile, modelFiles, threads).run();
+        }
+        finally {
+            ConsoleOutput.releaseDefaultFileSink(fileSink);
+        }
+        
+        int succeeded = 0;
+        
+        for(ParallelScriptRunner.Result result : results) {
+            String message = NLS.bind(Messages.RunScriptProvider_19,
+                    new Object[] { result.success ? Messages.RunScriptProvider_17 : Messages.RunScriptProvider_18, result.modelFile.getPath(), result.time });
+            
+            if(result.success) {
+                succeeded++;
+                logMessage(message);
+            }
+            else {
+                logError(message);
+            }
+        }
+        
+        logMessage(NLS.bind(Messages.RunScriptProvider_26,
+                new Object[] { succeeded, modelFiles.size(), System.currentTimeMillis() - start }));
+    }
+    
+    private void serve(CommandLine commandLine) throws Exception {
+        int port = 0;
+        
+        String sPort = commandLine.getOptionValue(OPTION_SERVE);
+        if(StringUtils.isSet(sPort)) {
+            try {
+                port = Integer.parseInt(sPort);
+            }
+            catch(NumberFormatException ex) {
+                logError(NLS.bind(Messages.RunScriptProvider_15, sPort));
+                return;
+            }
+        }
+        
+        String sInfoFile = commandLine.getOptionValue(OPTION_SERVE_INFO);
+        File infoFile = StringUtils.isSet(sInfoFile) ? new File(sInfoFile) : ScriptClient.getDefaultInfoFile();
+        
+        new ScriptServer(port, infoFile).serve();
+    }
+    
     private boolean hasCorrectOptions(CommandLine commandLine) {
-        return commandLine.hasOption(OPTION_RUN_SCRIPT);
+        return commandLine.hasOption(OPTION_RUN_SCRIPT) || commandLine.hasOption(OPTION_BATCH) || commandLine.hasOption(OPTION_SERVE);
     }
     
     @Override
@@ -0,0 +1,143 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commandline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.archimatetool.script.RunArchiScript;
+
+/**
+ * Runs a list of scripts one after the other in the same Archi process
+ *
+ * The batch manifest is a text file with one script per line followed by its arguments.
+ * Arguments are separated by spaces and may be enclosed in double quotes. Blank lines and lines starting with # are ignored.
+ * Relative script paths are resolved against the folder of the manifest file.
+ *
+ * All scripts run against the model loaded on the command line (if any), which stays in memory between scripts.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class ScriptBatch {
+
+    /**
+     * A script in the batch and the result of running it
+     */
+    static class Entry {
+        File file;
+        String[] args;
+        boolean success;
+        long time;
+    }
+
+    private List<Entry> entries;
+
+    ScriptBatch(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Read a batch manifest file
+     */
+    static ScriptBatch load(File manifest) throws IOException {
+        File parent = manifest.getAbsoluteFile().getParentFile();
+        List<Entry> entries = new ArrayList<>();
+
+        for(String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            List<String> tokens = tokenize(line);
+
+            Entry entry = new Entry();
+            entry.file = new File(tokens.get(0));
+            if(!entry.file.isAbsolute()) {
+                entry.file = new File(parent, tokens.get(0));
+            }
+            entry.args = tokens.subList(1, tokens.size()).toArray(new String[0]);
+
+            entries.add(entry);
+        }
+
+        return new ScriptBatch(entries);
+    }
+
+    /**
+     * Split a line on spaces, keeping text in double quotes together
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean inQuotes = false;
+        boolean hasToken = false;
+
+        for(char c : line.toCharArray()) {
+            if(c == '"') {
+                inQuotes = !inQuotes;
+                hasToken = true;
+            }
+            else if(Character.isWhitespace(c) && !inQuotes) {
+                if(hasToken) {
+                    tokens.add(sb.toString());
+                    sb.setLength(0);
+                    hasToken = false;
+                }
+            }
+            else {
+                sb.append(c);
+                hasToken = true;
+            }
+        }
+
+        if(hasToken) {
+            tokens.add(sb.toString());
+        }
+
+        return tokens;
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Run each script in turn. A script that fails does not stop the batch.
+     * @return true if all scripts succeeded
+     */
+    boolean run() {
+        boolean allSucceeded = true;
+
+        for(Entry entry : entries) {
+            long start = System.currentTimeMillis();
+
+            try {
+                if(!entry.file.exists()) {
+                    throw new IOException(Messages.RunScriptProvider_12 + " " + entry.file);
+                }
+
+                RunArchiScript runner = new RunArchiScript(entry.file, entry.args);
+                runner.run();
+                entry.success = runner.isSuccess();
+            }
+            catch(Exception ex) {
+                ex.printStackTrace();
+                entry.success = false;
+            }
+
+            entry.time = System.currentTimeMillis() - start;
+            allSucceeded &= entry.success;
+        }
+
+        return allSucceeded;
+    }
+}
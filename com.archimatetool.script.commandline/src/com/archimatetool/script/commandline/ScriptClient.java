@@ -0,0 +1,165 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commandline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Thin client for a jArchi script server started with --script.serve
+ *
+ * This class only uses the JDK so that it starts in milliseconds. It can be run from the plug-in's jar or as a single source file:
+ *
+ * java ScriptClient.java [--info "file"] [--model "file"] "script file" [script args...]
+ * java ScriptClient.java [--info "file"] --stop
+ *
+ * The script's console output is written to standard out and standard error
+ * and the process exits with the status of the script (0 = success, 1 = script error, 2 = server or request error).
+ *
+ * The wire format is shared with ScriptServer. All strings are written with DataOutput.writeUTF().
+ * Request:  token, command, [script path, model path ("" for none), arg count, args...]
+ * Response: frames of [type byte, payload] where the type is OUT or ERR (int length, bytes) or EXIT (int status, long millis)
+ */
+@SuppressWarnings("nls")
+public class ScriptClient {
+
+    static final String COMMAND_RUN = "run";
+    static final String COMMAND_STOP = "stop";
+
+    static final byte FRAME_OUT = 'O';
+    static final byte FRAME_ERR = 'E';
+    static final byte FRAME_EXIT = 'X';
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_SCRIPT_ERROR = 1;
+    static final int STATUS_SERVER_ERROR = 2;
+
+    static final String INFO_PORT = "port";
+    static final String INFO_TOKEN = "token";
+
+    /**
+     * @return The default connection info file written by the server and read by the client
+     */
+    static File getDefaultInfoFile() {
+        return new File(System.getProperty("user.home"), ".jarchi-server");
+    }
+
+    public static void main(String[] args) {
+        File infoFile = getDefaultInfoFile();
+        String model = "";
+        String command = COMMAND_RUN;
+        String script = null;
+        List<String> scriptArgs = new ArrayList<>();
+
+        for(int i = 0; i < args.length; i++) {
+            if(script != null) {
+                scriptArgs.add(args[i]);
+            }
+            else if("--info".equals(args[i]) && i + 1 < args.length) {
+                infoFile = new File(args[++i]);
+            }
+            else if("--model".equals(args[i]) && i + 1 < args.length) {
+                model = new File(args[++i]).getAbsolutePath();
+            }
+            else if("--stop".equals(args[i])) {
+                command = COMMAND_STOP;
+            }
+            else {
+                script = new File(args[i]).getAbsolutePath();
+            }
+        }
+
+        if(COMMAND_RUN.equals(command) && script == null) {
+            System.err.println("Usage: ScriptClient [--info file] [--model file] script [args...] | [--info file] --stop");
+            System.exit(STATUS_SERVER_ERROR);
+        }
+
+        try {
+            System.exit(run(infoFile, command, script, model, scriptArgs, System.out, System.err));
+        }
+        catch(IOException ex) {
+            System.err.println("Could not connect to script server: " + ex.getMessage());
+            System.exit(STATUS_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Send a request to the server and copy the script's output to out and err
+     * @return The exit status
+     */
+    static int run(File infoFile, String command, String script, String model, List<String> scriptArgs, PrintStream out, PrintStream err) throws IOException {
+        Properties info = new Properties();
+        try(InputStream is = new FileInputStream(infoFile)) {
+            info.load(is);
+        }
+
+        int port = Integer.parseInt(info.getProperty(INFO_PORT, "0"));
+        String token = info.getProperty(INFO_TOKEN, "");
+
+        try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            dos.writeUTF(token);
+            dos.writeUTF(command);
+
+            if(COMMAND_RUN.equals(command)) {
+                dos.writeUTF(script);
+                dos.writeUTF(model);
+                dos.writeInt(scriptArgs.size());
+                for(String arg : scriptArgs) {
+                    dos.writeUTF(arg);
+                }
+            }
+
+            dos.flush();
+
+            DataInputStream dis = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            while(true) {
+                byte type;
+                try {
+                    type = dis.readByte();
+                }
+                catch(EOFException ex) {
+                    return STATUS_SERVER_ERROR;
+                }
+
+                switch(type) {
+                    case FRAME_OUT:
+                    case FRAME_ERR:
+                        byte[] bytes = new byte[dis.readInt()];
+                        dis.readFully(bytes);
+                        PrintStream ps = type == FRAME_OUT ? out : err;
+                        ps.write(bytes);
+                        ps.flush();
+                        break;
+
+                    case FRAME_EXIT:
+                        int status = dis.readInt();
+                        dis.readLong(); // run time in ms
+                        return status;
+
+                    default:
+                        throw new IOException("Unknown frame type: " + type);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commandline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.gef.commands.CommandStack;
+
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.script.IScriptEngineProvider;
+import com.archimatetool.script.JSProvider;
+import com.archimatetool.script.RunArchiScript;
+
+/**
+ * Keeps a headless Archi process running and runs script jobs sent by ScriptClient
+ *
+ * The server listens on the loopback interface only. The port and a random token are written to an info file
+ * that is readable only by the current user, and each request must present the token.
+ *
+ * Jobs are run one at a time on the calling thread so that two jobs don't use a cached model at the same time.
+ * A client has REQUEST_TIMEOUT to send its request so that a client that connects and sends nothing can't block the server.
+ * Between jobs the JVM, bundles and script engine classes stay loaded and JIT compiled, and models are kept in memory.
+ * A cached model is closed and re-loaded if its file changes on disk or a script leaves unsaved changes in it.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class ScriptServer {
+
+    // Milliseconds a client has to send its request
+    static final int REQUEST_TIMEOUT = 30000;
+
+    private int port;
+    private File infoFile;
+    private String token;
+
+    private ServerSocket serverSocket;
+    private boolean stopped;
+
+    private Map<File, CachedModel> models = new HashMap<>();
+
+    // Writes framed script output to the current client
+    private JobOutputStream jobOut;
+    private JobOutputStream jobErr;
+
+    private static class CachedModel {
+        IArchimateModel model;
+        long lastModified;
+    }
+
+    /**
+     * @param port The port to listen on, or 0 for any free port
+     * @param infoFile The file to write the port and token to
+     */
+    ScriptServer(int port, File infoFile) {
+        this.port = port;
+        this.infoFile = infoFile;
+    }
+
+    /**
+     * Run the server until a stop request is received
+     */
+    void serve() throws IOException {
+        byte[] bytes = new byte[24];
+        new SecureRandom().nextBytes(bytes);
+        token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+
+        jobOut = new JobOutputStream(ScriptClient.FRAME_OUT, oldOut);
+        jobErr = new JobOutputStream(ScriptClient.FRAME_ERR, oldErr);
+
+        System.setOut(new PrintStream(jobOut, true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(jobErr, true, StandardCharsets.UTF_8));
+
+        try {
+            writeInfoFile();
+            warmUp();
+
+            oldOut.println(Messages.RunScriptProvider_0 + " " + Messages.RunScriptProvider_11 + " " + serverSocket.getLocalPort());
+
+            while(!stopped) {
+                try(Socket socket = serverSocket.accept()) {
+                    handle(socket);
+                }
+                catch(IOException ex) {
+                    oldErr.println(Messages.RunScriptProvider_0 + " " + ex.getMessage());
+                }
+            }
+        }
+        finally {
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+            serverSocket.close();
+            infoFile.delete();
+
+            for(CachedModel cached : models.values()) {
+                closeModel(cached.model);
+            }
+            models.clear();
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(REQUEST_TIMEOUT);
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        String clientToken = in.readUTF();
+        if(!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), clientToken.getBytes(StandardCharsets.UTF_8))) {
+            writeExit(out, ScriptClient.STATUS_SERVER_ERROR, 0);
+            return;
+        }
+
+        String command = in.readUTF();
+
+        if(ScriptClient.COMMAND_STOP.equals(command)) {
+            stopped = true;
+            writeExit(out, ScriptClient.STATUS_OK, 0);
+            return;
+        }
+
+        if(!ScriptClient.COMMAND_RUN.equals(command)) {
+            writeExit(out, ScriptClient.STATUS_SERVER_ERROR, 0);
+            return;
+        }
+
+        File scriptFile = new File(in.readUTF());
+        String modelPath = in.readUTF();
+        String[] args = new String[in.readInt()];
+        for(int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        // The job can take as long as it takes
+        socket.setSoTimeout(0);
+
+        long start = System.currentTimeMillis();
+        int status;
+
+        jobOut.setTarget(out);
+        jobErr.setTarget(out);
+
+        try {
+            status = runJob(scriptFile, modelPath, args);
+        }
+        finally {
+            System.out.flush();
+            System.err.flush();
+            jobOut.setTarget(null);
+            jobErr.setTarget(null);
+        }
+
+        writeExit(out, status, System.currentTimeMillis() - start);
+    }
+
+    private int runJob(File scriptFile, String modelPath, String[] args) {
+        if(!scriptFile.exists()) {
+            System.err.println(Messages.RunScriptProvider_0 + " " + Messages.RunScriptProvider_12 + " " + scriptFile);
+            return ScriptClient.STATUS_SERVER_ERROR;
+        }
+
+        IArchimateModel model = null;
+
+        if(!modelPath.isEmpty()) {
+            model = getModel(new File(modelPath));
+            if(model == null) {
+                System.err.println(Messages.RunScriptProvider_0 + " " + Messages.RunScriptProvider_13 + " " + modelPath);
+                return ScriptClient.STATUS_SERVER_ERROR;
+            }
+        }
+
+        try {
+            RunArchiScript runner = new RunArchiScript(scriptFile, args);
+            runner.setModel(model);
+            runner.run();
+            return runner.isSuccess() ? ScriptClient.STATUS_OK : ScriptClient.STATUS_SCRIPT_ERROR;
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+            return ScriptClient.STATUS_SCRIPT_ERROR;
+        }
+        finally {
+            releaseModel(model);
+        }
+    }
+
+    /**
+     * @return The model for file, re-using the loaded one if the file has not changed
+     */
+    private IArchimateModel getModel(File file) {
+        file = file.getAbsoluteFile();
+
+        CachedModel cached = models.get(file);
+        if(cached != null && cached.lastModified == file.lastModified()) {
+            return cached.model;
+        }
+
+        // Changed on disk
+        if(cached != null) {
+            models.remove(file);
+            closeModel(cached.model);
+        }
+
+        if(!file.exists()) {
+            return null;
+        }
+
+        cached = new CachedModel();
+        cached.lastModified = file.lastModified();
+        synchronized(IEditorModelManager.INSTANCE) {
+            cached.model = IEditorModelManager.INSTANCE.loadModel(file);
+        }
+
+        if(cached.model == null) {
+            return null;
+        }
+
+        models.put(file, cached);
+
+        return cached.model;
+    }
+
+    /**
+     * Discard a cached model if the script left unsaved changes in it so that the next job starts from the file
+     */
+    private void releaseModel(IArchimateModel model) {
+        if(model == null) {
+            return;
+        }
+
+        CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
+        if(stack != null && stack.isDirty()) {
+            models.values().removeIf(cached -> cached.model == model);
+            closeModel(model);
+        }
+    }
+
+    /**
+     * Close a model that is no longer cached so that it can be garbage collected, discarding unsaved changes
+     */
+    private void closeModel(IArchimateModel model) {
+        synchronized(IEditorModelManager.INSTANCE) {
+            try {
+                IEditorModelManager.INSTANCE.closeModel(model, false);
+            }
+            catch(IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Create a JS engine once so that the engine classes are loaded before the first job
+     */
+    private void warmUp() {
+        try {
+            IScriptEngineProvider.INSTANCE.getProviderByID(JSProvider.ID).createScriptEngine();
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void writeInfoFile() throws IOException {
+        Properties info = new Properties();
+        info.setProperty(ScriptClient.INFO_PORT, String.valueOf(serverSocket.getLocalPort()));
+        info.setProperty(ScriptClient.INFO_TOKEN, token);
+
+        infoFile.getAbsoluteFile().getParentFile().mkdirs();
+        infoFile.delete();
+
+        // Only the current user may read the token
+        try {
+            Files.createFile(infoFile.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        catch(UnsupportedOperationException ex) {
+            Files.createFile(infoFile.toPath());
+        }
+
+        try(OutputStream os = new FileOutputStream(infoFile)) {
+            info.store(os, "jArchi script server");
+        }
+
+        infoFile.deleteOnExit();
+    }
+
+    private void writeExit(DataOutputStream out, int status, long millis) throws IOException {
+        synchronized(out) {
+            out.writeByte(ScriptClient.FRAME_EXIT);
+            out.writeInt(status);
+            out.writeLong(millis);
+            out.flush();
+        }
+    }
+
+    /**
+     * Sends output to the current client as frames, or to the server's own stream between jobs
+     */
+    private static class JobOutputStream extends OutputStream {
+        private byte type;
+        private PrintStream fallback;
+        private volatile DataOutputStream target;
+
+        JobOutputStream(byte type, PrintStream fallback) {
+            this.type = type;
+            this.fallback = fallback;
+        }
+
+        void setTarget(DataOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            DataOutputStream out = target;
+
+            if(out == null) {
+                fallback.write(b, off, len);
+                return;
+            }
+
+            synchronized(out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+                out.flush();
+            }
+        }
+    }
+}
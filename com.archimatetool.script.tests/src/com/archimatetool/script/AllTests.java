@@ -9,11 +9,13 @@ package com.archimatetool.script;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import com.archimatetool.script.dom.DomBindingsTests;
 import com.archimatetool.script.dom.model.ArchimateDiagramModelObjectProxyTests;
 import com.archimatetool.script.dom.model.ArchimateDiagramModelProxyTests;
 import com.archimatetool.script.dom.model.ArchimateElementProxyTests;
 import com.archimatetool.script.dom.model.ArchimateModelProxyTests;
 import com.archimatetool.script.dom.model.ArchimateRelationshipProxyTests;
+import com.archimatetool.script.dom.model.CSVImporterTests;
 import com.archimatetool.script.dom.model.CanvasDiagramModelProxyTests;
 import com.archimatetool.script.dom.model.CurrentModelTests;
 import com.archimatetool.script.dom.model.DiagramModelConnectionProxyTests;
@@ -22,12 +24,20 @@ import com.archimatetool.script.dom.model.DiagramModelNoteProxyTests;
 import com.archimatetool.script.dom.model.DiagramModelReferenceProxyTests;
 import com.archimatetool.script.dom.model.EObjectProxyCollectionTests;
 import com.archimatetool.script.dom.model.FolderProxyTests;
+import com.archimatetool.script.dom.model.ModelExporterTests;
 import com.archimatetool.script.dom.model.ModelFactoryTests;
+import com.archimatetool.script.dom.model.ModelSnapshotTests;
 import com.archimatetool.script.dom.model.ModelTests;
+import com.archimatetool.script.dom.model.ModelTextIndexTests;
 import com.archimatetool.script.dom.model.ModelUtilTests;
+import com.archimatetool.script.dom.model.NamePatternTests;
 import com.archimatetool.script.dom.model.ProfileProxyTests;
+import com.archimatetool.script.dom.model.QueryCacheTests;
 import com.archimatetool.script.dom.model.SelectorFilterFactoryTests;
 import com.archimatetool.script.dom.model.SketchDiagramModelProxyTests;
+import com.archimatetool.script.dom.model.TypeRegistryTests;
+import com.archimatetool.script.views.console.ConsoleBufferTests;
+import com.archimatetool.script.views.console.ConsoleFileSinkTests;
 
 @RunWith(Suite.class)
 
@@ -37,20 +47,30 @@ import com.archimatetool.script.dom.model.SketchDiagramModelProxyTests;
     ArchimateElementProxyTests.class,
     ArchimateModelProxyTests.class,
     ArchimateRelationshipProxyTests.class,
+    CSVImporterTests.class,
     CanvasDiagramModelProxyTests.class,
+    ConsoleBufferTests.class,
+    ConsoleFileSinkTests.class,
     CurrentModelTests.class,
     DiagramModelConnectionProxyTests.class,
+    DomBindingsTests.class,
     DiagramModelGroupProxyTests.class,
     DiagramModelNoteProxyTests.class,
     DiagramModelReferenceProxyTests.class,
     EObjectProxyCollectionTests.class,
     FolderProxyTests.class,
+    ModelExporterTests.class,
     ModelFactoryTests.class,
+    ModelSnapshotTests.class,
     ModelTests.class,
+    ModelTextIndexTests.class,
     ModelUtilTests.class,
+    NamePatternTests.class,
     ProfileProxyTests.class,
+    QueryCacheTests.class,
     SelectorFilterFactoryTests.class,
-    SketchDiagramModelProxyTests.class
+    SketchDiagramModelProxyTests.class,
+    TypeRegistryTests.class
 })
 
 public class AllTests {
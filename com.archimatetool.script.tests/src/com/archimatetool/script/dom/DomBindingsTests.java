@@ -0,0 +1,71 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.archimatetool.script.dom.model.CurrentModel;
+import com.archimatetool.script.dom.model.Selection;
+
+
+/**
+ * DomBindings Tests
+ */
+@SuppressWarnings("nls")
+public class DomBindingsTests {
+    
+    @Test
+    public void get_CreatesOnFirstAccessOnly() {
+        DomBindings bindings = DomExtensionFactory.createDomBindings();
+        
+        assertFalse(bindings.isCreated("selection"));
+        
+        Object selection = bindings.get("selection");
+        assertTrue(selection instanceof Selection);
+        assertTrue(bindings.isCreated("selection"));
+        assertSame(selection, bindings.get("selection"));
+        
+        assertFalse(bindings.isCreated("model"));
+    }
+    
+    @Test
+    public void get_Unknown() {
+        DomBindings bindings = DomExtensionFactory.createDomBindings();
+        assertNull(bindings.get("unknown"));
+        assertFalse(bindings.isCreated("unknown"));
+    }
+    
+    @Test
+    public void getLazyVariableNames() {
+        DomBindings bindings = DomExtensionFactory.createDomBindings();
+        
+        String[] names = bindings.getLazyVariableNames();
+        Arrays.sort(names);
+        assertArrayEquals(new String[] { "Browser", "console", "jArchiMemo", "selection" }, names);
+        
+        assertTrue(bindings.isLazy("selection"));
+        assertFalse(bindings.isLazy("model"));
+    }
+    
+    @Test
+    public void dispose_ClearsCreatedObjects() {
+        DomBindings bindings = DomExtensionFactory.createDomBindings();
+        
+        Object model = bindings.get("model");
+        assertTrue(model instanceof CurrentModel);
+        
+        bindings.dispose();
+        assertFalse(bindings.isCreated("model"));
+    }
+}
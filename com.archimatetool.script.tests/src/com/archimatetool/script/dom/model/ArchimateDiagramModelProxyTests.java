@@ -5,15 +5,20 @@
  */
 package com.archimatetool.script.dom.model;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
+import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.emf.ecore.EObject;
 import org.junit.Before;
 import org.junit.Test;
@@ -22,8 +27,10 @@ import com.archimatetool.model.IArchimateDiagramModel;
 import com.archimatetool.model.IConnectable;
 import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelComponent;
+import com.archimatetool.model.IDiagramModelConnection;
 import com.archimatetool.model.IDiagramModelReference;
 import com.archimatetool.model.util.ArchimateModelUtils;
+import com.archimatetool.script.ArchiScriptException;
 
 
 /**
@@ -100,6 +107,49 @@ public class ArchimateDiagramModelProxyTests extends DiagramModelProxyTests {
             assertTrue(eObjectProxy instanceof DiagramModelComponentProxy);
         }
     }
+
+    @Test
+    public void children_ConnectionsKeptUpToDate() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Connections");
+        DiagramModelObjectProxy a = addObject(view, "A");
+        DiagramModelObjectProxy b = addObject(view, "B");
+        assertEquals(2, view.children().size());
+
+        DiagramModelConnectionProxy connection = addConnection(view, a, b);
+        assertEquals(3, view.children().size());
+        assertEquals(connection, view.children().get(2));
+
+        connection.delete();
+        assertEquals(2, view.children().size());
+    }
+
+    @Test
+    public void children_ConnectionsKeptInViewOrder() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Connections");
+        DiagramModelObjectProxy a = addObject(view, "A");
+        DiagramModelObjectProxy b = addObject(view, "B");
+        DiagramModelObjectProxy c = addObject(view, "C");
+        view.children(); // Make the list
+
+        addConnection(view, c, a);
+        addConnection(view, b, c);
+        DiagramModelConnectionProxy ab = addConnection(view, a, b);
+        addConnection(view, a, c);
+        ab.delete();
+
+        // Same order as visiting the view's contents
+        List<EObjectProxy> expected = new ArrayList<>();
+        for(Iterator<EObject> iter = view.getEObject().eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelConnection) {
+                expected.add(EObjectProxy.get(eObject));
+            }
+        }
+
+        EObjectProxyCollection children = view.children();
+        assertEquals(3, expected.size());
+        assertEquals(expected, children.subList(3, children.size()));
+    }
     
     @Test
     public void objectRefs() {
@@ -189,4 +239,165 @@ public class ArchimateDiagramModelProxyTests extends DiagramModelProxyTests {
         assertTrue(actualTestProxy.isAllowedConceptForViewpoint("resource"));
         assertTrue(actualTestProxy.isAllowedConceptForViewpoint("outcome"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createObject_AutoNest() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Nested");
+        DiagramModelObjectProxy outer = view.createObject("group", 0, 0, 600, 600, true);
+        DiagramModelObjectProxy inner = view.createObject("group", 300, 300, 200, 200, true);
+        DiagramModelObjectProxy note = view.createObject("note", 350, 360, 50, 50, true);
+        
+        assertEquals(outer, inner.parent());
+        assertEquals(inner, note.parent());
+        assertEquals(50, note.getBounds().get("x"));
+        assertEquals(60, note.getBounds().get("y"));
+    }
+    
+    @Test
+    public void objectsAt_objectsIn() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Spatial");
+        DiagramModelObjectProxy outer = view.createObject("group", 0, 0, 600, 600, true);
+        DiagramModelObjectProxy inner = view.createObject("group", 300, 300, 200, 200, true);
+        DiagramModelObjectProxy note = view.createObject("note", 350, 350, 50, 50, true);
+        
+        assertEquals(List.of(outer, inner, note), view.objectsAt(360, 360));
+        assertEquals(List.of(outer), view.objectsAt(10, 10));
+        assertTrue(view.objectsAt(1000, 1000).isEmpty());
+        assertEquals(List.of(inner, note), view.objectsIn(Map.of("x", 300, "y", 300, "width", 200, "height", 200)));
+        
+        // Moving a container moves its children in the index
+        inner.setBounds(Map.of("x", 0, "y", 0));
+        assertEquals(List.of(outer, inner, note), view.objectsAt(60, 60));
+        assertEquals(List.of(outer), view.objectsAt(360, 360));
+        
+        note.delete();
+        assertEquals(List.of(outer, inner), view.objectsAt(60, 60));
+    }
+    
+    @Test
+    public void objectsAt_DefaultSize() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Spatial");
+        DiagramModelObjectProxy note = view.createObject("note", 0, 0, 50, 50, false);
+        note.getEObject().setBounds(0, 0, -1, -1);
+        
+        // Hit-tested with the default size of a note
+        Dimension size = ModelUtil.getDefaultSize(note.getEObject());
+        assertEquals(List.of(note), view.objectsAt(size.width - 1, size.height - 1));
+        assertTrue(view.objectsAt(size.width + 1, size.height + 1).isEmpty());
+    }
+
+    @Test
+    public void layout_Layered() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Layered");
+        DiagramModelObjectProxy a = addObject(view, "A");
+        DiagramModelObjectProxy b = addObject(view, "B");
+        DiagramModelObjectProxy c = addObject(view, "C");
+        DiagramModelConnectionProxy ab = addConnection(view, a, b);
+        addConnection(view, b, c);
+        DiagramModelConnectionProxy ac = addConnection(view, a, c);
+        
+        view.layout(Map.of("algorithm", "layered"));
+        
+        assertEquals(20, a.getBounds().get("y"));
+        assertEquals(115, b.getBounds().get("y"));
+        assertEquals(210, c.getBounds().get("y"));
+        assertTrue(ab.getRelativeBendpoints().isEmpty());
+        assertEquals(1, ac.getRelativeBendpoints().size());
+    }
+    
+    @Test
+    public void layout_Grid() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Grid");
+        List<DiagramModelObjectProxy> objects = List.of(addObject(view, "A"), addObject(view, "B"), addObject(view, "C"), addObject(view, "D"));
+        
+        view.layout(Map.of("algorithm", "grid"));
+        
+        assertEquals(Map.of("x", 20, "y", 20, "width", 120, "height", 55), objects.get(0).getBounds());
+        assertEquals(Map.of("x", 180, "y", 20, "width", 120, "height", 55), objects.get(1).getBounds());
+        assertEquals(Map.of("x", 20, "y", 115, "width", 120, "height", 55), objects.get(2).getBounds());
+        assertEquals(Map.of("x", 180, "y", 115, "width", 120, "height", 55), objects.get(3).getBounds());
+    }
+    
+    @Test
+    public void layout_Grid_DefaultSize() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Grid");
+        DiagramModelObjectProxy note1 = view.createObject("note", 0, 0, 50, 50, false);
+        DiagramModelObjectProxy note2 = view.createObject("note", 0, 0, 50, 50, false);
+        note1.getEObject().setBounds(0, 0, -1, -1);
+        note2.getEObject().setBounds(0, 0, -1, -1);
+        
+        view.layout(Map.of("algorithm", "grid", "columns", 2));
+        
+        // Spaced by the default size of a note
+        Dimension size = ModelUtil.getDefaultSize(note1.getEObject());
+        assertEquals(20 + size.width + 40, note2.getBounds().get("x"));
+    }
+    
+    @Test
+    public void layout_Tree() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Tree");
+        DiagramModelObjectProxy a = addObject(view, "A");
+        DiagramModelObjectProxy b = addObject(view, "B");
+        DiagramModelObjectProxy c = addObject(view, "C");
+        addConnection(view, a, b);
+        addConnection(view, a, c);
+        
+        view.layout(Map.of("algorithm", "tree"));
+        
+        assertEquals(100, a.getBounds().get("x"));
+        assertEquals(20, b.getBounds().get("x"));
+        assertEquals(180, c.getBounds().get("x"));
+        assertEquals(115, c.getBounds().get("y"));
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void layout_UnknownAlgorithm() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Unknown");
+        addObject(view, "A");
+        view.layout(Map.of("algorithm", "garbage"));
+    }
+    
+    @Test
+    public void getAllBounds_setAllBounds() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Bounds");
+        DiagramModelObjectProxy a = addObject(view, "A");
+        DiagramModelObjectProxy b = addObject(view, "B");
+        
+        Map<String, Object> bounds = view.getAllBounds();
+        assertArrayEquals(new String[] { a.getId(), b.getId() }, (String[])bounds.get("ids"));
+        assertArrayEquals(new int[] { 120, 120 }, (int[])bounds.get("width"));
+        
+        view.setAllBounds(List.of(a.getId(), b), List.of(10, 200), List.of(20, 300), null, Arrays.asList(null, 80));
+        assertEquals(Map.of("x", 10, "y", 20, "width", 120, "height", 55), a.getBounds());
+        assertEquals(Map.of("x", 200, "y", 300, "width", 120, "height", 80), b.getBounds());
+        
+        assertThrows(ArchiScriptException.class, () -> view.setAllBounds(List.of("garbage"), List.of(0), List.of(0)));
+        assertThrows(ArchiScriptException.class, () -> view.setAllBounds(List.of(a.getId()), List.of(0, 1), List.of(0)));
+    }
+    
+    @Test
+    public void setAllBounds_DefaultSize() {
+        ArchimateDiagramModelProxy view = testModelProxy.createArchimateView("Bounds");
+        DiagramModelObjectProxy note = view.createObject("note", 0, 0, 50, 50, false);
+        note.getEObject().setBounds(0, 0, -1, -1);
+        
+        // A kept -1 stays as it is
+        view.setAllBounds(List.of(note), List.of(10), List.of(20));
+        assertEquals(Map.of("x", 10, "y", 20, "width", -1, "height", -1), note.getBounds());
+        
+        // A -1 that is given is the default size of a note
+        Dimension size = ModelUtil.getDefaultSize(note.getEObject());
+        view.setAllBounds(List.of(note), List.of(10), List.of(20), List.of(-1), null);
+        assertEquals(Map.of("x", 10, "y", 20, "width", size.width, "height", -1), note.getBounds());
+    }
+    
+    private DiagramModelObjectProxy addObject(ArchimateDiagramModelProxy view, String name) {
+        return view.add(testModelProxy.createElement("business-object", name), 0, 0, 120, 55);
+    }
+    
+    private DiagramModelConnectionProxy addConnection(ArchimateDiagramModelProxy view, DiagramModelObjectProxy source, DiagramModelObjectProxy target) {
+        ArchimateRelationshipProxy relationship = testModelProxy.createRelationship("association-relationship", "",
+                source.getConcept(), target.getConcept());
+        return view.add(relationship, source, target);
+    }
+}
@@ -8,6 +8,7 @@ package com.archimatetool.script.dom.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
@@ -18,6 +19,7 @@ import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IBusinessActor;
 import com.archimatetool.model.IBusinessRole;
+import com.archimatetool.model.IDiagramModelArchimateObject;
 import com.archimatetool.model.IJunction;
 import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.script.ArchiScriptException;
@@ -114,6 +116,45 @@ public class ArchimateElementProxyTests extends ArchimateConceptProxyTests {
         assertEquals(3, newElementProxy.objectRefs().size());
     }
 
+    @Test
+    public void setType_Collection() {
+        ArchimateElementProxy otherProxy = testModelProxy.createElement("business-actor", "Other");
+        
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        collection.add(actualTestProxy);
+        collection.add(otherProxy);
+        collection.add(actualTestProxy.outRels().first());
+        
+        collection.setType("business-role");
+        
+        assertTrue(actualTestProxy.getEObject() instanceof IBusinessRole);
+        assertTrue(otherProxy.getEObject() instanceof IBusinessRole);
+        assertEquals("Other", otherProxy.getName());
+        assertNull(testEObject.getArchimateModel());
+        
+        assertEquals(3, actualTestProxy.outRels().size());
+        assertEquals(6, actualTestProxy.inRels().size());
+        assertEquals(3, actualTestProxy.objectRefs().size());
+        for(EObjectProxy proxy : actualTestProxy.objectRefs()) {
+            assertSame(actualTestProxy.getEObject(), ((IDiagramModelArchimateObject)proxy.getEObject()).getArchimateElement());
+        }
+    }
+    
+    @Test
+    public void setType_Collection_InvalidChangesNothing() {
+        ArchimateElementProxy actor = testModelProxy.createElement("business-actor", "Actor");
+        ArchimateElementProxy role = testModelProxy.createElement("business-role", "Role");
+        testModelProxy.createRelationship("assignment-relationship", "", actor, role);
+        
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        collection.add(actualTestProxy);
+        collection.add(actor);
+        
+        assertThrows(ArchiScriptException.class, () -> collection.setType("business-object"));
+        assertTrue(actualTestProxy.getEObject() instanceof IBusinessActor);
+        assertTrue(actor.getEObject() instanceof IBusinessActor);
+    }
+    
     @Test
     public void outRels() {
         EObjectProxyCollection collection = actualTestProxy.outRels();
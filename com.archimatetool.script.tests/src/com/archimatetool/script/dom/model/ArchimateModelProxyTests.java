@@ -15,6 +15,8 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.emf.ecore.EObject;
 import org.junit.Before;
@@ -28,6 +30,7 @@ import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IArchimateRelationship;
 import com.archimatetool.model.IIdentifier;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.ScriptRunContext;
 
 
 /**
@@ -60,19 +63,105 @@ public class ArchimateModelProxyTests extends EObjectProxyTests {
         assertEquals(actualTestProxy, testProxy.getModel());
     }
     
+    @Test
+    public void getVersion_CountsChanges() {
+        IArchimateModel model = (IArchimateModel)testEObject;
+        long version = actualTestProxy.getVersion();
+        
+        model.setName("Changed");
+        assertEquals(version + 1, actualTestProxy.getVersion());
+        
+        // Changes to contained objects are counted
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        model.getDefaultFolderForObject(element).getElements().add(element);
+        element.setName("Actor");
+        assertEquals(version + 3, actualTestProxy.getVersion());
+    }
+    
+    @Test
+    public void changesSince() {
+        IArchimateModel model = (IArchimateModel)testEObject;
+        long version = actualTestProxy.getVersion();
+        
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        model.getDefaultFolderForObject(element).getElements().add(element);
+        element.setName("Actor");
+        
+        List<Map<String, Object>> changes = actualTestProxy.changesSince(version);
+        assertEquals(2, changes.size());
+        
+        assertEquals("add", changes.get(0).get("type"));
+        assertEquals(EObjectProxy.get(element), changes.get(0).get("newValue"));
+        
+        assertEquals("set", changes.get(1).get("type"));
+        assertEquals("name", changes.get(1).get("feature"));
+        assertEquals(EObjectProxy.get(element), changes.get(1).get("object"));
+        assertEquals("Actor", changes.get(1).get("newValue"));
+        
+        assertTrue(actualTestProxy.changesSince(actualTestProxy.getVersion()).isEmpty());
+    }
+    
+    @Test
+    public void changesSince_DeletedObjectIsGivenById() {
+        IArchimateModel model = (IArchimateModel)testEObject;
+        
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        model.getDefaultFolderForObject(element).getElements().add(element);
+        long version = actualTestProxy.getVersion();
+        
+        element.setName("Actor");
+        model.getDefaultFolderForObject(element).getElements().remove(element);
+        
+        List<Map<String, Object>> changes = actualTestProxy.changesSince(version);
+        assertEquals(2, changes.size());
+        assertEquals(element.getId(), changes.get(0).get("object"));
+        assertEquals("remove", changes.get(1).get("type"));
+        assertEquals(element.getId(), changes.get(1).get("oldValue"));
+    }
+    
+    @Test
+    public void changesSince_TooOldReturnsNull() {
+        IArchimateModel model = (IArchimateModel)testEObject;
+        long version = actualTestProxy.getVersion();
+        
+        for(int i = 0; i <= ModelChangeTracker.JOURNAL_SIZE; i++) {
+            model.setName("Name" + i);
+        }
+        
+        assertNull(actualTestProxy.changesSince(version));
+        assertEquals(ModelChangeTracker.JOURNAL_SIZE, actualTestProxy.changesSince(version + 1).size());
+    }
+    
     @Test
     public void setAsCurrent() {
-        // Create our own instance as the singleton won't be loaded
-        CurrentModel currentModel = new CurrentModel();
+        // The current model is per script run
+        ScriptRunContext context = new ScriptRunContext("test", null);
+        context.attach();
         
-        // Initially this will be null and so will throw an ArchiScriptException
+        try {
+            // Create our own instance as the singleton won't be loaded
+            CurrentModel currentModel = new CurrentModel();
+            
+            // Initially this will be null and so will throw an ArchiScriptException
+            assertThrows(ArchiScriptException.class, () -> {
+                currentModel.getEObject();
+            });
+            
+            actualTestProxy.setAsCurrent();
+            assertEquals(actualTestProxy, currentModel);
+            assertEquals(actualTestProxy.getEObject(), currentModel.getEObject());
+        }
+        finally {
+            context.finish();
+            context.detach();
+        }
+    }
+    
+    @Test
+    public void setAsCurrent_NoRunningScriptThrowsException() {
         assertThrows(ArchiScriptException.class, () -> {
-            currentModel.getEObject();
+            actualTestProxy.setAsCurrent();
         });
-        
-        actualTestProxy.setAsCurrent();
-        assertEquals(actualTestProxy, currentModel);
-        assertEquals(actualTestProxy.getEObject(), currentModel.getEObject());
     }
     
     @Override
@@ -242,6 +331,116 @@ public class ArchimateModelProxyTests extends EObjectProxyTests {
         actualTestProxy.createRelationship("AccessRelationship", "Fido", source, target);
     }
     
+    @Test
+    public void createElements() {
+        int count = actualTestProxy.find("element").size();
+        
+        EObjectProxyCollection elements = actualTestProxy.createElements(List.of(
+                Map.of("type", "business-actor", "name", "Actor", "properties", Map.of("Cost", "10")),
+                Map.of("type", "business-role", "name", "Role", "documentation", "Doc")));
+        
+        assertEquals(2, elements.size());
+        assertEquals(count + 2, actualTestProxy.find("element").size());
+        assertEquals("Actor", elements.get(0).getName());
+        assertEquals("10", elements.get(0).prop("Cost"));
+        assertEquals("Doc", elements.get(1).getDocumentation());
+        assertEquals(actualTestProxy.getEObject().getDefaultFolderForObject(elements.get(1).getEObject()), elements.get(1).getEObject().eContainer());
+    }
+    
+    @Test
+    public void createElements_BogusCreatesNothing() {
+        int count = actualTestProxy.find("element").size();
+        
+        assertThrows(ArchiScriptException.class, () -> actualTestProxy.createElements(List.of(
+                Map.of("type", "business-actor", "name", "Actor"),
+                Map.of("type", "access-relationship", "name", "Bogus"))));
+        
+        assertEquals(count, actualTestProxy.find("element").size());
+    }
+    
+    @Test
+    public void createRelationships() {
+        ArchimateElementProxy source = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy target = actualTestProxy.createElement("business-role", "Role");
+        
+        EObjectProxyCollection relationships = actualTestProxy.createRelationships(List.of(
+                Map.of("type", "assignment-relationship", "source", source, "target", target),
+                Map.of("type", "association-relationship", "name", "By id", "source", source.getId(), "target", target.getId())));
+        
+        assertEquals(2, relationships.size());
+        assertEquals(2, source.outRels().size());
+        assertEquals(target.getEObject(), ((IArchimateRelationship)relationships.get(1).getEObject()).getTarget());
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void createRelationships_Invalid() {
+        ArchimateElementProxy source = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy target = actualTestProxy.createElement("business-role", "Role");
+        actualTestProxy.createRelationships(List.of(Map.of("type", "access-relationship", "source", source, "target", target)));
+    }
+
+    @Test
+    public void findDuplicates() {
+        ArchimateElementProxy actor1 = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy actor2 = actualTestProxy.createElement("business-actor", "  fido ");
+        actualTestProxy.createElement("business-role", "Fido");
+        actualTestProxy.createElement("business-actor", "Other");
+
+        List<EObjectProxyCollection> groups = actualTestProxy.findDuplicates();
+        assertEquals(1, groups.size());
+        assertEquals(List.of(actor1, actor2), groups.get(0));
+
+        assertTrue(actualTestProxy.findDuplicates(Map.of("ignoreCase", false)).isEmpty());
+        assertEquals(1, actualTestProxy.findDuplicates((EObjectProxy proxy) -> proxy.getName().trim().toLowerCase()).size());
+    }
+
+    @Test
+    public void mergeAll() {
+        ArchimateElementProxy actor1 = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy actor2 = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy role = actualTestProxy.createElement("business-role", "Role");
+        actor1.setDocumentation("Doc1");
+        actor2.setDocumentation("Doc2");
+        actor2.prop("Cost", "10");
+        ArchimateRelationshipProxy relationship = actualTestProxy.createRelationship("assignment-relationship", "", actor2, role);
+        DiagramModelObjectProxy dmo = actualTestProxy.createArchimateView("View").add(actor2, 10, 10, 100, 50);
+
+        EObjectProxyCollection merged = actualTestProxy.mergeAll(actualTestProxy.findDuplicates());
+
+        assertEquals(List.of(actor1), merged);
+        assertEquals("Doc1\nDoc2", actor1.getDocumentation());
+        assertEquals("10", actor1.prop("Cost"));
+        assertEquals(actor1.getEObject(), ((IArchimateRelationship)relationship.getEObject()).getSource());
+        assertEquals(actor1, dmo.getConcept());
+        assertNull(actor2.getEObject().eContainer());
+        assertEquals(1, actualTestProxy.find("business-actor").size());
+    }
+
+    @Test
+    public void mergeAll_InvalidChangesNothing() {
+        ArchimateElementProxy actor1 = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy actor2 = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy role = actualTestProxy.createElement("business-role", "Role");
+
+        assertThrows(ArchiScriptException.class, () -> actualTestProxy.mergeAll(List.of(List.of(actor1, actor2), List.of(role, actor2))));
+        assertThrows(ArchiScriptException.class, () -> actualTestProxy.mergeAll(List.of(List.of(actor1, role))));
+
+        assertEquals(2, actualTestProxy.find("business-actor").size());
+    }
+
+    @Test
+    public void mergeAll_OtherModelThrows() {
+        IArchimateModel otherModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        otherModel.setDefaults();
+        ArchimateModelProxy otherProxy = (ArchimateModelProxy)EObjectProxy.get(otherModel);
+        ArchimateElementProxy actor1 = otherProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy actor2 = otherProxy.createElement("business-actor", "Fido");
+
+        assertThrows(ArchiScriptException.class, () -> actualTestProxy.mergeAll(List.of(List.of(actor1, actor2))));
+
+        assertEquals(2, otherProxy.find("business-actor").size());
+    }
+
     @Test
     public void getSpecializations() {
         ProfileProxy proxy1 = actualTestProxy.createSpecialization("Spec", "business-actor", null);
@@ -0,0 +1,195 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.script.ArchiScriptException;
+
+
+/**
+ * CSVImporter and CSVReader Tests
+ */
+@SuppressWarnings("nls")
+public class CSVImporterTests {
+
+    private ArchimateModelProxy modelProxy;
+
+    @Before
+    public void runOnceBeforeEachTest() {
+        modelProxy = TestsHelper.createTestModel();
+    }
+
+    private Map<String, Object> importCSV(String text, Map<?, ?> options) throws IOException {
+        return importCSV(text, options, ".csv");
+    }
+
+    private Map<String, Object> importCSV(String text, Map<?, ?> options, String suffix) throws IOException {
+        File file = File.createTempFile("~temp", suffix);
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return new Model().importCSV(modelProxy, file.getAbsolutePath(), options);
+    }
+
+    @Test
+    public void readRecord() throws IOException {
+        try(CSVReader reader = new CSVReader(new StringReader("\uFEFFa,\"b,c\",\"d \"\"e\"\"\"\r\n\"f\ng\",,h\n"), ',')) {
+            assertEquals(Arrays.asList("a", "b,c", "d \"e\""), reader.readRecord());
+            assertEquals(1, reader.getLineNumber());
+            assertEquals(Arrays.asList("f\ng", "", "h"), reader.readRecord());
+            assertEquals(3, reader.getLineNumber());
+            assertNull(reader.readRecord());
+        }
+    }
+
+    @Test
+    public void importElements() throws IOException {
+        Map<String, Object> report = importCSV("\"ID\",\"Type\",\"Name\",\"Documentation\"\n"
+                + "\"id-1\",\"BusinessActor\",\"Actor\",\"Some text\"\n"
+                + ",\"business-role\",\"Role\",\"\"\n"
+                + "\"id-3\",\"Garbage\",\"Bad\",\"\"\n", null);
+
+        assertEquals(3, report.get("rows"));
+        assertEquals(2, report.get("created"));
+        assertEquals(1, report.get("errors"));
+
+        EObjectProxyCollection actors = modelProxy.find("business-actor");
+        assertEquals(1, actors.size());
+        assertEquals("id-1", actors.first().getId());
+        assertEquals("Some text", actors.first().getDocumentation());
+        assertEquals(1, modelProxy.find("business-role").size());
+    }
+
+    @Test
+    public void importElements_Updates() throws IOException {
+        ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor");
+
+        Map<String, Object> report = importCSV("Type,Name,Documentation\nBusinessActor,Actor,Updated\nBusinessActor,Other,\n", null);
+        assertEquals(1, report.get("updated"));
+        assertEquals(1, report.get("created"));
+        assertEquals("Updated", actor.getDocumentation());
+
+        report = importCSV("Type,Name,Documentation\nBusinessActor,Actor,Not Updated\n", Map.of("update", false));
+        assertEquals(1, report.get("skipped"));
+        assertEquals("Updated", actor.getDocumentation());
+    }
+
+    @Test
+    public void importElements_Properties() throws IOException {
+        importCSV("Name\tCost\tOwner\nActor\t10\tBob\n", Map.of("type", "business-actor", "properties", true), ".tsv");
+
+        EObjectProxy actor = modelProxy.find("business-actor").first();
+        assertEquals("10", actor.prop("Cost"));
+        assertEquals("Bob", actor.prop("Owner"));
+    }
+
+    @Test
+    public void importRelationships() throws IOException {
+        ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor");
+        ArchimateElementProxy role = modelProxy.createElement("business-role", "Role");
+
+        Map<String, Object> report = importCSV("Type,Name,Source,Target\n"
+                + "AssignmentRelationship,r1," + actor.getId() + ",Role\n"
+                + "AccessRelationship,r2,Actor,Role\n"
+                + "AssignmentRelationship,r3,Actor,Nothing\n", null);
+
+        assertEquals(1, report.get("created"));
+        assertEquals(2, report.get("errors"));
+
+        IArchimateRelationship relationship = (IArchimateRelationship)modelProxy.find("assignment-relationship").first().getEObject();
+        assertEquals(actor.getEObject(), relationship.getSource());
+        assertEquals(role.getEObject(), relationship.getTarget());
+        assertEquals(1, ((IArchimateElement)actor.getEObject()).getSourceRelationships().size());
+    }
+
+    @Test
+    public void importProperties() throws IOException {
+        ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor");
+        actor.prop("Cost", "1");
+
+        Map<String, Object> report = importCSV("\"ID\",\"Key\",\"Value\"\n"
+                + "\"" + actor.getId() + "\",\"Cost\",\"2\"\n"
+                + "\"" + actor.getId() + "\",\"Owner\",\"Bob\"\n"
+                + "\"unknown\",\"Owner\",\"Bob\"\n", null);
+
+        assertEquals(2, report.get("updated"));
+        assertEquals(1, report.get("errors"));
+        assertEquals("2", actor.prop("Cost"));
+        assertEquals("Bob", actor.prop("Owner"));
+    }
+
+    @Test
+    public void importProperties_RepeatedKeys() throws IOException {
+        ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor");
+        actor.prop("Tag", "a");
+
+        String text = "ID,Key,Value\n"
+                + actor.getId() + ",Tag,b\n"
+                + actor.getId() + ",Tag,c\n";
+
+        // The first Tag row sets the existing property and the second adds one
+        importCSV(text, null);
+        assertEquals(List.of("b", "c"), getValues(actor, "Tag"));
+
+        // Importing again sets the same properties
+        Map<String, Object> report = importCSV(text, null);
+        assertEquals(2, report.get("skipped"));
+        assertEquals(List.of("b", "c"), getValues(actor, "Tag"));
+    }
+
+    @Test
+    public void importElements_Specialization() throws IOException {
+        ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor");
+
+        Map<String, Object> report = importCSV("Type,Name,Specialization\n"
+                + "BusinessActor,Actor,Customer\n"
+                + "BusinessActor,Other,Customer\n"
+                + "BusinessRole,Role,Customer\n", null);
+
+        assertEquals(1, report.get("updated"));
+        assertEquals(2, report.get("created"));
+        assertEquals("Customer", actor.getSpecialization());
+        assertEquals("Customer", ((ArchimateConceptProxy)modelProxy.find(".Other").first()).getSpecialization());
+
+        // One specialization for each type
+        assertEquals(2, modelProxy.getSpecializations().size());
+        assertNotNull(modelProxy.findSpecialization("Customer", "business-role"));
+    }
+
+    private List<String> getValues(EObjectProxy proxy, String key) {
+        List<String> values = new ArrayList<>();
+        for(IProperty property : ((IProperties)proxy.getEObject()).getProperties()) {
+            if(key.equals(property.getKey())) {
+                values.add(property.getValue());
+            }
+        }
+        return values;
+    }
+
+    @Test(expected = ArchiScriptException.class)
+    public void importRelationships_MissingColumn() throws IOException {
+        importCSV("Type,Source\nAssignmentRelationship,a\n", Map.of("kind", "relationships"));
+    }
+}
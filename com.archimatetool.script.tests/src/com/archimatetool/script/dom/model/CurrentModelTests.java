@@ -5,12 +5,18 @@
  */
 package com.archimatetool.script.dom.model;
 
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.ScriptRunContext;
 import com.archimatetool.script.dom.DomExtensionFactory;
 
 
@@ -33,4 +39,83 @@ public class CurrentModelTests {
         });
     }
 
+    @Test
+    public void setAsCurrent_IsPerRunContext() throws Exception {
+        IArchimateModel model1 = IArchimateFactory.eINSTANCE.createArchimateModel();
+        IArchimateModel model2 = IArchimateFactory.eINSTANCE.createArchimateModel();
+        
+        CurrentModel[] currentModels = new CurrentModel[2];
+        
+        Thread thread1 = new Thread(() -> {
+            currentModels[0] = runInContext(model1);
+        });
+        
+        Thread thread2 = new Thread(() -> {
+            currentModels[1] = runInContext(model2);
+        });
+        
+        thread1.start();
+        thread2.start();
+        thread1.join();
+        thread2.join();
+        
+        assertNotSame(currentModels[0], currentModels[1]);
+        assertSame(model1, currentModels[0].getEObject());
+        assertSame(model2, currentModels[1].getEObject());
+    }
+    
+    @Test
+    public void current_NoRunningScriptThrowsException() {
+        assertThrows(ArchiScriptException.class, () -> {
+            ScriptRunContext.current();
+        });
+        
+        assertNull(ScriptRunContext.find());
+    }
+    
+    @Test
+    public void current_OtherThreadUsesOnlyRunningScript() throws Exception {
+        ScriptRunContext context1 = new ScriptRunContext("test1", null);
+        ScriptRunContext context2 = new ScriptRunContext("test2", null);
+        ScriptRunContext[] found = new ScriptRunContext[2];
+        
+        context1.attach();
+        
+        try {
+            Thread thread = new Thread(() -> {
+                found[0] = ScriptRunContext.find();
+                context2.attach();
+                found[1] = ScriptRunContext.find();
+                context2.finish();
+                context2.detach();
+            });
+            thread.start();
+            thread.join();
+            
+            assertSame(context1, found[0]);
+            assertSame(context2, found[1]);
+        }
+        finally {
+            context1.finish();
+            context1.detach();
+        }
+        
+        // Both finished
+        assertNull(ScriptRunContext.find());
+    }
+    
+    private CurrentModel runInContext(IArchimateModel model) {
+        ScriptRunContext context = new ScriptRunContext("test", null);
+        context.attach();
+        
+        try {
+            new CurrentModel();
+            new ArchimateModelProxy(model).setAsCurrent();
+            return context.getCurrentModel();
+        }
+        finally {
+            context.finish();
+            context.detach();
+        }
+    }
 }
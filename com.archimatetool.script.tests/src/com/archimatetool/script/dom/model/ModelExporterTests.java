@@ -0,0 +1,86 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.script.ArchiScriptException;
+
+
+/**
+ * ModelExporter Tests
+ */
+@SuppressWarnings("nls")
+public class ModelExporterTests {
+
+    private ArchimateModelProxy modelProxy;
+    private File file;
+
+    @Before
+    public void runOnceBeforeEachTest() throws IOException {
+        modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        file = File.createTempFile("~temp", ".csv");
+        file.deleteOnExit();
+    }
+
+    @Test
+    public void exportJSON() throws IOException {
+        int count = new Model().exportJSON(modelProxy, "element", file.getAbsolutePath(), null);
+        assertEquals(modelProxy.find("element").size(), count);
+
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[\n{\"id\":"));
+        assertTrue(json.endsWith("}\n]"));
+    }
+
+    @Test
+    public void exportJSON_Empty() throws IOException {
+        assertEquals(0, new Model().exportJSON(modelProxy, "#garbage", file.getAbsolutePath(), null));
+        assertEquals("[]", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void exportCSV_Collection() throws IOException {
+        EObjectProxyCollection actors = modelProxy.find("business-actor");
+        actors.first().prop("Note", "a, \"quoted\"\nvalue");
+
+        int count = new Model().exportCSV(modelProxy, actors, file.getAbsolutePath(), Arrays.asList("id", "name", "prop.Note"));
+        assertEquals(actors.size(), count);
+
+        try(CSVReader reader = new CSVReader(Files.newBufferedReader(file.toPath()), ',')) {
+            assertEquals(Arrays.asList("id", "name", "prop.Note"), reader.readRecord());
+
+            List<String> record = reader.readRecord();
+            assertEquals(actors.first().getId(), record.get(0));
+            assertEquals(actors.first().getName(), record.get(1));
+            assertEquals("a, \"quoted\"\nvalue", record.get(2));
+        }
+    }
+
+    @Test(expected = ArchiScriptException.class)
+    public void export_UnknownField() throws IOException {
+        new Model().exportCSV(modelProxy, "element", file.getAbsolutePath(), Arrays.asList("id", "garbage"));
+    }
+
+    @Test
+    public void writeJSONString() throws IOException {
+        StringWriter writer = new StringWriter();
+        ModelExporter.writeJSONString(writer, "a\"b\\c\nd\u0001");
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", writer.toString());
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.script.ArchiScriptException;
+
+
+/**
+ * ModelSnapshot Tests
+ */
+@SuppressWarnings("nls")
+public class ModelSnapshotTests {
+    
+    private ArchimateModelProxy modelProxy;
+    private ModelSnapshot snapshot;
+    
+    @Before
+    public void runOnceBeforeEachTest() {
+        modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        snapshot = modelProxy.snapshot();
+    }
+    
+    @Test
+    public void size() {
+        assertEquals(modelProxy.find("concept").size() + modelProxy.find("view").size(), snapshot.size());
+    }
+    
+    @Test
+    public void find_Types() {
+        assertEquals(120, snapshot.find("element").size());
+        assertEquals(178, snapshot.find("relationship").size());
+        assertEquals(298, snapshot.find("concept").size());
+        assertEquals(17, snapshot.find("view").size());
+        assertEquals(5, snapshot.find("business-role").size());
+        assertEquals(0, snapshot.find("garbage").size());
+    }
+    
+    @Test
+    public void get_MatchesModel() {
+        for(EObjectProxy proxy : modelProxy.find("concept")) {
+            SnapshotObject object = snapshot.get(proxy.getId());
+            assertNotNull(object);
+            assertEquals(proxy.getName(), object.getName());
+            assertEquals(proxy.getType(), object.getType());
+        }
+        
+        assertNull(snapshot.get("garbage"));
+    }
+    
+    @Test
+    public void relationships_MatchModel() {
+        for(EObjectProxy proxy : modelProxy.find("relationship")) {
+            ArchimateRelationshipProxy relationship = (ArchimateRelationshipProxy)proxy;
+            SnapshotObject object = snapshot.get(relationship.getId());
+            assertEquals(relationship.getSource().getId(), object.getSource().getId());
+            assertEquals(relationship.getTarget().getId(), object.getTarget().getId());
+            assertTrue(object.getSource().outRels().ids().contains(relationship.getId()));
+            assertTrue(object.getTarget().inRels().ids().contains(relationship.getId()));
+        }
+    }
+    
+    @Test
+    public void countByType() {
+        Map<String, Object> counts = snapshot.find("concept").countByType();
+        assertEquals(5L, counts.get("business-role"));
+        assertEquals(298L, counts.values().stream().mapToLong(v -> (Long)v).sum());
+    }
+    
+    @Test
+    public void reachable() {
+        SnapshotQuery start = snapshot.find("business-actor");
+        SnapshotQuery reachable = start.reachable();
+        
+        // Everything one step away is reachable
+        for(String id : start.outRels().targetEnds().ids()) {
+            assertTrue(reachable.ids().contains(id));
+        }
+    }
+    
+    @Test
+    public void filter() {
+        SnapshotQuery query = snapshot.find("element").filter(object -> object.getName().startsWith("C"));
+        assertEquals(snapshot.find("element").nameMatches("^C").size(), query.size());
+    }
+    
+    @Test
+    public void find_Selectors() {
+        SnapshotObject object = snapshot.find("business-actor").first();
+        
+        assertEquals(snapshot.size(), snapshot.find("*").size());
+        assertEquals(1, snapshot.find("#" + object.getId()).size());
+        assertEquals(modelProxy.find("." + object.getName()).size(), snapshot.find("." + object.getName()).size());
+        assertEquals(1, snapshot.find("business-actor." + object.getName()).size());
+        assertEquals(0, snapshot.find("").size());
+        assertEquals(0, snapshot.find("business-role").filter("#" + object.getId()).size());
+    }
+    
+    @Test
+    public void not_And_Add() {
+        SnapshotQuery elements = snapshot.find("element");
+        assertEquals(115, elements.not("business-role").size());
+        assertEquals(120, elements.not("business-role").add("business-role").size());
+        assertTrue(elements.is("business-role"));
+        assertFalse(elements.is("view"));
+    }
+    
+    @Test
+    public void ends() {
+        SnapshotQuery relationships = snapshot.find("relationship");
+        assertEquals(modelProxy.find("relationship").ends().size(), relationships.ends().size());
+        assertEquals(modelProxy.find("relationship").sourceEnds().size(), relationships.sourceEnds().size());
+        assertEquals(modelProxy.find("relationship").targetEnds().size(), relationships.targetEnds().size());
+    }
+    
+    @Test
+    public void save_And_Open() throws IOException {
+        File file = File.createTempFile("~temp", ".snapshot");
+        file.deleteOnExit();
+        
+        snapshot.save(file.getAbsolutePath());
+        MappedModelSnapshot mapped = new Model().openSnapshot(file.getAbsolutePath());
+        
+        assertEquals(snapshot.size(), mapped.size());
+        assertEquals(snapshot.find("concept").countByType(), mapped.find("concept").countByType());
+        
+        for(SnapshotObject object : snapshot.all().toArray()) {
+            SnapshotObject other = mapped.get(object.getId());
+            assertNotNull(other);
+            assertEquals(object.getName(), other.getName());
+            assertEquals(object.getType(), other.getType());
+            assertEquals(object.prop(), other.prop());
+            assertEquals(object.outRels().ids(), other.outRels().ids());
+            assertEquals(object.inRels().ids(), other.inRels().ids());
+        }
+        
+        assertNull(mapped.get("garbage"));
+        
+        mapped.close();
+    }
+    
+    @Test
+    public void close() throws IOException {
+        File file = File.createTempFile("~temp", ".snapshot");
+        file.deleteOnExit();
+        
+        snapshot.save(file.getAbsolutePath());
+        MappedModelSnapshot mapped = new Model().openSnapshot(file.getAbsolutePath());
+        String id = snapshot.all().toArray()[0].getId();
+        assertNotNull(mapped.get(id));
+        
+        mapped.close();
+        assertTrue(mapped.isClosed());
+        
+        assertThrows(ArchiScriptException.class, () -> {
+            mapped.get(id);
+        });
+        
+        // Can be closed again
+        mapped.close();
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void open_NotASnapshot() throws IOException {
+        File file = File.createTempFile("~temp", ".snapshot");
+        file.deleteOnExit();
+        new Model().openSnapshot(file.getAbsolutePath());
+    }
+}
@@ -12,6 +12,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.gef.commands.CommandStack;
 import org.junit.BeforeClass;
@@ -82,4 +83,33 @@ public class ModelTests {
     public void isAllowedRelationship_Exception() {
         model.isAllowedRelationship("bogus", "business-actor", "business-role");
     }
+
+    @Test
+    public void isAllowedRelationships() {
+        ArchimateModelProxy modelProxy = TestsHelper.createTestModel();
+        ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor");
+        
+        List<Boolean> result = model.isAllowedRelationships(List.of(
+                Map.of("type", "influence-relationship", "source", "business-actor", "target", "business-role"),
+                Map.of("type", "association-relationship", "source", actor, "target", "business-role"),
+                Map.of("type", "bogus", "source", "business-actor", "target", "business-role")));
+        
+        assertEquals(List.of(false, true, false), result);
+    }
+    
+    @Test
+    public void getAllowedRelationships() {
+        List<String> types = model.getAllowedRelationships("business-actor", "business-role");
+        assertTrue(types.contains("assignment-relationship"));
+        assertFalse(types.contains("influence-relationship"));
+        assertTrue(model.getAllowedRelationships("bogus", "business-role").isEmpty());
+    }
+    
+    @Test
+    public void getTypes() {
+        assertTrue(model.getElementTypes().contains("business-actor"));
+        assertFalse(model.getElementTypes().contains("assignment-relationship"));
+        assertTrue(model.getRelationshipTypes().contains("assignment-relationship"));
+        assertEquals(11, model.getRelationshipTypes().size());
+    }
 }
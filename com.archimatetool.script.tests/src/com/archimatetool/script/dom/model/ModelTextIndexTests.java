@@ -0,0 +1,99 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IBusinessActor;
+import com.archimatetool.model.IProperty;
+
+
+/**
+ * ModelTextIndex Tests
+ */
+@SuppressWarnings("nls")
+public class ModelTextIndexTests {
+    
+    private IArchimateModel model;
+    private IBusinessActor actor;
+    
+    @Before
+    public void runOnceBeforeEachTest() {
+        model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        
+        actor = IArchimateFactory.eINSTANCE.createBusinessActor();
+        actor.setName("Claims Handler");
+        actor.setDocumentation("Handles insurance claims for the customer.");
+        model.getDefaultFolderForObject(actor).getElements().add(actor);
+        
+        IBusinessActor other = IArchimateFactory.eINSTANCE.createBusinessActor();
+        other.setName("Customer");
+        model.getDefaultFolderForObject(other).getElements().add(other);
+    }
+    
+    @Test
+    public void tokenize() {
+        assertEquals(List.of("claims", "handler", "v1", "2"), ModelTextIndex.tokenize("Claims-Handler v1.2"));
+        assertTrue(ModelTextIndex.tokenize(null).isEmpty());
+    }
+    
+    @Test
+    public void parse() {
+        List<List<String>> clauses = ModelTextIndex.parse("claim* \"the Customer\" handler");
+        assertEquals(List.of(List.of("claim*"), List.of("the", "customer"), List.of("handler")), clauses);
+    }
+    
+    @Test
+    public void search() {
+        ModelTextIndex index = ModelTextIndex.get(model);
+        
+        assertEquals(List.of(actor), index.search("HANDLER"));
+        assertEquals(2, index.search("customer").size());
+        assertEquals(List.of(actor), index.search("customer insur*"));
+        assertEquals(List.of(actor), index.search("\"the customer\""));
+        assertTrue(index.search("\"customer the\"").isEmpty());
+        assertTrue(index.search("").isEmpty());
+    }
+    
+    @Test
+    public void search_UpdatedWithModel() {
+        ModelTextIndex index = ModelTextIndex.get(model);
+        
+        actor.setName("Clerk");
+        assertTrue(index.search("handler").isEmpty());
+        assertEquals(List.of(actor), index.search("clerk"));
+        
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("Region");
+        property.setValue("North");
+        actor.getProperties().add(property);
+        assertEquals(List.of(actor), index.search("north"));
+        property.setValue("South");
+        assertEquals(List.of(actor), index.search("south"));
+        assertTrue(index.search("north").isEmpty());
+        
+        actor.getArchimateModel().getDefaultFolderForObject(actor).getElements().remove(actor);
+        assertTrue(index.search("clerk").isEmpty());
+    }
+    
+    @Test
+    public void searchAndSelector() {
+        ArchimateModelProxy proxy = (ArchimateModelProxy)EObjectProxy.get(model);
+        assertEquals(1, proxy.search("claims").size());
+        assertEquals(1, proxy.find("~\"claims handler\"").size());
+        assertEquals(2, proxy.find("~customer").size());
+        assertEquals(1, proxy.find("business-actor").filter("~claims").size());
+    }
+}
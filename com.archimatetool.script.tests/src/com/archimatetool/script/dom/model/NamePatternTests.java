@@ -0,0 +1,69 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+/**
+ * NamePattern Tests
+ */
+@SuppressWarnings("nls")
+public class NamePatternTests {
+    
+    @Test
+    public void isRegex() {
+        assertTrue(NamePattern.isRegex("/cust/"));
+        assertTrue(NamePattern.isRegex("/cust/i"));
+        assertFalse(NamePattern.isRegex("Cust*"));
+        assertFalse(NamePattern.isRegex("Customer"));
+        assertFalse(NamePattern.isRegex("/"));
+    }
+    
+    @Test
+    public void compile_IsCached() {
+        assertSame(NamePattern.compile("Cust*"), NamePattern.compile("Cust*"));
+    }
+    
+    @Test
+    public void getTrigrams_Glob() {
+        assertEquals(Set.of("cus", "ust", "mer"), NamePattern.compile("Cust*mer").getTrigrams());
+        assertTrue(NamePattern.compile("C*r").getTrigrams().isEmpty());
+    }
+    
+    @Test
+    public void getRegexLiterals() {
+        assertEquals(List.of("Cust", "mer"), NamePattern.getRegexLiterals("^Cust.*mer$"));
+        assertEquals(List.of("Custome"), NamePattern.getRegexLiterals("Customer?"));
+        assertEquals(List.of("Cus", "mer"), NamePattern.getRegexLiterals("Cus(to)?mer"));
+        assertEquals(List.of("a.b"), NamePattern.getRegexLiterals("a\\.b"));
+        assertEquals(List.of("ab"), NamePattern.getRegexLiterals("ab+c*"));
+        assertTrue(NamePattern.getRegexLiterals("foo|bar").isEmpty());
+        assertEquals(List.of("x"), NamePattern.getRegexLiterals("(foo|bar)x"));
+    }
+    
+    @Test
+    public void getRegexLiterals_SkipsWholeEscape() {
+        assertEquals(List.of("BC"), NamePattern.getRegexLiterals("\\x41BC"));
+        assertEquals(List.of("BC"), NamePattern.getRegexLiterals("\\x{41}BC"));
+        assertEquals(List.of("BCD"), NamePattern.getRegexLiterals("\\u0041BCD"));
+        assertEquals(List.of("BCD"), NamePattern.getRegexLiterals("\\0101BCD"));
+        assertEquals(List.of("BCD"), NamePattern.getRegexLiterals("\\p{Lu}BCD"));
+        assertEquals(List.of("xyz"), NamePattern.getRegexLiterals("\\Qa.b\\Exyz"));
+        
+        // The pattern still finds names that the escape is part of
+        assertTrue(NamePattern.compile("/\\x41BC/").matches("ABC"));
+        assertTrue(NamePattern.compile("/\\x41BC/").getTrigrams().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * QueryCache Tests
+ */
+@SuppressWarnings("nls")
+public class QueryCacheTests {
+    
+    private ArchimateModelProxy modelProxy;
+    
+    @Before
+    public void runOnceBeforeEachTest() {
+        QueryCache.INSTANCE.clear();
+        modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+    }
+    
+    @Test
+    public void put_Get() {
+        assertNull(QueryCache.INSTANCE.get(modelProxy, "key"));
+        
+        QueryCache.INSTANCE.put(modelProxy, "key", "value");
+        assertEquals("value", QueryCache.INSTANCE.get(modelProxy, "key").getValue());
+        
+        QueryCache.INSTANCE.putJSON(modelProxy, "json", "{}");
+        assertTrue(QueryCache.INSTANCE.get(modelProxy, "json").isJSON());
+    }
+    
+    @Test
+    public void get_StaleAfterModelChange() {
+        QueryCache.INSTANCE.put(modelProxy, "key", "value");
+        assertNotNull(QueryCache.INSTANCE.get(modelProxy, "key"));
+        
+        modelProxy.getEObject().setName("Changed");
+        assertNull(QueryCache.INSTANCE.get(modelProxy, "key"));
+    }
+    
+    @Test
+    public void get_KeyedOnModel() {
+        ArchimateModelProxy otherProxy = TestsHelper.createTestModel();
+        QueryCache.INSTANCE.put(modelProxy, "key", "value");
+        assertNull(QueryCache.INSTANCE.get(otherProxy, "key"));
+    }
+    
+    @Test
+    public void find_IsCached() {
+        EObjectProxyCollection first = modelProxy.find("business-actor");
+        assertEquals(1, QueryCache.INSTANCE.size());
+        
+        EObjectProxyCollection second = modelProxy.find("business-actor");
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        
+        // Changing a result does not change the cache
+        second.clear();
+        assertEquals(first, modelProxy.find("business-actor"));
+    }
+    
+    @Test
+    public void find_ReturnsNewCollectionEachTime() {
+        modelProxy.find("business-actor");
+        
+        EObjectProxyCollection first = modelProxy.find("business-actor");
+        EObjectProxyCollection second = modelProxy.find("business-actor");
+        assertNotSame(first, second);
+        assertEquals(first, second);
+    }
+    
+    @Test
+    public void find_RecomputedAfterModelChange() {
+        int count = modelProxy.find("business-actor").size();
+        modelProxy.createElement("business-actor", "New Actor");
+        assertEquals(count + 1, modelProxy.find("business-actor").size());
+    }
+    
+    @Test
+    public void put_EvictsLeastRecentlyUsed() {
+        for(int i = 0; i < QueryCache.MAX_ENTRIES + 10; i++) {
+            QueryCache.INSTANCE.put(modelProxy, "key" + i, i);
+        }
+        
+        assertEquals(QueryCache.MAX_ENTRIES, QueryCache.INSTANCE.size());
+        assertNull(QueryCache.INSTANCE.get(modelProxy, "key0"));
+        assertNotNull(QueryCache.INSTANCE.get(modelProxy, "key" + (QueryCache.MAX_ENTRIES + 9)));
+    }
+}
@@ -5,6 +5,7 @@
  */
 package com.archimatetool.script.dom.model;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -181,6 +182,73 @@ public class SelectorFilterFactoryTests {
         assertFalse(filter.accept(concept));
     }
     
+    @Test
+    public void accept_NameGlob() {
+        IArchimateConcept concept = IArchimateFactory.eINSTANCE.createBusinessRole();
+        concept.setName("Customer Role");
+        
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter(".name*=Cust*").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter(".name*=*Role").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter(".name*=Customer?Role").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter(".name*=cust*").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter(".name*=Role*").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter("business-role.name*=Cust*").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter("business-actor.name*=Cust*").accept(concept));
+        
+        // A name containing a wildcard still matches itself
+        concept.setName("What?");
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter(".name*=What?").accept(concept));
+    }
+    
+    @Test
+    public void accept_NameIsExact() {
+        IArchimateConcept concept = IArchimateFactory.eINSTANCE.createBusinessRole();
+        concept.setName("Customer Role");
+        
+        // Wildcards and slashes in a plain name selector are part of the name
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter(".Cust*").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter("./tomer/").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter("business-role.Customer?Role").accept(concept));
+        
+        concept.setName("/x/");
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter("./x/").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter(".name*=/y/").accept(concept));
+        
+        concept.setName("What*");
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter(".What*").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter("business-role.What*").accept(concept));
+    }
+    
+    @Test
+    public void accept_NameRegex() {
+        IArchimateConcept concept = IArchimateFactory.eINSTANCE.createBusinessRole();
+        concept.setName("Customer Role");
+        
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter("/tomer/").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter("/^Cust.*e$/").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter("/CUSTOMER/i").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter("/CUSTOMER/").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter(".name*=/tomer/").accept(concept));
+        assertTrue(SelectorFilterFactory.INSTANCE.getFilter("business-role.name*=/r R/").accept(concept));
+        assertFalse(SelectorFilterFactory.INSTANCE.getFilter("business-actor.name*=/r R/").accept(concept));
+    }
+    
+    @Test
+    public void accept_NamePattern_InModel() {
+        ArchimateModelProxy modelProxy = TestsHelper.createTestModel();
+        modelProxy.createElement("business-actor", "Customer");
+        modelProxy.createElement("business-actor", "Clerk");
+        
+        assertEquals(1, modelProxy.find(".name*=Cust*").size());
+        assertEquals(2, modelProxy.find("/^C/").size());
+        assertEquals(1, modelProxy.find("business-actor.name*=/er$/").size());
+        assertEquals(1, modelProxy.find("/\\x43lerk/").size());
+        
+        // The name index is kept up to date
+        ((ArchimateElementProxy)modelProxy.find(".Clerk").first()).setName("Customer Clerk");
+        assertEquals(2, modelProxy.find(".name*=Cust*").size());
+    }
+    
     @Test
     public void accept_TypeName() {
         IArchimateConcept concept = IArchimateFactory.eINSTANCE.createBusinessRole();
@@ -0,0 +1,77 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.emf.ecore.EClass;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.util.ArchimateModelUtils;
+
+
+/**
+ * TypeRegistry Tests
+ */
+@SuppressWarnings("nls")
+public class TypeRegistryTests {
+    
+    private TypeRegistry registry = TypeRegistry.INSTANCE;
+    
+    @Test
+    public void getClassName() {
+        assertEquals("BusinessActor", registry.getClassName("business-actor"));
+        assertEquals("BusinessActor", registry.getClassName("BusinessActor"));
+        assertEquals("BusinessActor", registry.getClassName("Business-Actor"));
+        assertNull(registry.getClassName(null));
+    }
+    
+    @Test
+    public void getTypeName() {
+        assertEquals("business-actor", registry.getTypeName(IArchimatePackage.eINSTANCE.getBusinessActor()));
+        assertEquals("archimate-diagram-model", registry.getTypeName("ArchimateDiagramModel"));
+    }
+    
+    @Test
+    public void getEClass() {
+        assertEquals(IArchimatePackage.eINSTANCE.getBusinessActor(), registry.getEClass("business-actor"));
+        assertNull(registry.getEClass("bogus"));
+    }
+    
+    @Test
+    public void isElementType_IsRelationshipType() {
+        assertTrue(registry.isElementType("business-actor"));
+        assertTrue(registry.isElementType("junction"));
+        assertFalse(registry.isElementType("assignment-relationship"));
+        assertTrue(registry.isRelationshipType("assignment-relationship"));
+        assertFalse(registry.isRelationshipType("business-actor"));
+        assertFalse(registry.isRelationshipType("bogus"));
+    }
+    
+    @Test
+    public void isValidRelationship_SameAsArchimateModelUtils() {
+        for(EClass source : registry.getElementClasses()) {
+            for(EClass target : registry.getElementClasses()) {
+                for(EClass relationship : registry.getRelationshipClasses()) {
+                    assertEquals(ArchimateModelUtils.isValidRelationship(source, target, relationship),
+                            registry.isValidRelationship(source, target, relationship));
+                }
+                assertEquals(registry.getValidRelationships(source, target).size(),
+                        registry.getRelationshipClasses().stream().filter(r -> registry.isValidRelationship(source, target, r)).count());
+            }
+        }
+    }
+    
+    @Test
+    public void isValidRelationship_NotAConcept() {
+        assertFalse(registry.isValidRelationship(IArchimatePackage.eINSTANCE.getFolder(), IArchimatePackage.eINSTANCE.getBusinessActor(),
+                IArchimatePackage.eINSTANCE.getAssociationRelationship()));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.swt.graphics.Color;
+import org.junit.Test;
+
+import com.archimatetool.script.views.console.ConsoleBuffer.Segment;
+
+
+/**
+ * ConsoleBuffer Tests
+ */
+@SuppressWarnings("nls")
+public class ConsoleBufferTests {
+    
+    @Test
+    public void append_MergesSameColor() {
+        ConsoleBuffer buffer = new ConsoleBuffer(100);
+        Color red = new Color(255, 0, 0);
+        
+        buffer.append("a", null);
+        buffer.append("b", null);
+        buffer.append("c", red);
+        buffer.append("d", new Color(255, 0, 0));
+        buffer.append("e", null);
+        
+        List<Segment> segments = buffer.drain();
+        assertEquals(3, segments.size());
+        
+        assertNull(segments.get(0).color);
+        assertEquals("ab", segments.get(0).text.toString());
+        assertEquals(red, segments.get(1).color);
+        assertEquals("cd", segments.get(1).text.toString());
+        assertEquals("e", segments.get(2).text.toString());
+        
+        assertEquals(0, buffer.length());
+        assertTrue(buffer.drain().isEmpty());
+    }
+    
+    @Test
+    public void append_DropsOldestTextWhenFull() {
+        ConsoleBuffer buffer = new ConsoleBuffer(5);
+        
+        buffer.append("abc", null);
+        assertFalse(buffer.isTruncated());
+        
+        buffer.append("def", new Color(0, 0, 255));
+        buffer.append("g", new Color(0, 0, 255));
+        assertTrue(buffer.isTruncated());
+        assertEquals(5, buffer.length());
+        
+        List<Segment> segments = buffer.drain();
+        assertEquals(2, segments.size());
+        assertEquals("c", segments.get(0).text.toString());
+        assertEquals("defg", segments.get(1).text.toString());
+        
+        assertFalse(buffer.isTruncated());
+    }
+    
+    @Test
+    public void append_DropsWholeSegments() {
+        ConsoleBuffer buffer = new ConsoleBuffer(3);
+        
+        buffer.append("ab", null);
+        buffer.append("cdef", new Color(0, 0, 255));
+        
+        List<Segment> segments = buffer.drain();
+        assertEquals(1, segments.size());
+        assertEquals("def", segments.get(0).text.toString());
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.utils.FileUtils;
+
+
+/**
+ * ConsoleFileSink Tests
+ */
+@SuppressWarnings("nls")
+public class ConsoleFileSinkTests {
+    
+    private File tmpFolder;
+    private File file;
+    
+    @Before
+    public void runBeforeEachTest() throws IOException {
+        tmpFolder = Files.createTempDirectory("~sink").toFile();
+        file = new File(tmpFolder, "console.log");
+    }
+    
+    @After
+    public void runAfterEachTest() throws IOException {
+        FileUtils.deleteFolder(tmpFolder);
+    }
+    
+    @Test
+    public void write_Text() throws IOException {
+        ConsoleFileSink sink = new ConsoleFileSink(file, 0, 0, false, true);
+        sink.write("Hello ");
+        sink.write("été\n");
+        sink.close();
+        
+        assertEquals("Hello été\n", read(file));
+    }
+    
+    @Test
+    public void write_Append() throws IOException {
+        Files.write(file.toPath(), "old\n".getBytes(StandardCharsets.UTF_8));
+        
+        ConsoleFileSink sink = new ConsoleFileSink(file, 0, 0, true, false);
+        sink.write("new\n");
+        sink.close();
+        
+        assertEquals("old\nnew\n", read(file));
+        assertFalse(sink.isTee());
+    }
+    
+    @Test
+    public void write_Rotates() throws IOException {
+        ConsoleFileSink sink = new ConsoleFileSink(file, 10, 2, false, true);
+        sink.write("aaaaaaaa\n");
+        sink.write("bbbbbbbb\n");
+        sink.write("cccccccc\n");
+        sink.write("dddddddd\n");
+        sink.close();
+        
+        assertEquals("dddddddd\n", read(file));
+        assertEquals("cccccccc\n", read(new File(tmpFolder, "console.log.1")));
+        assertEquals("bbbbbbbb\n", read(new File(tmpFolder, "console.log.2")));
+        assertFalse(new File(tmpFolder, "console.log.3").exists());
+    }
+    
+    @Test
+    public void write_AfterCloseIsIgnored() throws IOException {
+        ConsoleFileSink sink = new ConsoleFileSink(file, 0, 0, false, true);
+        sink.close();
+        sink.write("ignored");
+        sink.close();
+        
+        assertTrue(file.exists());
+        assertEquals("", read(file));
+    }
+    
+    private String read(File f) throws IOException {
+        return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,23 @@
+// DOM objects declared as lazy are created the first time they are accessed
+(function(global, dom) {
+	var names = dom.getLazyVariableNames();
+	for (var i = 0; i < names.length; i++) {
+		(function(name) {
+			Object.defineProperty(global, name, {
+				configurable: true,
+				enumerable: true,
+				get: function() {
+					var value = dom.get(name);
+					Object.defineProperty(global, name, { value: value, writable: true, configurable: true, enumerable: true });
+					return value;
+				}
+			});
+		})(String(names[i]));
+	}
+})(this, __DOM__);
+
 function jArchi (obj) {
-	if (obj == selection) // obj is an object
+	if (__DOM__.isCreated("selection") && obj == selection) // obj is an object
 		return obj;
 	else // obj is an object, a string or will be casted to a (potentially empty) string
 		return model.find(obj || "");
@@ -9,9 +27,48 @@ jArchi.model = jArchiModel;
 
 jArchi.fs = jArchiFS;
 
+// Return the cached result of fn for key, or call fn and cache its result until the model changes.
+// Results are kept across script runs. Script objects are stored as JSON, so they must be JSON serializable.
+jArchi.memo = function(key, fn, memoModel) {
+	var target = memoModel || model;
+	var entry = jArchiMemo.get(target, key);
+	if (entry != null)
+		return entry.isJSON() ? JSON.parse(entry.getValue()) : entry.getValue();
+
+	var value = fn();
+	if (value != null && typeof value === "object" && !Java.isJavaObject(value))
+		jArchiMemo.putJSON(target, key, JSON.stringify(value));
+	else
+		jArchiMemo.put(target, key, value);
+	return value;
+};
+
+jArchi.memo.clear = function() {
+	jArchiMemo.clear();
+};
+
+// Import elements, relationships or properties from a CSV or TSV file into a model (default is the current model) as one Undo step.
+// A relative path is resolved against the folder of the script.
+jArchi["import"] = {
+	csv: function(path, options, importModel) {
+		return jArchiModel.importCSV(importModel || model, path, options || {});
+	}
+};
+
+// Export objects matching a selector, or a collection, to a JSON or CSV file without building script objects.
+// fields is an array of field names such as "id", "name", "type", "properties" or "prop.key".
+jArchi["export"] = {
+	json: function(path, selector, fields, exportModel) {
+		return jArchiModel.exportJSON(exportModel || model, selector || null, path, fields || null);
+	},
+	csv: function(path, selector, fields, exportModel) {
+		return jArchiModel.exportCSV(exportModel || model, selector || null, path, fields || null);
+	}
+};
+
 jArchi.process = {
 	engine: Java.type("java.lang.System").getProperty("script.engine"),
-	argv: Java.type("org.eclipse.core.runtime.Platform").getApplicationArgs(),
+	argv: typeof __ARGV__ !== "undefined" ? __ARGV__ : Java.type("org.eclipse.core.runtime.Platform").getApplicationArgs(),
 	platform: Java.type("org.eclipse.core.runtime.Platform").getOS(),
 	release: {
 		archiName: Java.type("org.eclipse.core.runtime.Platform").getBundle("com.archimatetool.editor").getHeaders().get("Bundle-Name"),
@@ -38,6 +38,12 @@ public class ArchiScriptPlugin extends AbstractUIPlugin {
         
         INSTANCE = this;
     }
+    
+    @Override
+    public void stop(BundleContext context) throws Exception {
+        ScriptsCatalog.INSTANCE.dispose();
+        super.stop(context);
+    }
 
     /**
      * @return The folder where we store user scripts
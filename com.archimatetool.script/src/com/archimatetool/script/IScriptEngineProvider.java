@@ -84,6 +84,8 @@ public interface IScriptEngineProvider {
     
     /**
      * Instance methods to access installed Providers
+     * 
+     * Providers are registered as lazy descriptors so that a provider's bundle is only activated when a script of its type is run
      */
     static class INSTANCE {
         private static Map<String, IScriptEngineProvider> idMap = new HashMap<>();
@@ -94,7 +96,7 @@ public interface IScriptEngineProvider {
             for(IExtension extension : point.getExtensions()) {
                 for(IConfigurationElement element : extension.getConfigurationElements()) {
                     try { 
-                        IScriptEngineProvider provider = (IScriptEngineProvider)element.createExecutableExtension("class"); //$NON-NLS-1$
+                        IScriptEngineProvider provider = new ScriptEngineProviderDescriptor(element);
                         idMap.put(provider.getID(), provider);
                         Arrays.stream(provider.getSupportedFileExtensions()).forEach(ext -> extMap.put(ext, provider));
                     }
@@ -120,6 +122,13 @@ public interface IScriptEngineProvider {
                 }
             }
             
+            return getProviderForFileExtension(file);
+        }
+        
+        /**
+         * @return The provider for the file's extension without resolving link files
+         */
+        public static IScriptEngineProvider getProviderForFileExtension(File file) {
             String ext = FileUtils.getFileExtension(file).toLowerCase();
             return extMap.get(ext);
         }
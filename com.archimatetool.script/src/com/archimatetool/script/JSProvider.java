@@ -14,6 +14,7 @@ import java.net.URL;
 import javax.script.Bindings;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
@@ -34,6 +35,10 @@ public class JSProvider implements IScriptEngineProvider {
     
     public static String ID = "com.archimatetool.script.provider.js";
     
+    // Engines created by the same GraalJS factory share one polyglot Engine, and so share its cache of parsed and compiled sources.
+    // Each ScriptEngine still has its own Context so scripts don't see each other's globals.
+    private static ScriptEngineFactory graalFactory;
+    
     public static boolean isNashornInstalled() {
         return getNashornScriptEngineFactoryClass() != null;
     }
@@ -135,7 +140,8 @@ public class JSProvider implements IScriptEngineProvider {
         // Need this for GraalVM 22.2
         System.getProperties().put("polyglot.js.ecmascript-version", "2022");
 
-        ScriptEngine engine = new ScriptEngineManager().getEngineByName("graal.js");
+        ScriptEngineFactory factory = getGraalScriptEngineFactory();
+        ScriptEngine engine = factory != null ? factory.getScriptEngine() : null;
         
         // See https://www.graalvm.org/reference-manual/js/ScriptEngine/
 //        Bindings bindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
@@ -151,6 +157,19 @@ public class JSProvider implements IScriptEngineProvider {
         return engine;
     }
     
+    private static synchronized ScriptEngineFactory getGraalScriptEngineFactory() {
+        if(graalFactory == null) {
+            for(ScriptEngineFactory factory : new ScriptEngineManager().getEngineFactories()) {
+                if(factory.getNames().contains("graal.js")) {
+                    graalFactory = factory;
+                    break;
+                }
+            }
+        }
+        
+        return graalFactory;
+    }
+    
     /**
      * Set/Remove some JS global bindings
      */
@@ -14,8 +14,6 @@ public class RefreshUIHandler {
     // Refresh UI at set interval
     private static final int refreshInterval = 100;
 
-    private static long time = 0L;
-
     public static void init() {
         if(!shouldRun()) {
             return;
@@ -25,7 +23,7 @@ public class RefreshUIHandler {
         setShellEnabled(false);
 
         // Current time
-        time = System.currentTimeMillis();
+        ScriptRunContext.current().setRefreshTime(System.currentTimeMillis());
     }
     
     public static void refresh() {
@@ -33,8 +31,14 @@ public class RefreshUIHandler {
             return;
         }
         
+        // Not running a script
+        ScriptRunContext context = ScriptRunContext.find();
+        if(context == null) {
+            return;
+        }
+        
         // Not enough refresh interval time has passed
-        if(System.currentTimeMillis() - time < refreshInterval) {
+        if(System.currentTimeMillis() - context.getRefreshTime() < refreshInterval) {
             return;
         }
         
@@ -49,7 +53,7 @@ public class RefreshUIHandler {
             ex.printStackTrace();
         }
         finally {
-            time = System.currentTimeMillis();
+            context.setRefreshTime(System.currentTimeMillis());
         }
     }
     
@@ -6,9 +6,8 @@
 package com.archimatetool.script;
 
 import java.io.File;
-import java.util.Map.Entry;
+import java.io.PrintStream;
 
-import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
@@ -17,9 +16,10 @@ import org.eclipse.ui.PlatformUI;
 import org.graalvm.polyglot.PolyglotException;
 
 import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.script.commands.CommandHandler;
+import com.archimatetool.script.dom.DomBindings;
 import com.archimatetool.script.dom.DomExtensionFactory;
-import com.archimatetool.script.dom.IArchiScriptBinding;
 import com.archimatetool.script.views.console.ConsoleOutput;
 
 
@@ -29,12 +29,52 @@ import com.archimatetool.script.views.console.ConsoleOutput;
 @SuppressWarnings("nls")
 public class RunArchiScript {
 	private File file;
+	private String[] args;
+	private IArchimateModel model;
+	private PrintStream out;
+	private PrintStream err;
+	private ScriptRunContext context;
+	private boolean success;
 
 	public RunArchiScript(File file) {
 		this.file = file;
 	}
 	
+	/**
+	 * @param file The script file
+	 * @param args Arguments passed to the script as $.process.argv instead of the application arguments
+	 */
+	public RunArchiScript(File file, String[] args) {
+	    this.file = file;
+	    this.args = args;
+	}
+	
+	/**
+	 * Set the model that "model" refers to when not running in the UI, instead of the command line model.
+	 * This allows scripts to run on different models at the same time on different threads.
+	 */
+	public void setModel(IArchimateModel model) {
+	    this.model = model;
+	}
+	
+	/**
+	 * Set the streams that the script's console output is written to instead of the Console or standard out and standard err
+	 */
+	public void setOutput(PrintStream out, PrintStream err) {
+	    this.out = out;
+	    this.err = err;
+	}
+	
+	/**
+	 * @return true if the last run completed without an error (calling exit() is not an error)
+	 */
+	public boolean isSuccess() {
+	    return success;
+	}
+	
 	public void run() {
+	    success = true;
+	    
         // Get the provider for this file type
 	    IScriptEngineProvider provider = IScriptEngineProvider.INSTANCE.getProviderForFile(file);
         
@@ -51,15 +91,21 @@ public class RunArchiScript {
 	    // Set the script engine class name in a System Property in case we need to know what the engine is elsewhere
         System.getProperties().put("script.engine", engine.getClass().getName());
         
+        // State of this run, attached to this thread until the run ends
+        context = new ScriptRunContext(FileUtils.getFileNameWithoutExtension(file), model);
+        if(out != null) {
+            context.setOutput(out, err);
+        }
+        context.attach();
+        
         defineGlobalVariables(engine);
-        defineExtensionGlobalVariables(engine);
+        defineExtensionGlobalVariables(engine, provider);
         
         // Start the console *after* the script engine has been created to avoid showing warning messages
+        // The log file, if there is one, is shared with other scripts that are running at the same time
+        ConsoleOutput.startDefaultFileSink();
         ConsoleOutput.start();
 
-        // Initialise CommandHandler
-        CommandHandler.init(FileUtils.getFileNameWithoutExtension(file));
-
         // Initialise RefreshUIHandler
         RefreshUIHandler.init();
 
@@ -67,13 +113,17 @@ public class RunArchiScript {
             if(ScriptFiles.isLinkedFile(file)) {
                 file = ScriptFiles.resolveLinkFile(file);
             }
+            
+            // Relative paths given to file APIs such as $.import.csv() are resolved against the script's folder
+            context.setScriptFile(file);
+            
             provider.run(file, engine);
         }
         catch(Throwable ex) {
             error(ex);
         }
         finally {
-            // End writing to the Console
+            // End writing to the Console and to this run's log file
             ConsoleOutput.end();
             
             // Finalise RefreshUIHandler
@@ -83,11 +133,12 @@ public class RunArchiScript {
             CommandHandler.finalise();
             
             // Dispose any resources that a binding object may be holding onto
-            for(Object binding : engine.getBindings(ScriptContext.ENGINE_SCOPE).values()) {
-                if(binding instanceof IArchiScriptBinding) {
-                    ((IArchiScriptBinding)binding).dispose();
-                }
-            }
+            // Only DOM objects that were actually created are disposed
+            context.getDomBindings().dispose();
+            
+            // End the run so that other threads can't use its context
+            context.finish();
+            context.detach();
         }
 	}
 	
@@ -104,14 +155,35 @@ public class RunArchiScript {
 
         // directory of user scripts folder
         engine.put("__SCRIPTS_DIR__", ArchiScriptPlugin.INSTANCE.getUserScriptsFolder().getAbsolutePath() + File.separator);
+        
+        // Script arguments if not the application arguments
+        if(args != null) {
+            engine.put("__ARGV__", args);
+        }
     }
     
     /**
      * Declared DOM extensions are registered
+     * 
+     * For JS, DOM objects declared as lazy are not created here. init.js installs global accessors for them
+     * via "__DOM__" so that they are only created if the script uses them.
      */
-    private void defineExtensionGlobalVariables(ScriptEngine engine) {
-        for(Entry<String, Object> entry : DomExtensionFactory.getDOMExtensions().entrySet()) {
-            engine.put(entry.getKey(), entry.getValue());
+    private void defineExtensionGlobalVariables(ScriptEngine engine, IScriptEngineProvider provider) {
+        DomBindings domBindings = DomExtensionFactory.createDomBindings();
+        context.setDomBindings(domBindings);
+        engine.put("__DOM__", domBindings);
+        
+        boolean supportsLazy = JSProvider.ID.equals(provider.getID());
+        
+        for(String variableName : domBindings.getVariableNames()) {
+            if(supportsLazy && domBindings.isLazy(variableName)) {
+                continue;
+            }
+            
+            Object domObject = domBindings.get(variableName);
+            if(domObject != null) {
+                engine.put(variableName, domObject);
+            }
         }
     }
 
@@ -122,6 +194,8 @@ public class RunArchiScript {
 	    }
 	    // Other exception
 	    else {
+	        success = false;
+	        
 	        // GraalVM exception
 	        if(ex instanceof ScriptException && ex.getCause() instanceof PolyglotException) {
 	            printStackTrace(ex.getCause(), 5);
@@ -72,14 +72,7 @@ public class RunScriptCommandHandler extends AbstractHandler {
     }
     
     public static String getParameterValueForScriptFile(File scriptFile) {
-        for(String parameterValue : getParameterValues()) {
-            File file = getScriptFileForParameterValue(parameterValue);
-            if(scriptFile.equals(file)) {
-                return parameterValue;
-            }
-        }
-        
-        return null;
+        return ScriptsCatalog.INSTANCE.getKeyBindingParameter(scriptFile);
     }
     
     public static String getAcceleratorText(String parameterValue) {
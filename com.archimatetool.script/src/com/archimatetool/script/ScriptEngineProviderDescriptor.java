@@ -0,0 +1,161 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.osgi.framework.Bundle;
+
+import com.archimatetool.editor.utils.StringUtils;
+
+/**
+ * Lazy proxy for a registered IScriptEngineProvider
+ *
+ * The ID, name, file extensions, icon and template are read from the extension's attributes in plugin.xml
+ * so that the contributing bundle is not activated until a script of its type is actually run.
+ * If a provider does not declare these attributes it is instantiated straight away as before.
+ */
+@SuppressWarnings("nls")
+class ScriptEngineProviderDescriptor implements IScriptEngineProvider {
+
+    private IConfigurationElement element;
+
+    private String id;
+    private String name;
+    private String[] extensions;
+    private String iconPath;
+    private String templatePath;
+
+    private IScriptEngineProvider provider;
+
+    ScriptEngineProviderDescriptor(IConfigurationElement element) throws CoreException {
+        this.element = element;
+
+        id = element.getAttribute("id");
+        name = element.getAttribute("name");
+        iconPath = element.getAttribute("icon");
+        templatePath = element.getAttribute("template");
+
+        String exts = element.getAttribute("extensions");
+        if(StringUtils.isSet(exts)) {
+            extensions = Arrays.stream(exts.split(","))
+                    .map(ext -> ext.trim().toLowerCase())
+                    .filter(ext -> ext.length() > 0)
+                    .map(ext -> ext.startsWith(".") ? ext : "." + ext)
+                    .toArray(String[]::new);
+        }
+
+        // Not enough declared to be lazy so create the provider now
+        if(!StringUtils.isSet(id) || extensions == null || extensions.length == 0) {
+            IScriptEngineProvider delegate = getProvider();
+            id = delegate.getID();
+            extensions = delegate.getSupportedFileExtensions();
+        }
+    }
+
+    /**
+     * @return the underlying provider, creating it (and activating its bundle) if needed
+     */
+    synchronized IScriptEngineProvider getProvider() throws CoreException {
+        if(provider == null) {
+            provider = (IScriptEngineProvider)element.createExecutableExtension("class");
+        }
+        return provider;
+    }
+
+    private IScriptEngineProvider getProviderUnchecked() {
+        try {
+            return getProvider();
+        }
+        catch(CoreException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void run(File file, ScriptEngine engine) throws IOException, ScriptException {
+        getProviderUnchecked().run(file, engine);
+    }
+
+    @Override
+    public String getID() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return StringUtils.isSet(name) ? name : getProviderUnchecked().getName();
+    }
+
+    @Override
+    public ScriptEngine createScriptEngine() {
+        return getProviderUnchecked().createScriptEngine();
+    }
+
+    @Override
+    public String[] getSupportedFileExtensions() {
+        return extensions.clone();
+    }
+
+    @Override
+    public Image getImage() {
+        if(!StringUtils.isSet(iconPath)) {
+            return getProviderUnchecked().getImage();
+        }
+
+        ImageRegistry registry = ArchiScriptPlugin.INSTANCE.getImageRegistry();
+        String key = getBundleName() + "/" + iconPath;
+
+        Image image = registry.get(key);
+        if(image == null) {
+            ImageDescriptor descriptor = getImageDescriptor();
+            if(descriptor != null) {
+                registry.put(key, descriptor);
+                image = registry.get(key);
+            }
+        }
+
+        return image;
+    }
+
+    @Override
+    public ImageDescriptor getImageDescriptor() {
+        if(!StringUtils.isSet(iconPath)) {
+            return getProviderUnchecked().getImageDescriptor();
+        }
+
+        // This does not activate the contributing bundle
+        return AbstractUIPlugin.imageDescriptorFromPlugin(getBundleName(), iconPath);
+    }
+
+    @Override
+    public URL getNewFile() {
+        if(!StringUtils.isSet(templatePath)) {
+            return getProviderUnchecked().getNewFile();
+        }
+
+        // Bundle#getEntry() does not activate the bundle
+        Bundle bundle = Platform.getBundle(getBundleName());
+        return bundle != null ? bundle.getEntry(templatePath) : null;
+    }
+
+    private String getBundleName() {
+        return element.getContributor().getName();
+    }
+}
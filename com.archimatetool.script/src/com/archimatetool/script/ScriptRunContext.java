@@ -0,0 +1,226 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.gef.commands.CommandStack;
+import org.eclipse.gef.commands.CompoundCommand;
+
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.script.dom.DomBindings;
+import com.archimatetool.script.dom.model.CurrentModel;
+import com.archimatetool.script.views.console.ConsoleFileSink;
+
+/**
+ * State of one script run
+ *
+ * RunArchiScript creates a context for each run and attaches it to the thread that runs the script.
+ * CommandHandler, RefreshUIHandler, CurrentModel and ConsoleOutput (and so the DOM proxies that use them) find it with current()
+ * so that scripts can run at the same time on different threads without sharing state.
+ *
+ * A thread that is not running a script (for example a thread started by a script, or an async callback)
+ * uses the context of the script that is running if there is only one. If there is none, or more than one,
+ * there is no context for that thread and current() throws an ArchiScriptException.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ScriptRunContext {
+
+    private static ThreadLocal<ScriptRunContext> current = new ThreadLocal<>();
+
+    // Contexts of the scripts that are running, in the order they started
+    private static Set<ScriptRunContext> running = new LinkedHashSet<>();
+
+    /**
+     * @return The context of the script running on this thread
+     * @throws ArchiScriptException if there is no context for this thread
+     */
+    public static ScriptRunContext current() {
+        ScriptRunContext context = find();
+        if(context == null) {
+            throw new ArchiScriptException(Messages.ScriptRunContext_0);
+        }
+        return context;
+    }
+
+    /**
+     * @return The context of the script running on this thread, or the context of the only script that is running, or null
+     */
+    public static ScriptRunContext find() {
+        ScriptRunContext context = current.get();
+        if(context != null) {
+            return context;
+        }
+
+        synchronized(running) {
+            return running.size() == 1 ? running.iterator().next() : null;
+        }
+    }
+
+    /**
+     * @return path as a file. A relative path is resolved against the folder of the script running on this thread, if there is one.
+     */
+    public static File resolveFile(String path) {
+        File file = new File(path);
+        if(file.isAbsolute()) {
+            return file;
+        }
+
+        ScriptRunContext context = find();
+        if(context != null && context.scriptFile != null && context.scriptFile.getParentFile() != null) {
+            return new File(context.scriptFile.getParentFile(), path);
+        }
+
+        return file;
+    }
+
+    // The name of the script
+    private String name;
+
+    // The script file that is running, or null
+    private File scriptFile;
+
+    // Model that "model" refers to when not running in the UI, or null to use the command line model
+    private IArchimateModel model;
+
+    // Commands executed in this run, per CommandStack
+    private Map<CommandStack, CompoundCommand> compoundCommands = new HashMap<>();
+
+    // Console output of this run. If null ConsoleOutput creates them when the run starts.
+    private PrintStream out;
+    private PrintStream err;
+
+    // File that this run's console output is also (or only) written to, or null
+    private volatile ConsoleFileSink fileSink;
+
+    // The "model" DOM object of this run
+    private CurrentModel currentModel;
+
+    private DomBindings domBindings;
+
+    // Last time the UI was refreshed
+    private long refreshTime;
+
+    /**
+     * @param name The name of the script to display in Undo/Redo command
+     * @param model Model that "model" refers to when not running in the UI, or null to use the command line model
+     */
+    public ScriptRunContext(String name, IArchimateModel model) {
+        this.name = name;
+        this.model = model;
+    }
+
+    /**
+     * Make this the current context of the calling thread and start the run if not already started
+     */
+    public void attach() {
+        current.set(this);
+
+        synchronized(running) {
+            running.add(this);
+        }
+    }
+
+    /**
+     * Remove this context from the calling thread
+     */
+    public void detach() {
+        if(current.get() == this) {
+            current.remove();
+        }
+    }
+
+    /**
+     * End the run. Other threads no longer use this context and the state it holds is released.
+     */
+    public void finish() {
+        synchronized(running) {
+            running.remove(this);
+        }
+
+        compoundCommands.clear();
+        currentModel = null;
+        domBindings = null;
+        model = null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IArchimateModel getModel() {
+        return model;
+    }
+
+    public File getScriptFile() {
+        return scriptFile;
+    }
+
+    public void setScriptFile(File scriptFile) {
+        this.scriptFile = scriptFile;
+    }
+
+    /**
+     * @return Commands executed in this run, per CommandStack
+     */
+    public Map<CommandStack, CompoundCommand> getCompoundCommands() {
+        return compoundCommands;
+    }
+
+    /**
+     * Set the streams that System.out and System.err write to on this run's threads
+     */
+    public void setOutput(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    public PrintStream getErr() {
+        return err;
+    }
+
+    public ConsoleFileSink getFileSink() {
+        return fileSink;
+    }
+
+    public void setFileSink(ConsoleFileSink fileSink) {
+        this.fileSink = fileSink;
+    }
+
+    public CurrentModel getCurrentModel() {
+        return currentModel;
+    }
+
+    public void setCurrentModel(CurrentModel currentModel) {
+        this.currentModel = currentModel;
+    }
+
+    public DomBindings getDomBindings() {
+        return domBindings;
+    }
+
+    public void setDomBindings(DomBindings domBindings) {
+        this.domBindings = domBindings;
+    }
+
+    public long getRefreshTime() {
+        return refreshTime;
+    }
+
+    public void setRefreshTime(long refreshTime) {
+        this.refreshTime = refreshTime;
+    }
+}
@@ -0,0 +1,443 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+
+import com.archimatetool.script.preferences.IPreferenceConstants;
+
+/**
+ * In-memory catalog of the user scripts folder
+ *
+ * Holds the folder tree together with each script's resolved provider, link target and key binding
+ * so that the context menus and the Scripts Manager don't have to go to disk every time they are shown.
+ * A change reported by a WatchService on the scripts folder updates only the entry that was named in the event.
+ * The whole catalog is rebuilt on next access if the scripts folder or key binding preferences change,
+ * the WatchService loses events, or invalidate() is called.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class ScriptsCatalog {
+
+    public static final ScriptsCatalog INSTANCE = new ScriptsCatalog();
+
+    /**
+     * Sort folders first, files second, alphabetical
+     */
+    private static final Comparator<ScriptEntry> ENTRY_COMPARATOR = (e1, e2) -> {
+        if(e1.isDirectory && !e2.isDirectory) {
+            return -1;
+        }
+        if(!e1.isDirectory && e2.isDirectory) {
+            return 1;
+        }
+        return e1.file.getName().compareToIgnoreCase(e2.file.getName());
+    };
+
+    /**
+     * A file or folder in the catalog
+     */
+    public static class ScriptEntry {
+        private File file;
+        private boolean isDirectory;
+        private boolean isHidden;
+        private boolean hasScripts;
+        private IScriptEngineProvider provider;
+        private File linkedFile;
+        private List<ScriptEntry> children = Collections.emptyList();
+
+        private ScriptEntry(File file, boolean isDirectory) {
+            this.file = file;
+            this.isDirectory = isDirectory;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public boolean isDirectory() {
+            return isDirectory;
+        }
+
+        /**
+         * @return true if this is a folder that is marked as hidden
+         */
+        public boolean isHidden() {
+            return isHidden;
+        }
+
+        /**
+         * @return true if this is a script file, or a folder that is not hidden and contains a script at some level
+         */
+        public boolean isVisible() {
+            return isDirectory ? !isHidden && hasScripts : provider != null;
+        }
+
+        /**
+         * @return The provider for this script file, or null
+         */
+        public IScriptEngineProvider getProvider() {
+            return provider;
+        }
+
+        /**
+         * @return The target of a link file, or null if this is not a link file
+         */
+        public File getLinkedFile() {
+            return linkedFile;
+        }
+
+        /**
+         * @return The children of this folder, sorted with folders first
+         */
+        public List<ScriptEntry> getChildren() {
+            return children;
+        }
+    }
+
+    private Map<File, ScriptEntry> index;
+    private ScriptEntry root;
+    private Map<File, String> keyBindings;
+
+    private WatchService watchService;
+    private Map<File, WatchKey> watchKeys = new HashMap<>();
+
+    private IPropertyChangeListener prefsListener = this::preferenceChanged;
+    private boolean listeningToPrefs;
+
+    private ScriptsCatalog() {
+    }
+
+    /**
+     * @return The root entry for the user scripts folder
+     */
+    public synchronized ScriptEntry getRoot() {
+        if(root == null) {
+            build();
+        }
+        return root;
+    }
+
+    /**
+     * @return The entry for file. If file is not in the scripts folder a new uncached entry is returned.
+     */
+    public ScriptEntry getEntry(File file) {
+        ScriptEntry entry;
+
+        synchronized(this) {
+            getRoot();
+            entry = index.get(file.getAbsoluteFile());
+        }
+
+        if(entry == null) {
+            entry = createEntry(file.getAbsoluteFile(), file.isDirectory());
+        }
+
+        return entry;
+    }
+
+    /**
+     * @return The provider for a script file (resolving a link file) or null
+     */
+    public IScriptEngineProvider getProvider(File file) {
+        return getEntry(file).getProvider();
+    }
+
+    /**
+     * @return The target of a link file, or null if file is not a link file
+     */
+    public File getLinkedFile(File file) {
+        return getEntry(file).getLinkedFile();
+    }
+
+    /**
+     * @return true if file is a script file that has a provider
+     */
+    public boolean isScriptFile(File file) {
+        return getProvider(file) != null;
+    }
+
+    /**
+     * @return The key binding parameter value assigned to scriptFile, or null
+     */
+    public synchronized String getKeyBindingParameter(File scriptFile) {
+        if(keyBindings == null) {
+            keyBindings = new HashMap<>();
+            for(String parameterValue : RunScriptCommandHandler.getParameterValues()) {
+                File file = RunScriptCommandHandler.getScriptFileForParameterValue(parameterValue);
+                if(file != null) {
+                    keyBindings.put(file, parameterValue);
+                }
+            }
+        }
+
+        return keyBindings.get(scriptFile);
+    }
+
+    /**
+     * Discard the catalog so that it is rebuilt on next access
+     */
+    public synchronized void invalidate() {
+        root = null;
+        index = null;
+        keyBindings = null;
+    }
+
+    /**
+     * Stop watching the scripts folder
+     */
+    public synchronized void dispose() {
+        invalidate();
+
+        if(listeningToPrefs) {
+            ArchiScriptPlugin.INSTANCE.getPreferenceStore().removePropertyChangeListener(prefsListener);
+            listeningToPrefs = false;
+        }
+
+        if(watchService != null) {
+            try {
+                watchService.close();
+            }
+            catch(IOException ex) {
+                ex.printStackTrace();
+            }
+            watchService = null;
+            watchKeys.clear();
+        }
+    }
+
+    private void build() {
+        if(!listeningToPrefs) {
+            ArchiScriptPlugin.INSTANCE.getPreferenceStore().addPropertyChangeListener(prefsListener);
+            listeningToPrefs = true;
+        }
+
+        index = new HashMap<>();
+        root = buildEntry(ArchiScriptPlugin.INSTANCE.getUserScriptsFolder().getAbsoluteFile(), true);
+
+        // Stop watching folders that have gone or are no longer in the scripts folder. Others keep their key.
+        for(Iterator<Map.Entry<File, WatchKey>> iter = watchKeys.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<File, WatchKey> e = iter.next();
+            ScriptEntry entry = index.get(e.getKey());
+            if(entry == null || !entry.isDirectory) {
+                e.getValue().cancel();
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * A file or folder named in a watch event was created, deleted or modified in folder
+     */
+    private synchronized void folderChanged(File folder, File file, WatchEvent.Kind<?> kind) {
+        // Not built, or the folder is no longer in the catalog
+        ScriptEntry parent = index != null ? index.get(folder) : null;
+        if(parent == null || !parent.isDirectory) {
+            return;
+        }
+
+        if(kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+            // A folder's own contents are reported by its own key
+            ScriptEntry entry = index.get(file);
+            if(entry == null || entry.isDirectory) {
+                return;
+            }
+        }
+
+        List<ScriptEntry> children = new ArrayList<>(parent.children);
+
+        // Remove any existing entry for file and everything under it
+        for(Iterator<ScriptEntry> iter = children.iterator(); iter.hasNext();) {
+            ScriptEntry child = iter.next();
+            if(child.file.equals(file)) {
+                iter.remove();
+                removeEntry(child);
+                break;
+            }
+        }
+
+        // Add a new entry if the file is there
+        if(kind != StandardWatchEventKinds.ENTRY_DELETE && file.exists()) {
+            children.add(buildEntry(file, file.isDirectory()));
+            children.sort(ENTRY_COMPARATOR);
+        }
+
+        parent.children = Collections.unmodifiableList(children);
+
+        if(ScriptFiles.HIDDEN_MARKER_FILE.equals(file.getName())) {
+            parent.isHidden = file.exists();
+        }
+
+        // Update hasScripts for the folder and the folders above it
+        ScriptEntry entry = parent;
+        while(entry != null) {
+            boolean hasScripts = entry.children.stream().anyMatch(ScriptEntry::isVisible);
+
+            // The folder's hidden state may have changed so always go to the folder above it
+            if(hasScripts == entry.hasScripts && entry != parent) {
+                break;
+            }
+
+            entry.hasScripts = hasScripts;
+            entry = entry == root ? null : index.get(entry.file.getParentFile());
+        }
+    }
+
+    private void removeEntry(ScriptEntry entry) {
+        index.remove(entry.file);
+
+        if(entry.isDirectory) {
+            WatchKey key = watchKeys.remove(entry.file);
+            if(key != null) {
+                key.cancel();
+            }
+
+            for(ScriptEntry child : entry.children) {
+                removeEntry(child);
+            }
+        }
+    }
+
+    private ScriptEntry buildEntry(File file, boolean isDirectory) {
+        ScriptEntry entry;
+
+        if(isDirectory) {
+            entry = new ScriptEntry(file, true);
+            watch(file);
+
+            File[] files = file.listFiles();
+            if(files != null) {
+                List<ScriptEntry> children = new ArrayList<>(files.length);
+                for(File child : files) {
+                    if(ScriptFiles.HIDDEN_MARKER_FILE.equals(child.getName())) {
+                        entry.isHidden = true;
+                    }
+
+                    ScriptEntry childEntry = buildEntry(child, child.isDirectory());
+                    children.add(childEntry);
+
+                    if(childEntry.isVisible()) {
+                        entry.hasScripts = true;
+                    }
+                }
+
+                children.sort(ENTRY_COMPARATOR);
+                entry.children = Collections.unmodifiableList(children);
+            }
+        }
+        else {
+            entry = createEntry(file, false);
+        }
+
+        index.put(file, entry);
+
+        return entry;
+    }
+
+    private ScriptEntry createEntry(File file, boolean isDirectory) {
+        ScriptEntry entry = new ScriptEntry(file, isDirectory);
+
+        if(!isDirectory) {
+            if(ScriptFiles.isLinkedFile(file)) {
+                try {
+                    entry.linkedFile = ScriptFiles.resolveLinkFile(file);
+                }
+                catch(IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+
+            entry.provider = IScriptEngineProvider.INSTANCE.getProviderForFileExtension(entry.linkedFile != null ? entry.linkedFile : file);
+        }
+
+        return entry;
+    }
+
+    private void watch(File folder) {
+        try {
+            if(watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                startWatchThread(watchService);
+            }
+
+            // Already watched
+            WatchKey key = watchKeys.get(folder);
+            if(key != null && key.isValid()) {
+                return;
+            }
+
+            watchKeys.put(folder, folder.toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY));
+        }
+        catch(IOException ex) {
+            // Not all file systems support watching, the user can still refresh manually
+            ArchiScriptPlugin.INSTANCE.getLog().warn("Could not watch scripts folder: " + folder, ex);
+        }
+    }
+
+    private void startWatchThread(WatchService service) {
+        Thread watchThread = new Thread(() -> {
+            try {
+                while(true) {
+                    WatchKey key = service.take();
+                    File folder = ((Path)key.watchable()).toFile();
+
+                    for(WatchEvent<?> event : key.pollEvents()) {
+                        // Events were lost so we don't know what changed
+                        if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            invalidate();
+                        }
+                        else {
+                            folderChanged(folder, new File(folder, event.context().toString()), event.kind());
+                        }
+                    }
+
+                    key.reset();
+                }
+            }
+            catch(InterruptedException | ClosedWatchServiceException ex) {
+                // Disposed
+            }
+        }, "jArchi Scripts Folder Watcher");
+
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void preferenceChanged(PropertyChangeEvent event) {
+        String property = event.getProperty();
+
+        if(IPreferenceConstants.PREFS_SCRIPTS_FOLDER.equals(property)) {
+            invalidate();
+        }
+        else if(property.startsWith(RunScriptCommandHandler.PREFS_PREFIX)) {
+            synchronized(this) {
+                keyBindings = null;
+            }
+        }
+    }
+}
@@ -6,8 +6,7 @@
 package com.archimatetool.script;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jface.action.Action;
@@ -26,6 +25,7 @@ import org.eclipse.ui.services.IServiceLocator;
 
 import com.archimatetool.editor.utils.FileUtils;
 import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.script.ScriptsCatalog.ScriptEntry;
 
 
 /**
@@ -57,51 +57,34 @@ public class ScriptsContextMenuContributionItem extends ContributionItem impleme
         
         menuManager = new MenuManager();
         
-        fillItems(menuManager, ArchiScriptPlugin.INSTANCE.getUserScriptsFolder().listFiles());
+        // Use the cached catalog rather than walking the scripts folder every time the menu is shown
+        fillItems(menuManager, ScriptsCatalog.INSTANCE.getRoot().getChildren());
         
         for(IContributionItem item : menuManager.getItems()) {
             item.fill(menu, index++);
         }
     }
 
-    private void fillItems(MenuManager menuManager, File[] files) {
-        if(files == null) {
-            return;
-        }
-        
-        Arrays.sort(files, new Comparator<File>() {
-            @Override
-            public int compare(File f1, File f2) {
-                if(f1.isDirectory() && !f2.isDirectory()) {
-                    // Directory before non-directory
-                    return -1;
-                }
-                else if(!f1.isDirectory() && f2.isDirectory()) {
-                    // Non-directory after directory
-                    return 1;
-                }
-                else {
-                    // Alphabetic order otherwise
-                    return f1.getName().compareToIgnoreCase(f2.getName());
-                }
-            }
-        });
-        
-        for(File file : files) {
-            if(doShowFile(file)) {
-                if(file.isDirectory()) {
+    private void fillItems(MenuManager menuManager, List<ScriptEntry> entries) {
+        // Entries are already sorted with folders first
+        for(ScriptEntry entry : entries) {
+            // Don't show folder if marked as hidden or if it doesn't contain any scripts
+            if(entry.isVisible()) {
+                File file = entry.getFile();
+                
+                if(entry.isDirectory()) {
                     MenuManager subMenu = new MenuManager(StringUtils.escapeAmpersandsInText(file.getName()));
                     subMenu.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages().getImageDescriptor(ISharedImages.IMG_OBJ_FOLDER));
                     menuManager.add(subMenu);
-                    fillItems(subMenu, file.listFiles());
+                    fillItems(subMenu, entry.getChildren());
                 }
                 else {
-                    IScriptEngineProvider provider = IScriptEngineProvider.INSTANCE.getProviderForFile(file);
+                    IScriptEngineProvider provider = entry.getProvider();
                     ImageDescriptor imageDescriptor = provider.getImageDescriptor();
                     String label = StringUtils.escapeAmpersandsInText(FileUtils.getFileNameWithoutExtension(file));
                     
                     // If there is a key binding then use a CommandContributionItem to show the key mnemonic and run the Command
-                    String paramValue = RunScriptCommandHandler.getParameterValueForScriptFile(file);
+                    String paramValue = ScriptsCatalog.INSTANCE.getKeyBindingParameter(file);
                     if(paramValue != null) {
                         CommandContributionItemParameter param = new CommandContributionItemParameter(PlatformUI.getWorkbench(),
                                 null, RunScriptCommandHandler.ID,
@@ -133,24 +116,6 @@ public class ScriptsContextMenuContributionItem extends ContributionItem impleme
         }
     }
     
-    private boolean doShowFile(File file) {
-        if(file.isDirectory()) {
-            for(File f : file.listFiles()) {
-                // Don't show folder if marked as hidden
-                if(ScriptFiles.HIDDEN_MARKER_FILE.equals(f.getName())) {
-                    return false;
-                }
-
-                if(doShowFile(f)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-        
-        return IScriptEngineProvider.INSTANCE.getProviderForFile(file) != null;
-    }
-    
     @Override
     public void initialize(IServiceLocator serviceLocator) {
     }
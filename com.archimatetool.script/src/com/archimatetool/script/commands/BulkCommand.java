@@ -0,0 +1,287 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commands;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IProfile;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+
+/**
+ * BulkCommand
+ *
+ * Makes many changes to a model as one command, such as adding elements and relationships, setting features,
+ * adding properties and specializations, moving relationship ends, and removing concepts.
+ * The concepts for each folder are added and removed in one operation.
+ *
+ * The changes are made in this order and undone in reverse order:
+ *
+ * <pre>
+ * specializations are added to the model
+ * features are set
+ * properties are added
+ * new relationships are connected
+ * concepts are added to their folders
+ * other relationships are reconnected
+ * the commands added with add(ScriptCommand) are performed, in the order they were added
+ * concepts are removed from their folders
+ * </pre>
+ *
+ * @author Phillip Beauvoir
+ */
+public class BulkCommand extends ScriptCommand {
+
+    private List<IProfile> profiles = new ArrayList<>();
+
+    // Object, feature, old value and new value
+    private List<Object[]> changes = new ArrayList<>();
+
+    // New values of features changed so far, so that a value set twice is undone to the original
+    private Map<EObject, Map<EStructuralFeature, Object>> pending = new HashMap<>();
+
+    private Map<IProperties, List<IProperty>> properties = new LinkedHashMap<>();
+
+    // New relationships and their ends
+    private List<IArchimateConcept[]> connections = new ArrayList<>();
+
+    private Map<IFolder, List<IArchimateConcept>> additions = new LinkedHashMap<>();
+
+    // Relationships and their old and new ends
+    private List<IArchimateConcept[]> reconnections = new ArrayList<>();
+
+    private List<ScriptCommand> commands = new ArrayList<>();
+
+    private Set<IArchimateConcept> removals = new LinkedHashSet<>();
+
+    // Folder, index and concept of each removed concept, so that undo can put them back in place
+    private List<Object[]> removed = new ArrayList<>();
+
+    public BulkCommand(String name, IArchimateModel model) {
+        super(name, model);
+    }
+
+    public void add(IProfile profile) {
+        profiles.add(profile);
+    }
+
+    /**
+     * Set feature of eObject to value
+     * @return true if value is different to the current value
+     */
+    public boolean set(EObject eObject, EStructuralFeature feature, Object value) {
+        Map<EStructuralFeature, Object> values = pending.computeIfAbsent(eObject, o -> new HashMap<>());
+        Object current = values.containsKey(feature) ? values.get(feature) : eObject.eGet(feature);
+
+        // Keep a copy of a list as the list itself is changed
+        if(current instanceof List<?>) {
+            current = new ArrayList<>((List<?>)current);
+        }
+
+        if(Objects.equals(current, value)) {
+            return false;
+        }
+
+        changes.add(new Object[] { eObject, feature, current, value });
+        values.put(feature, value);
+        return true;
+    }
+
+    public void add(IProperties owner, IProperty property) {
+        properties.computeIfAbsent(owner, o -> new ArrayList<>()).add(property);
+    }
+
+    /**
+     * Add a new element or relationship to folder. A new relationship must also be connected with connect().
+     */
+    public void add(IFolder folder, IArchimateConcept concept) {
+        additions.computeIfAbsent(folder, f -> new ArrayList<>()).add(concept);
+    }
+
+    /**
+     * Add a new relationship to folder and connect it to source and target
+     */
+    public void add(IFolder folder, IArchimateRelationship relationship, IArchimateConcept source, IArchimateConcept target) {
+        add(folder, relationship);
+        connect(relationship, source, target);
+    }
+
+    /**
+     * Connect a new relationship to source and target
+     */
+    public void connect(IArchimateRelationship relationship, IArchimateConcept source, IArchimateConcept target) {
+        connections.add(new IArchimateConcept[] { relationship, source, target });
+    }
+
+    /**
+     * Move the ends of a relationship that is in the model to source and target
+     */
+    public void reconnect(IArchimateRelationship relationship, IArchimateConcept source, IArchimateConcept target) {
+        reconnections.add(new IArchimateConcept[] { relationship, relationship.getSource(), relationship.getTarget(), source, target });
+    }
+
+    /**
+     * Add a command to perform after the concepts are added and before they are removed
+     */
+    public void add(ScriptCommand cmd) {
+        commands.add(cmd);
+    }
+
+    /**
+     * Remove concept from its folder. A relationship is also disconnected.
+     */
+    public void remove(IArchimateConcept concept) {
+        removals.add(concept);
+    }
+
+    public boolean isEmpty() {
+        return profiles.isEmpty() && changes.isEmpty() && properties.isEmpty() && connections.isEmpty() && additions.isEmpty()
+                && reconnections.isEmpty() && commands.isEmpty() && removals.isEmpty();
+    }
+
+    @Override
+    public boolean canExecute() {
+        return !isEmpty();
+    }
+
+    @Override
+    public void perform() {
+        if(!profiles.isEmpty()) {
+            getModel().getProfiles().addAll(profiles);
+        }
+
+        for(Object[] change : changes) {
+            ((EObject)change[0]).eSet((EStructuralFeature)change[1], change[3]);
+        }
+
+        for(Entry<IProperties, List<IProperty>> entry : properties.entrySet()) {
+            entry.getKey().getProperties().addAll(entry.getValue());
+        }
+
+        for(IArchimateConcept[] connection : connections) {
+            ((IArchimateRelationship)connection[0]).connect(connection[1], connection[2]);
+        }
+
+        for(Entry<IFolder, List<IArchimateConcept>> entry : additions.entrySet()) {
+            entry.getKey().getElements().addAll(entry.getValue());
+        }
+
+        for(IArchimateConcept[] reconnection : reconnections) {
+            ((IArchimateRelationship)reconnection[0]).setSource(reconnection[3]);
+            ((IArchimateRelationship)reconnection[0]).setTarget(reconnection[4]);
+        }
+
+        for(ScriptCommand cmd : commands) {
+            cmd.perform();
+        }
+
+        performRemovals();
+    }
+
+    private void performRemovals() {
+        removed.clear();
+
+        Map<IFolder, Set<IArchimateConcept>> folders = new LinkedHashMap<>();
+        for(IArchimateConcept concept : removals) {
+            if(concept instanceof IArchimateRelationship) {
+                ((IArchimateRelationship)concept).disconnect();
+            }
+            folders.computeIfAbsent((IFolder)concept.eContainer(), f -> new HashSet<>()).add(concept);
+        }
+
+        for(Entry<IFolder, Set<IArchimateConcept>> entry : folders.entrySet()) {
+            List<EObject> elements = entry.getKey().getElements();
+            for(int i = 0; i < elements.size(); i++) {
+                if(entry.getValue().contains(elements.get(i))) {
+                    removed.add(new Object[] { entry.getKey(), i, elements.get(i) });
+                }
+            }
+            elements.removeAll(entry.getValue());
+        }
+    }
+
+    @Override
+    public void undo() {
+        // Put the removed concepts back where they were, lowest index first
+        removed.sort(Comparator.comparingInt(r -> (int)r[1]));
+        for(Object[] r : removed) {
+            ((IFolder)r[0]).getElements().add((int)r[1], (EObject)r[2]);
+        }
+
+        for(IArchimateConcept concept : removals) {
+            if(concept instanceof IArchimateRelationship) {
+                ((IArchimateRelationship)concept).reconnect();
+            }
+        }
+
+        for(int i = commands.size() - 1; i >= 0; i--) {
+            commands.get(i).undo();
+        }
+
+        for(IArchimateConcept[] reconnection : reconnections) {
+            ((IArchimateRelationship)reconnection[0]).setSource(reconnection[1]);
+            ((IArchimateRelationship)reconnection[0]).setTarget(reconnection[2]);
+        }
+
+        for(Entry<IFolder, List<IArchimateConcept>> entry : additions.entrySet()) {
+            entry.getKey().getElements().removeAll(new HashSet<>(entry.getValue()));
+        }
+
+        for(IArchimateConcept[] connection : connections) {
+            ((IArchimateRelationship)connection[0]).disconnect();
+        }
+
+        for(Entry<IProperties, List<IProperty>> entry : properties.entrySet()) {
+            entry.getKey().getProperties().removeAll(new HashSet<>(entry.getValue()));
+        }
+
+        for(int i = changes.size() - 1; i >= 0; i--) {
+            Object[] change = changes.get(i);
+            ((EObject)change[0]).eSet((EStructuralFeature)change[1], change[2]);
+        }
+
+        if(!profiles.isEmpty()) {
+            getModel().getProfiles().removeAll(profiles);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        for(ScriptCommand cmd : commands) {
+            cmd.dispose();
+        }
+
+        profiles = null;
+        changes = null;
+        pending = null;
+        properties = null;
+        connections = null;
+        additions = null;
+        reconnections = null;
+        commands = null;
+        removals = null;
+        removed = null;
+
+        super.dispose();
+    }
+}
@@ -5,7 +5,6 @@
  */
 package com.archimatetool.script.commands;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -15,25 +14,21 @@ import org.eclipse.osgi.util.NLS;
 
 import com.archimatetool.editor.model.commands.NonNotifyingCompoundCommand;
 import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.script.ArchiScriptException;
 import com.archimatetool.script.RefreshUIHandler;
+import com.archimatetool.script.ScriptRunContext;
 
 /**
  * CommandHandler
  * 
+ * Commands are collected in the current ScriptRunContext so that scripts can run at the same time on different threads.
+ * A command on a model that has a CommandStack is refused if there is no context to collect it in,
+ * rather than changing the model without it being put on the CommandStack.
+ * 
  * @author Phillip Beauvoir
  */
 public class CommandHandler {
     
-    private static Map<CommandStack, CompoundCommand> compoundcommands;
-    
-    // The name of the script to display in Undo/Redo command
-    private static String name;
-    
-    public static void init(String scriptName) {
-        compoundcommands = new HashMap<CommandStack, CompoundCommand>();
-        name = NLS.bind(Messages.CommandHandler_1, scriptName);
-    }
-
     public static void executeCommand(ScriptCommand cmd) {
         if(!cmd.canExecute()) {
             return;
@@ -43,17 +38,27 @@ public class CommandHandler {
         CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
         
         if(stack != null) {
-            CompoundCommand compound = compoundcommands.get(stack);
-            if(compound == null) {
-                compound = new NonNotifyingCompoundCommand(name) {
-                    @Override
-                    public boolean canExecute() {
-                        return true; // Always return true so that all commands do their dummy execute() command
-                    }
-                };
-                compoundcommands.put(stack, compound);
+            ScriptRunContext context = ScriptRunContext.find();
+            if(context == null) {
+                throw new ArchiScriptException(Messages.CommandHandler_2);
+            }
+            
+            // Another thread may be using the only running script's context
+            Map<CommandStack, CompoundCommand> commands = context.getCompoundCommands();
+            synchronized(commands) {
+                CompoundCommand compound = commands.get(stack);
+                if(compound == null) {
+                    // The name of the script to display in Undo/Redo command
+                    compound = new NonNotifyingCompoundCommand(NLS.bind(Messages.CommandHandler_1, context.getName())) {
+                        @Override
+                        public boolean canExecute() {
+                            return true; // Always return true so that all commands do their dummy execute() command
+                        }
+                    };
+                    commands.put(stack, compound);
+                }
+                compound.add(cmd);
             }
-            compound.add(cmd);
         }
         
         cmd.perform();
@@ -63,17 +68,17 @@ public class CommandHandler {
     }
 
     public static void finalise() {
-        if(compoundcommands == null) {
-            return;
-        }
+        Map<CommandStack, CompoundCommand> commands = ScriptRunContext.current().getCompoundCommands();
         
-        // This simply calls empty execute() methods since perform() has already been called
-        // It puts the commmands on the CommandStack for each model so that Undo/Redo is enabled
-        for(Entry<CommandStack, CompoundCommand> e : compoundcommands.entrySet()) {
-            e.getKey().execute(e.getValue());
+        synchronized(commands) {
+            // This simply calls empty execute() methods since perform() has already been called
+            // It puts the commmands on the CommandStack for each model so that Undo/Redo is enabled
+            for(Entry<CommandStack, CompoundCommand> e : commands.entrySet()) {
+                e.getKey().execute(e.getValue());
+            }
+            
+            // Clear these so that they can be garbage collected, otherwise we will have a memory leak
+            commands.clear();
         }
-        
-        // Set this to null so that it can be garbage collected, otherwise we will have a memory leak
-        compoundcommands = null;
     }
 }
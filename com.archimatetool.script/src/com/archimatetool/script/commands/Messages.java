@@ -9,6 +9,8 @@ public class Messages extends NLS {
     public static String CommandHandler_0;
 
     public static String CommandHandler_1;
+
+    public static String CommandHandler_2;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,91 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelBendpoint;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelObject;
+
+/**
+ * SetBoundsCommand
+ *
+ * Sets the bounds of many diagram objects, and the bendpoints of many connections, in one command.
+ *
+ * @author Phillip Beauvoir
+ */
+public class SetBoundsCommand extends ScriptCommand {
+
+    private List<IDiagramModelObject> objects = new ArrayList<>();
+    private List<IBounds[]> bounds = new ArrayList<>();
+
+    private List<IDiagramModelConnection> connections = new ArrayList<>();
+    private List<List<IDiagramModelBendpoint>[]> bendpoints = new ArrayList<>();
+
+    public SetBoundsCommand(IDiagramModel dm) {
+        this("bounds", dm); //$NON-NLS-1$
+    }
+
+    public SetBoundsCommand(String name, IDiagramModel dm) {
+        super(name, dm);
+    }
+
+    public void setBounds(IDiagramModelObject dmo, IBounds newBounds) {
+        objects.add(dmo);
+        bounds.add(new IBounds[] { dmo.getBounds(), newBounds });
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setBendpoints(IDiagramModelConnection connection, List<IDiagramModelBendpoint> newBendpoints) {
+        connections.add(connection);
+        bendpoints.add(new List[] { new ArrayList<>(connection.getBendpoints()), newBendpoints });
+    }
+
+    public boolean isEmpty() {
+        return objects.isEmpty() && connections.isEmpty();
+    }
+
+    @Override
+    public boolean canExecute() {
+        return !isEmpty();
+    }
+
+    @Override
+    public void perform() {
+        for(int i = 0; i < objects.size(); i++) {
+            objects.get(i).setBounds(bounds.get(i)[1]);
+        }
+
+        for(int i = 0; i < connections.size(); i++) {
+            connections.get(i).getBendpoints().clear();
+            connections.get(i).getBendpoints().addAll(bendpoints.get(i)[1]);
+        }
+    }
+
+    @Override
+    public void undo() {
+        for(int i = connections.size() - 1; i >= 0; i--) {
+            connections.get(i).getBendpoints().clear();
+            connections.get(i).getBendpoints().addAll(bendpoints.get(i)[0]);
+        }
+
+        for(int i = objects.size() - 1; i >= 0; i--) {
+            objects.get(i).setBounds(bounds.get(i)[0]);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        objects = null;
+        bounds = null;
+        connections = null;
+        bendpoints = null;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.archimatetool.script.dom.DomExtensionFactory.DomExtensionDescriptor;
+
+/**
+ * The DOM objects for one script run
+ * 
+ * Each DOM object is created the first time it is asked for and then re-used for the rest of the run.
+ * This is bound as "__DOM__" so that init.js can install lazy accessors for DOM objects declared as lazy.
+ */
+public class DomBindings {
+    
+    private Map<String, DomExtensionDescriptor> descriptors = new LinkedHashMap<>();
+    private Map<String, Object> created = new LinkedHashMap<>();
+    
+    DomBindings(List<DomExtensionDescriptor> descriptors) {
+        for(DomExtensionDescriptor descriptor : descriptors) {
+            this.descriptors.put(descriptor.getVariableName(), descriptor);
+        }
+    }
+    
+    /**
+     * @return The DOM object for variableName, creating it if this is the first time it is asked for
+     */
+    public synchronized Object get(String variableName) {
+        if(created.containsKey(variableName)) {
+            return created.get(variableName);
+        }
+        
+        DomExtensionDescriptor descriptor = descriptors.get(variableName);
+        if(descriptor == null) {
+            return null;
+        }
+        
+        Object domObject = descriptor.createDOMObject();
+        created.put(variableName, domObject);
+        return domObject;
+    }
+    
+    /**
+     * @return true if the DOM object for variableName has been created
+     */
+    public synchronized boolean isCreated(String variableName) {
+        return created.containsKey(variableName);
+    }
+    
+    /**
+     * @return The variable names of all DOM objects
+     */
+    public String[] getVariableNames() {
+        return descriptors.keySet().toArray(new String[descriptors.size()]);
+    }
+    
+    /**
+     * @return The variable names of DOM objects that are declared as lazy
+     */
+    public String[] getLazyVariableNames() {
+        List<String> names = new ArrayList<>();
+        
+        for(DomExtensionDescriptor descriptor : descriptors.values()) {
+            if(descriptor.isLazy()) {
+                names.add(descriptor.getVariableName());
+            }
+        }
+        
+        return names.toArray(new String[names.size()]);
+    }
+    
+    /**
+     * @return true if the DOM object for variableName is declared as lazy
+     */
+    public boolean isLazy(String variableName) {
+        DomExtensionDescriptor descriptor = descriptors.get(variableName);
+        return descriptor != null && descriptor.isLazy();
+    }
+    
+    /**
+     * Dispose of any resources held by the DOM objects that were created
+     */
+    public synchronized void dispose() {
+        for(Object domObject : created.values()) {
+            if(domObject instanceof IArchiScriptBinding) {
+                ((IArchiScriptBinding)domObject).dispose();
+            }
+        }
+        
+        created.clear();
+    }
+}
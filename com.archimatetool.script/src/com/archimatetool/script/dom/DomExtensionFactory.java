@@ -5,7 +5,10 @@
  */
 package com.archimatetool.script.dom;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
@@ -25,37 +28,101 @@ public class DomExtensionFactory {
     // Extension ID for dom objects
     public static String EXTENSION_ID = "com.archimatetool.script.dom";
     
+    // Cached descriptors read from the extension registry
+    private static List<DomExtensionDescriptor> descriptors;
+    
     /**
      * @return A map of all registered DOM extensions
      */
     public static Map<String, Object> getDOMExtensions() {
         Map<String, Object> map = new HashMap<>();
         
-        IExtensionPoint point = Platform.getExtensionRegistry().getExtensionPoint(EXTENSION_ID);
+        for(DomExtensionDescriptor descriptor : getDescriptors()) {
+            Object domObject = descriptor.createDOMObject();
+            if(domObject != null) {
+                map.put(descriptor.getVariableName(), domObject);
+            }
+        }
         
-        for(IExtension extension : point.getExtensions()) {
-            for(IConfigurationElement element : extension.getConfigurationElements()) {
-                try {
-                    //String id = element.getAttribute("id");
+        return map;
+    }
+    
+    /**
+     * @return A new DomBindings for a script run. DOM objects are only created when first asked for.
+     */
+    public static DomBindings createDomBindings() {
+        return new DomBindings(getDescriptors());
+    }
+    
+    /**
+     * @return The registered DOM extension descriptors. The extension registry is only read once.
+     */
+    static synchronized List<DomExtensionDescriptor> getDescriptors() {
+        if(descriptors == null) {
+            List<DomExtensionDescriptor> list = new ArrayList<>();
+            
+            IExtensionPoint point = Platform.getExtensionRegistry().getExtensionPoint(EXTENSION_ID);
+            
+            for(IExtension extension : point.getExtensions()) {
+                for(IConfigurationElement element : extension.getConfigurationElements()) {
                     String variableName = element.getAttribute("variableName");
-                    Object domObject = element.createExecutableExtension("class");
-
-                    // If the class object implements IArchiScriptDOMFactory then call its getDOMroot() method to get the object.
-                    // Useful if the factory needs to instantiate the dom class object via delefgate or proxy.
-                    if(domObject instanceof IArchiScriptDOMFactory) {
-                        domObject = ((IArchiScriptDOMFactory)domObject).getDOMroot();
-                    }
-
-                    if(variableName != null && domObject != null) {
-                        map.put(variableName, domObject);
+                    if(variableName != null) {
+                        list.add(new DomExtensionDescriptor(element, variableName));
                     }
                 }
-                catch(CoreException ex) {
-                    ArchiScriptPlugin.INSTANCE.getLog().error("Could not load extension", ex);
-                }
             }
+            
+            descriptors = Collections.unmodifiableList(list);
         }
         
-        return map;
+        return descriptors;
+    }
+    
+    /**
+     * A registered DOM extension that has not necessarily been instantiated
+     */
+    static class DomExtensionDescriptor {
+        private IConfigurationElement element;
+        private String variableName;
+        private boolean lazy;
+        
+        DomExtensionDescriptor(IConfigurationElement element, String variableName) {
+            this.element = element;
+            this.variableName = variableName;
+            lazy = Boolean.parseBoolean(element.getAttribute("lazy"));
+        }
+        
+        String getVariableName() {
+            return variableName;
+        }
+        
+        /**
+         * @return true if the DOM object can be created on first access rather than when the script starts
+         */
+        boolean isLazy() {
+            return lazy;
+        }
+        
+        /**
+         * @return A new instance of the DOM object, or null if it could not be created
+         */
+        Object createDOMObject() {
+            try {
+                Object domObject = element.createExecutableExtension("class");
+
+                // If the class object implements IArchiScriptDOMFactory then call its getDOMroot() method to get the object.
+                // Useful if the factory needs to instantiate the dom class object via delefgate or proxy.
+                if(domObject instanceof IArchiScriptDOMFactory) {
+                    domObject = ((IArchiScriptDOMFactory)domObject).getDOMroot();
+                }
+                
+                return domObject;
+            }
+            catch(CoreException ex) {
+                ArchiScriptPlugin.INSTANCE.getLog().error("Could not load extension", ex);
+            }
+            
+            return null;
+        }
     }
 }
@@ -0,0 +1,22 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.jarchi;
+
+import com.archimatetool.script.dom.IArchiScriptDOMFactory;
+import com.archimatetool.script.dom.model.QueryCache;
+
+/**
+ * Binds the session-wide QueryCache as "jArchiMemo" for $.memo()
+ * 
+ * @author Phillip Beauvoir
+ */
+public class Memo implements IArchiScriptDOMFactory {
+
+    @Override
+    public Object getDOMroot() {
+        return QueryCache.INSTANCE;
+    }
+}
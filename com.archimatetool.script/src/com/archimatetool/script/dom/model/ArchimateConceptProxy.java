@@ -54,7 +54,7 @@ public abstract class ArchimateConceptProxy extends EObjectProxy {
         }
         
         // Check it's not already this type
-        String className = ModelUtil.getCamelCase(type);
+        String className = TypeRegistry.INSTANCE.getClassName(type);
         if(getEObject().eClass().getName().equals(className)) {
             return null;
         }
@@ -86,7 +86,7 @@ public class ArchimateDiagramModelProxy extends DiagramModelProxy {
     }
     
     public boolean isAllowedConceptForViewpoint(String conceptName) {
-        EClass eClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(conceptName));
+        EClass eClass = TypeRegistry.INSTANCE.getEClass(conceptName);
         if(eClass != null) {
             return ViewpointManager.INSTANCE.isAllowedConceptForDiagramModel(getEObject(), eClass);
         }
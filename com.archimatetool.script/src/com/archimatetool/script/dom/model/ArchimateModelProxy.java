@@ -8,9 +8,13 @@ package com.archimatetool.script.dom.model;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
+import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.PlatformUI;
@@ -21,6 +25,7 @@ import com.archimatetool.editor.model.ModelChecker;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IIdentifier;
 import com.archimatetool.model.IProfile;
 import com.archimatetool.model.ModelVersion;
 import com.archimatetool.model.util.ArchimateModelUtils;
@@ -150,6 +155,55 @@ public class ArchimateModelProxy extends EObjectProxy {
         return ModelFactory.createRelationship(getEObject(), type, name, source.getEObject(), target.getEObject(), parentFolder.getEObject());
     }
     
+    /**
+     * Create and add many ArchiMate elements in one command.
+     * Each spec is an object with "type" and optional "name", "documentation", "properties" and "folder".
+     */
+    public EObjectProxyCollection createElements(List<?> specs) {
+        return ModelFactory.createElements(getEObject(), specs);
+    }
+    
+    /**
+     * Create and add many ArchiMate relationships in one command.
+     * Each spec is an object with "type", "source" and "target" and optional "name", "documentation", "properties" and "folder".
+     */
+    public EObjectProxyCollection createRelationships(List<?> specs) {
+        return ModelFactory.createRelationships(getEObject(), specs);
+    }
+    
+    /**
+     * Find the elements that have the same type and the same name, ignoring case and extra whitespace.
+     * @return The groups of duplicates, each with more than one element
+     */
+    public List<EObjectProxyCollection> findDuplicates() {
+        return ConceptMerger.findDuplicates(getEObject(), (Map<?, ?>)null);
+    }
+    
+    /**
+     * Find the concepts that have the same type and the same name, ignoring extra whitespace.
+     * Options are "selector" (default "element") and "ignoreCase" (default true).
+     * @return The groups of duplicates, each with more than one concept
+     */
+    public List<EObjectProxyCollection> findDuplicates(Map<?, ?> options) {
+        return ConceptMerger.findDuplicates(getEObject(), options);
+    }
+    
+    /**
+     * Find the elements that have the same type and the same key, where keyFn returns the key of each element.
+     * @return The groups of duplicates, each with more than one element
+     */
+    public List<EObjectProxyCollection> findDuplicates(Function<EObjectProxy, Object> keyFn) {
+        return ConceptMerger.findDuplicates(getEObject(), keyFn);
+    }
+    
+    /**
+     * Merge each group of concepts into the first concept of the group in one command, and delete the others.
+     * @return The concepts that were merged into
+     */
+    public EObjectProxyCollection mergeAll(List<?> groups) {
+        return ConceptMerger.mergeAll(getEObject(), groups);
+    }
+    
     /**
      * Create and add an ArchiMate View and put in default folder
      */
@@ -236,7 +290,7 @@ public class ArchimateModelProxy extends EObjectProxy {
             return null;
         }
         
-        IProfile profile = ArchimateModelUtils.getProfileByNameAndType(getEObject(), name, ModelUtil.getCamelCase(conceptType));
+        IProfile profile = ArchimateModelUtils.getProfileByNameAndType(getEObject(), name, TypeRegistry.INSTANCE.getClassName(conceptType));
         return profile != null ? new ProfileProxy(profile) : null;
     }
 
@@ -285,6 +339,135 @@ public class ArchimateModelProxy extends EObjectProxy {
         return list;
     }
     
+    /**
+     * @return a read-only snapshot of the model's concepts and views that can be queried in parallel
+     */
+    public ModelSnapshot snapshot() {
+        return new HeapModelSnapshot(getEObject());
+    }
+    
+    /**
+     * @return a counter that goes up each time the model is changed, for telling whether cached results are out of date.
+     * It counts changes made since the model was first asked for its version in this session.
+     */
+    public long getVersion() {
+        return ModelChangeTracker.get(getEObject()).getVersion();
+    }
+    
+    /**
+     * @param version A value of getVersion()
+     * @return the changes made since version, oldest first, as maps of version, object, feature, type, oldValue and newValue.
+     * Objects that are still in the model are given as proxies, objects that have since been deleted as their id.
+     * Returns null if there have been too many changes since version to be kept, in which case everything should be recomputed.
+     */
+    public List<Map<String, Object>> changesSince(long version) {
+        List<ModelChangeTracker.Change> changes = ModelChangeTracker.get(getEObject()).getChangesSince(version);
+        if(changes == null) {
+            return null;
+        }
+        
+        List<Map<String, Object>> list = new ArrayList<>();
+        
+        if(changes.isEmpty()) {
+            return list;
+        }
+        
+        // The journal only has ids so look them up in one pass over the model
+        Map<String, EObject> objects = new HashMap<>();
+        objects.put(getEObject().getId(), getEObject());
+        for(Iterator<EObject> iter = getEObject().eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IIdentifier) {
+                objects.put(((IIdentifier)eObject).getId(), eObject);
+            }
+        }
+        
+        for(ModelChangeTracker.Change change : changes) {
+            Map<String, Object> map = ProxyUtil.createMap();
+            map.put("version", change.getVersion()); //$NON-NLS-1$
+            map.put("object", toChangeObject(change.getObjectId(), objects)); //$NON-NLS-1$
+            map.put("feature", change.getFeature()); //$NON-NLS-1$
+            map.put("type", getChangeType(change.getEventType())); //$NON-NLS-1$
+            map.put("oldValue", toChangeValue(change.getOldValue(), objects)); //$NON-NLS-1$
+            map.put("newValue", toChangeValue(change.getNewValue(), objects)); //$NON-NLS-1$
+            list.add(map);
+        }
+        
+        return list;
+    }
+    
+    /**
+     * @return proxy of the object with id, or of the nearest container that has one.
+     * If the object is no longer in the model the id is returned.
+     */
+    private Object toChangeObject(String id, Map<String, EObject> objects) {
+        if(id == null) {
+            return null;
+        }
+        
+        EObject eObject = objects.get(id);
+        if(eObject == null) {
+            return id;
+        }
+        
+        for(; eObject != null; eObject = eObject.eContainer()) {
+            EObjectProxy proxy = EObjectProxy.get(eObject);
+            if(proxy != null) {
+                return proxy;
+            }
+        }
+        
+        return null;
+    }
+    
+    @SuppressWarnings("nls")
+    private String getChangeType(int eventType) {
+        switch(eventType) {
+            case Notification.SET:
+                return "set";
+            case Notification.UNSET:
+                return "unset";
+            case Notification.ADD:
+                return "add";
+            case Notification.REMOVE:
+                return "remove";
+            case Notification.ADD_MANY:
+                return "add-many";
+            case Notification.REMOVE_MANY:
+                return "remove-many";
+            case Notification.MOVE:
+                return "move";
+            default:
+                return "other";
+        }
+    }
+    
+    /**
+     * Model objects are returned as proxies, or their id if they are no longer in the model,
+     * or null if there is no proxy for them (such as properties and bounds)
+     */
+    private Object toChangeValue(Object value, Map<String, EObject> objects) {
+        if(value instanceof ModelChangeTracker.ObjectRef) {
+            String id = ((ModelChangeTracker.ObjectRef)value).getId();
+            if(id == null) {
+                return null;
+            }
+            EObject eObject = objects.get(id);
+            return eObject != null ? EObjectProxy.get(eObject) : id;
+        }
+        
+        if(value instanceof List<?>) {
+            List<Object> list = new ArrayList<>();
+            for(Object o : (List<?>)value) {
+                list.add(toChangeValue(o, objects));
+            }
+            return list;
+        }
+        
+        // Notification.MOVE has the old index as old value
+        return value;
+    }
+    
     /**
      * Set the Current Model to this
      * @return
@@ -294,6 +477,21 @@ public class ArchimateModelProxy extends EObjectProxy {
         return this;
     }
 
+    /**
+     * Search the words in names, documentation and property values of concepts and views using the model's text index.
+     * @param query Words that must all match. "word*" matches words starting with word and "some words" matches a phrase. Case insensitive.
+     * @return matching concepts and views
+     */
+    public EObjectProxyCollection search(String query) {
+        EObjectProxyCollection list = new EObjectProxyCollection();
+        
+        for(EObject eObject : ModelTextIndex.get(getEObject()).search(query)) {
+            list.add(EObjectProxy.get(eObject));
+        }
+        
+        return list;
+    }
+    
     // Expose find methods as public
     
     @Override
@@ -311,14 +509,19 @@ public class ArchimateModelProxy extends EObjectProxy {
         return super.find(object);
     }
     
+    /**
+     * The result is cached in QueryCache until the model changes
+     */
     @Override
     public EObjectProxyCollection find(String selector) {
-        // If selector is id (#) then filter on all the model's objects
-        if(selector.startsWith("#") && selector.length() > 1) { //$NON-NLS-1$
-            return super.find(selector);
-        }
-        
-        // Else, as this is the model we will additionally filter only on concepts, views and folders
-        return super.find(selector).filter("*"); //$NON-NLS-1$
+        return QueryCache.INSTANCE.find(this, selector, () -> {
+            // If selector is id (#) then filter on all the model's objects
+            if(selector.startsWith("#") && selector.length() > 1) { //$NON-NLS-1$
+                return super.find(selector);
+            }
+            
+            // Else, as this is the model we will additionally filter only on concepts, views and folders
+            return super.find(selector).filter("*"); //$NON-NLS-1$
+        });
     }
 }
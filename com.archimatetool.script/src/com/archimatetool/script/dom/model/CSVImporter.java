@@ -0,0 +1,558 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IIdentifier;
+import com.archimatetool.model.IProfile;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.BulkCommand;
+import com.archimatetool.script.commands.CommandHandler;
+
+/**
+ * Imports elements, relationships or properties from a CSV or TSV file in one pass
+ *
+ * The file is streamed a record at a time. Existing objects are found through id and name indexes built once at the start,
+ * and all new objects and changes are made by one command, so the import is one Undo step.
+ * New objects are added to their folders in one go per folder.
+ *
+ * The default column names are those of Archi's own CSV export, so its elements, relations and properties files can be imported.
+ * Options:
+ *
+ * <pre>
+ * kind          "elements", "relationships" or "properties". Default is worked out from the columns.
+ * delimiter     Field delimiter. Default is tab for .tsv files and comma for others.
+ * encoding      Default is UTF-8
+ * columns       Map of field to column name for fields id, type, name, documentation, specialization, source, target, key and value
+ * type          Type of all elements or relationships if there is no type column
+ * properties    If true other columns are set as properties. Default is false.
+ * update        If true existing objects are updated, if false they are skipped. Default is true.
+ * </pre>
+ *
+ * A specialization is looked up by name and the concept's type, and is added to the model if there is none.
+ *
+ * Properties can have more than one value for the same key, as in Archi's export where each value is a row of the properties file.
+ * So the same rule is used for property rows and property columns: the first time a key is given for an object in the import
+ * it sets the first property with that key, the second time the second property with that key and so on.
+ * A property is added if the object does not have that many properties with the key.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class CSVImporter {
+
+    static final String ELEMENTS = "elements";
+    static final String RELATIONSHIPS = "relationships";
+    static final String PROPERTIES = "properties";
+
+    static final int MAX_MESSAGES = 100;
+
+    private static final String[] FIELDS = { "id", "type", "name", "documentation", "source", "target", "key", "value", "specialization" };
+
+    private final IArchimateModel model;
+    private final Map<?, ?> options;
+    private final boolean update;
+
+    // Lookup of existing and new objects
+    private final Map<String, EObject> idIndex = new HashMap<>();
+    private final Map<String, IArchimateElement> elementIndex = new HashMap<>();
+    private final Map<String, IArchimateConcept> nameIndex = new HashMap<>();
+    private final Map<String, IArchimateRelationship> relationshipIndex = new HashMap<>();
+
+    private final BulkCommand command;
+
+    // Column index of each field, or -1
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    // Columns to set as properties and their keys
+    private final Map<Integer, String> propertyColumns = new LinkedHashMap<>();
+
+    // Existing and new specializations by type and name
+    private final Map<String, IProfile> profileIndex = new HashMap<>();
+
+    // Number of times each property key has been given for each object so far
+    private final Map<IProperties, Map<String, Integer>> propertyCounts = new HashMap<>();
+
+    private int rows, created, updated, skipped, errors;
+    private List<String> messages = new ArrayList<>();
+
+    CSVImporter(IArchimateModel model, Map<?, ?> options) {
+        this.model = model;
+        this.options = options;
+        update = ModelUtil.getBooleanValueFromMap(options, "update", true);
+        command = new BulkCommand("import", model);
+    }
+
+    /**
+     * Import file
+     * @return A report with counts of rows, created, updated, skipped and errors, and the first error messages
+     */
+    Map<String, Object> importFile(File file) throws IOException {
+        String encoding = ModelUtil.getStringValueFromMap(options, "encoding", "UTF-8");
+        String defaultDelimiter = file.getName().toLowerCase(Locale.ROOT).endsWith(".tsv") ? "\t" : ",";
+        String delimiter = ModelUtil.getStringValueFromMap(options, "delimiter", defaultDelimiter);
+
+        buildIndexes();
+
+        try(CSVReader reader = new CSVReader(Files.newBufferedReader(file.toPath(), Charset.forName(encoding)), delimiter.charAt(0))) {
+            List<String> header = reader.readRecord();
+            if(header == null) {
+                return getReport();
+            }
+
+            String kind = readHeader(header);
+
+            for(List<String> record = reader.readRecord(); record != null; record = reader.readRecord()) {
+                if(record.stream().allMatch(String::isEmpty)) {
+                    continue;
+                }
+
+                rows++;
+
+                switch(kind) {
+                    case RELATIONSHIPS:
+                        importRelationship(record, reader.getLineNumber());
+                        break;
+                    case PROPERTIES:
+                        importProperty(record, reader.getLineNumber());
+                        break;
+                    default:
+                        importElement(record, reader.getLineNumber());
+                        break;
+                }
+            }
+        }
+
+        if(!command.isEmpty()) {
+            CommandHandler.executeCommand(command);
+        }
+
+        return getReport();
+    }
+
+    /**
+     * Find the column of each field and work out the kind of import
+     */
+    private String readHeader(List<String> header) {
+        Map<?, ?> columnNames = options != null && options.get("columns") instanceof Map ? (Map<?, ?>)options.get("columns") : null;
+
+        Set<Integer> used = new HashSet<>();
+
+        for(String field : FIELDS) {
+            String columnName = ModelUtil.getStringValueFromMap(columnNames, field, field);
+            int index = -1;
+            for(int i = 0; i < header.size(); i++) {
+                if(header.get(i).trim().equalsIgnoreCase(columnName)) {
+                    index = i;
+                    used.add(i);
+                    break;
+                }
+            }
+            columns.put(field, index);
+        }
+
+        String kind = ModelUtil.getStringValueFromMap(options, "kind", null);
+        if(kind == null) {
+            if(has("source") && has("target")) {
+                kind = RELATIONSHIPS;
+            }
+            else if(has("key") && has("value") && !has("name")) {
+                kind = PROPERTIES;
+            }
+            else {
+                kind = ELEMENTS;
+            }
+        }
+
+        // Check required columns
+        if(PROPERTIES.equals(kind)) {
+            requireColumn("id");
+            requireColumn("key");
+        }
+        else {
+            if(!has("type") && ModelUtil.getStringValueFromMap(options, "type", null) == null) {
+                requireColumn("type");
+            }
+            if(RELATIONSHIPS.equals(kind)) {
+                requireColumn("source");
+                requireColumn("target");
+            }
+            else if(!has("id")) {
+                requireColumn("name");
+            }
+
+            if(ModelUtil.getBooleanValueFromMap(options, PROPERTIES, false)) {
+                for(int i = 0; i < header.size(); i++) {
+                    if(!used.contains(i) && !header.get(i).isBlank()) {
+                        propertyColumns.put(i, header.get(i).trim());
+                    }
+                }
+            }
+        }
+
+        return kind;
+    }
+
+    private boolean has(String field) {
+        return columns.get(field) != -1;
+    }
+
+    private void requireColumn(String field) {
+        if(!has(field)) {
+            throw new ArchiScriptException(NLS.bind(Messages.CSVImporter_0, field));
+        }
+    }
+
+    /**
+     * @return The value of field in record, or null if there is no such column or the value is empty
+     */
+    private String get(List<String> record, String field) {
+        int index = columns.get(field);
+        if(index == -1 || index >= record.size() || record.get(index).isEmpty()) {
+            return null;
+        }
+        return record.get(index);
+    }
+
+    private void buildIndexes() {
+        idIndex.put(model.getId(), model);
+
+        for(IProfile profile : model.getProfiles()) {
+            profileIndex.putIfAbsent(profile.getConceptType() + "|" + profile.getName(), profile);
+        }
+
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+
+            if(eObject instanceof IArchimateConcept || eObject instanceof IDiagramModel) {
+                idIndex.put(((IIdentifier)eObject).getId(), eObject);
+            }
+
+            if(eObject instanceof IArchimateElement) {
+                indexElement((IArchimateElement)eObject);
+            }
+            else if(eObject instanceof IArchimateRelationship) {
+                indexRelationship((IArchimateRelationship)eObject);
+            }
+        }
+    }
+
+    private void indexElement(IArchimateElement element) {
+        elementIndex.putIfAbsent(element.eClass().getName() + "|" + element.getName(), element);
+        nameIndex.putIfAbsent(element.getName(), element);
+    }
+
+    private void indexRelationship(IArchimateRelationship relationship) {
+        relationshipIndex.putIfAbsent(getRelationshipKey(relationship.eClass(), relationship.getSource(), relationship.getTarget(),
+                relationship.getName()), relationship);
+    }
+
+    private String getRelationshipKey(EClass eClass, IArchimateConcept source, IArchimateConcept target, String name) {
+        return eClass.getName() + "|" + source.getId() + "|" + target.getId() + "|" + name;
+    }
+
+    private void importElement(List<String> record, long line) {
+        EClass eClass = getEClass(record, line);
+        if(eClass == null) {
+            return;
+        }
+
+        // The model row of an Archi export
+        if(eClass == IArchimatePackage.eINSTANCE.getArchimateModel()) {
+            skipped++;
+            return;
+        }
+
+        if(!IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass)) {
+            error(NLS.bind(Messages.CSVImporter_1, line, eClass.getName()));
+            return;
+        }
+
+        String id = get(record, "id");
+        String name = StringUtils.safeString(get(record, "name"));
+
+        IArchimateElement element = null;
+        if(id != null && idIndex.get(id) instanceof IArchimateElement) {
+            element = (IArchimateElement)idIndex.get(id);
+        }
+        else if(id == null || !idIndex.containsKey(id)) {
+            element = elementIndex.get(eClass.getName() + "|" + name);
+        }
+
+        if(element != null) {
+            updateConcept(element, record);
+            return;
+        }
+
+        element = (IArchimateElement)IArchimateFactory.eINSTANCE.create(eClass);
+        setNewConcept(element, id, name, record);
+        command.add(model.getDefaultFolderForObject(element), element);
+
+        indexElement(element);
+        created++;
+    }
+
+    private void importRelationship(List<String> record, long line) {
+        EClass eClass = getEClass(record, line);
+        if(eClass == null) {
+            return;
+        }
+
+        if(!IArchimatePackage.eINSTANCE.getArchimateRelationship().isSuperTypeOf(eClass)) {
+            error(NLS.bind(Messages.CSVImporter_1, line, eClass.getName()));
+            return;
+        }
+
+        IArchimateConcept source = findConcept(get(record, "source"));
+        IArchimateConcept target = findConcept(get(record, "target"));
+        if(source == null || target == null) {
+            error(NLS.bind(Messages.CSVImporter_2, line, source == null ? get(record, "source") : get(record, "target")));
+            return;
+        }
+
+        String id = get(record, "id");
+        String name = StringUtils.safeString(get(record, "name"));
+
+        IArchimateRelationship relationship = null;
+        if(id != null && idIndex.get(id) instanceof IArchimateRelationship) {
+            relationship = (IArchimateRelationship)idIndex.get(id);
+        }
+        else if(id == null || !idIndex.containsKey(id)) {
+            relationship = relationshipIndex.get(getRelationshipKey(eClass, source, target, name));
+        }
+
+        if(relationship != null) {
+            updateConcept(relationship, record);
+            return;
+        }
+
+        if(!TypeRegistry.INSTANCE.isValidRelationship(source, target, eClass)) {
+            error(NLS.bind(Messages.CSVImporter_3, new Object[] { line, eClass.getName(), source.getName(), target.getName() }));
+            return;
+        }
+
+        relationship = (IArchimateRelationship)IArchimateFactory.eINSTANCE.create(eClass);
+        setNewConcept(relationship, id, name, record);
+        command.add(model.getDefaultFolderForObject(relationship), relationship, source, target);
+
+        relationshipIndex.put(getRelationshipKey(eClass, source, target, name), relationship);
+        created++;
+    }
+
+    private void importProperty(List<String> record, long line) {
+        String id = get(record, "id");
+        EObject eObject = id == null ? null : idIndex.get(id);
+
+        if(!(eObject instanceof IProperties)) {
+            error(NLS.bind(Messages.CSVImporter_2, line, id));
+            return;
+        }
+
+        if(setProperty((IProperties)eObject, get(record, "key"), StringUtils.safeString(get(record, "value")))) {
+            updated++;
+        }
+        else {
+            skipped++;
+        }
+    }
+
+    /**
+     * @return The concept with id, or the element with name
+     */
+    private IArchimateConcept findConcept(String idOrName) {
+        if(idOrName == null) {
+            return null;
+        }
+
+        EObject eObject = idIndex.get(idOrName);
+        if(eObject instanceof IArchimateConcept) {
+            return (IArchimateConcept)eObject;
+        }
+
+        return nameIndex.get(idOrName);
+    }
+
+    /**
+     * @return The specialization with name for the type of concept, adding a new one to the import if there is none
+     */
+    private IProfile getProfile(IArchimateConcept concept, String name) {
+        String type = concept.eClass().getName();
+
+        return profileIndex.computeIfAbsent(type + "|" + name, key -> {
+            IProfile profile = IArchimateFactory.eINSTANCE.createProfile();
+            profile.setName(name);
+            profile.setConceptType(type);
+            command.add(profile);
+            return profile;
+        });
+    }
+
+    private EClass getEClass(List<String> record, long line) {
+        String type = get(record, "type");
+        if(type == null) {
+            type = ModelUtil.getStringValueFromMap(options, "type", "");
+        }
+
+        // Class names as in Archi's export, or kebab case names as in scripts
+        EClass eClass = TypeRegistry.INSTANCE.getEClass(type);
+        if(eClass == null) {
+            error(NLS.bind(Messages.CSVImporter_1, line, type));
+        }
+
+        return eClass;
+    }
+
+    /**
+     * Set up a concept that is not in the model yet. It can be changed directly as adding it is what will be undone.
+     */
+    private void setNewConcept(IArchimateConcept concept, String id, String name, List<String> record) {
+        if(id != null && !idIndex.containsKey(id)) {
+            concept.setId(id);
+        }
+        idIndex.put(concept.getId(), concept);
+
+        concept.setName(name);
+
+        String documentation = get(record, "documentation");
+        if(documentation != null) {
+            concept.setDocumentation(documentation);
+        }
+
+        String specialization = get(record, "specialization");
+        if(specialization != null) {
+            concept.getProfiles().add(getProfile(concept, specialization));
+        }
+
+        setPropertyColumns(concept, record);
+    }
+
+    /**
+     * Update a concept that is in the model
+     */
+    private void updateConcept(IArchimateConcept concept, List<String> record) {
+        if(!update) {
+            skipped++;
+            return;
+        }
+
+        boolean changed = false;
+
+        String name = get(record, "name");
+        if(name != null) {
+            changed |= command.set(concept, IArchimatePackage.Literals.NAMEABLE__NAME, name);
+        }
+
+        String documentation = get(record, "documentation");
+        if(documentation != null) {
+            changed |= command.set(concept, IArchimatePackage.Literals.DOCUMENTABLE__DOCUMENTATION, documentation);
+        }
+
+        String specialization = get(record, "specialization");
+        if(specialization != null) {
+            changed |= command.set(concept, IArchimatePackage.Literals.PROFILES__PROFILES, List.of(getProfile(concept, specialization)));
+        }
+
+        changed |= setPropertyColumns(concept, record);
+
+        if(changed) {
+            updated++;
+        }
+        else {
+            skipped++;
+        }
+    }
+
+    /**
+     * Set the properties in the property columns of record that have a value
+     * @return true if something changed
+     */
+    private boolean setPropertyColumns(IProperties owner, List<String> record) {
+        boolean changed = false;
+
+        for(Map.Entry<Integer, String> entry : propertyColumns.entrySet()) {
+            String value = entry.getKey() < record.size() ? record.get(entry.getKey()) : "";
+            if(!value.isEmpty()) {
+                changed |= setProperty(owner, entry.getValue(), value);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Set the value of the property with key. The nth time key is given for owner in the import, the nth property with key is set,
+     * or a new one is added if owner doesn't have that many.
+     * @return true if something changed
+     */
+    private boolean setProperty(IProperties owner, String key, String value) {
+        int occurrence = propertyCounts.computeIfAbsent(owner, o -> new HashMap<>()).merge(key, 1, Integer::sum);
+
+        int count = 0;
+        for(IProperty property : owner.getProperties()) {
+            if(Objects.equals(key, property.getKey()) && ++count == occurrence) {
+                return update && command.set(property, IArchimatePackage.Literals.PROPERTY__VALUE, value);
+            }
+        }
+
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty(key, value);
+
+        // A new concept is not in the model yet so it can be changed directly
+        if(owner instanceof IArchimateConcept && ((IArchimateConcept)owner).eContainer() == null) {
+            owner.getProperties().add(property);
+        }
+        else {
+            command.add(owner, property);
+        }
+
+        return true;
+    }
+
+    private void error(String message) {
+        errors++;
+        if(messages.size() < MAX_MESSAGES) {
+            messages.add(message);
+        }
+    }
+
+    private Map<String, Object> getReport() {
+        Map<String, Object> report = ProxyUtil.createMap();
+        report.put("rows", rows);
+        report.put("created", created);
+        report.put("updated", updated);
+        report.put("skipped", skipped);
+        report.put("errors", errors);
+        report.put("messages", messages);
+        return report;
+    }
+}
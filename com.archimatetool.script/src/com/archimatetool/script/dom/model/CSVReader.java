@@ -0,0 +1,146 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams records from CSV or TSV text
+ *
+ * Fields may be quoted with double quotes, in which case they can contain the delimiter, new lines and doubled quotes.
+ * A byte order mark at the start of the text is ignored.
+ *
+ * @author Phillip Beauvoir
+ */
+class CSVReader implements Closeable {
+
+    private final Reader reader;
+    private final char delimiter;
+
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+
+    private boolean first = true;
+    private long lineNumber;
+
+    /**
+     * @param reader The reader. It is read in large blocks so it does not need to be buffered.
+     * @param delimiter Field delimiter such as ',' or '\t'
+     */
+    CSVReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return The fields of the next record, or null at the end of the text
+     */
+    List<String> readRecord() throws IOException {
+        int c = read();
+
+        if(first) {
+            first = false;
+            if(c == '\uFEFF') {
+                c = read();
+            }
+        }
+
+        if(c == -1) {
+            return null;
+        }
+
+        lineNumber++;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while(true) {
+            if(quoted) {
+                if(c == -1) {
+                    break;
+                }
+                if(c == '"') {
+                    int next = read();
+                    if(next == '"') {
+                        field.append('"');
+                    }
+                    else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                }
+                else {
+                    if(c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char)c);
+                }
+            }
+            else if(c == '"' && field.length() == 0) {
+                quoted = true;
+            }
+            else if(c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else if(c == '\r' || c == '\n' || c == -1) {
+                if(c == '\r') {
+                    int next = read();
+                    if(next != '\n') {
+                        unread();
+                    }
+                }
+                break;
+            }
+            else {
+                field.append((char)c);
+            }
+
+            c = read();
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * @return The line number of the last record that was read
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    private int read() throws IOException {
+        if(position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if(limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread() {
+        // Only called straight after read() returned a character, so it is still in the buffer
+        if(position > 0) {
+            position--;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.BulkCommand;
+import com.archimatetool.script.commands.CommandHandler;
+import com.archimatetool.script.commands.SetElementOnDiagramModelObjectCommand;
+import com.archimatetool.script.commands.SetRelationshipOnDiagramModelConnectionCommand;
+
+/**
+ * Finds and merges duplicate concepts
+ *
+ * Duplicates are found by hashing each concept once on its type and normalized name, rather than comparing concepts in pairs.
+ * Merging does the same as merge() on each pair of concepts, but the views are searched once for all of the groups
+ * and all of the changes are made by one command.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class ConceptMerger {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Find the concepts in model matching the selector in options (default "element") that have the same type and the same name
+     * once the names are normalized. Names are trimmed, runs of whitespace are made one space and, unless options.ignoreCase is false,
+     * case is ignored. Concepts with no name are not matched. Relationships must also have the same source and target.
+     * @return The groups of duplicates in model order, each with more than one concept
+     */
+    static List<EObjectProxyCollection> findDuplicates(IArchimateModel model, Map<?, ?> options) {
+        String selector = ModelUtil.getStringValueFromMap(options, "selector", "element");
+        boolean ignoreCase = ModelUtil.getBooleanValueFromMap(options, "ignoreCase", true);
+
+        return group(ModelUtil.select(model, selector), concept -> {
+            String name = normalize(concept.getName(), ignoreCase);
+            return name.isEmpty() ? null : name;
+        });
+    }
+
+    /**
+     * Find the elements in model that have the same type and the same key, where the key of each element is the result of keyFn.
+     * Elements for which keyFn returns null or an empty string are not matched.
+     * @return The groups of duplicates in model order, each with more than one concept
+     */
+    static List<EObjectProxyCollection> findDuplicates(IArchimateModel model, Function<EObjectProxy, Object> keyFn) {
+        return group(ModelUtil.select(model, "element"), concept -> {
+            Object key = keyFn.apply(EObjectProxy.get(concept));
+            return "".equals(key) ? null : key;
+        });
+    }
+
+    /**
+     * @return name trimmed, with each run of whitespace as one space, in lower case if ignoreCase is true, and in Unicode NFKC form
+     */
+    static String normalize(String name, boolean ignoreCase) {
+        if(name == null) {
+            return "";
+        }
+
+        name = WHITESPACE.matcher(Normalizer.normalize(name, Normalizer.Form.NFKC)).replaceAll(" ").trim();
+        return ignoreCase ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    private static List<EObjectProxyCollection> group(Iterable<EObject> objects, Function<IArchimateConcept, Object> keyFn) {
+        Map<List<Object>, List<IArchimateConcept>> groups = new LinkedHashMap<>();
+
+        for(EObject eObject : objects) {
+            if(eObject instanceof IArchimateConcept) {
+                IArchimateConcept concept = (IArchimateConcept)eObject;
+                Object key = keyFn.apply(concept);
+                if(key != null) {
+                    List<Object> hashKey = concept instanceof IArchimateRelationship
+                            ? Arrays.asList(concept.eClass(), key, ((IArchimateRelationship)concept).getSource(), ((IArchimateRelationship)concept).getTarget())
+                            : Arrays.asList(concept.eClass(), key);
+                    groups.computeIfAbsent(hashKey, k -> new ArrayList<>(2)).add(concept);
+                }
+            }
+        }
+
+        List<EObjectProxyCollection> duplicates = new ArrayList<>();
+
+        for(List<IArchimateConcept> concepts : groups.values()) {
+            if(concepts.size() > 1) {
+                EObjectProxyCollection collection = new EObjectProxyCollection();
+                for(IArchimateConcept concept : concepts) {
+                    collection.add(EObjectProxy.get(concept));
+                }
+                duplicates.add(collection);
+            }
+        }
+
+        return duplicates;
+    }
+
+    /**
+     * Merge each group of concepts into the first concept of the group.
+     * As with merge(), the documentation and properties of the others are appended to the first concept,
+     * and their relationships and diagram components are moved to it. The others are then deleted.
+     * Every group is checked before anything is changed, and every concept must be in model.
+     * @return The concepts that were merged into, one for each group of more than one concept
+     */
+    static EObjectProxyCollection mergeAll(IArchimateModel model, List<?> groups) {
+        EObjectProxyCollection result = new EObjectProxyCollection();
+
+        // Each concept that is merged away and the concept it is merged into
+        Map<IArchimateConcept, IArchimateConcept> merged = new LinkedHashMap<>();
+        Map<IArchimateConcept, List<IArchimateConcept>> targets = new LinkedHashMap<>();
+        Set<IArchimateConcept> seen = new HashSet<>();
+
+        for(Object group : groups) {
+            Set<IArchimateConcept> concepts = new LinkedHashSet<>();
+            for(Object item : group instanceof Iterable ? (Iterable<?>)group : List.of(group)) {
+                IArchimateConcept concept = getConcept(item);
+                if(concept.getArchimateModel() != model) {
+                    throw new ArchiScriptException(NLS.bind(Messages.ConceptMerger_3, item));
+                }
+                concepts.add(concept);
+            }
+
+            if(concepts.size() < 2) {
+                continue;
+            }
+
+            Iterator<IArchimateConcept> iter = concepts.iterator();
+            IArchimateConcept target = iter.next();
+            List<IArchimateConcept> others = new ArrayList<>();
+
+            while(iter.hasNext()) {
+                IArchimateConcept other = iter.next();
+                if(other.eClass() != target.eClass()) {
+                    throw new ArchiScriptException(NLS.bind(target instanceof IArchimateElement ? Messages.ArchimateElementProxy_0
+                            : Messages.ArchimateRelationshipProxy_2, EObjectProxy.get(other)));
+                }
+                merged.put(other, target);
+                others.add(other);
+            }
+
+            for(IArchimateConcept concept : concepts) {
+                if(!seen.add(concept)) {
+                    throw new ArchiScriptException(NLS.bind(Messages.ConceptMerger_0, EObjectProxy.get(concept)));
+                }
+            }
+
+            targets.put(target, others);
+            result.add(EObjectProxy.get(target));
+        }
+
+        if(merged.isEmpty()) {
+            return result;
+        }
+
+        // Relationships that are merged must have the same ends once their ends are merged
+        for(Entry<IArchimateConcept, IArchimateConcept> entry : merged.entrySet()) {
+            if(entry.getKey() instanceof IArchimateRelationship) {
+                IArchimateRelationship other = (IArchimateRelationship)entry.getKey();
+                IArchimateRelationship target = (IArchimateRelationship)entry.getValue();
+                if(merged.getOrDefault(other.getSource(), other.getSource()) != merged.getOrDefault(target.getSource(), target.getSource())
+                        || merged.getOrDefault(other.getTarget(), other.getTarget()) != merged.getOrDefault(target.getTarget(), target.getTarget())) {
+                    throw new ArchiScriptException(Messages.ArchimateRelationshipProxy_3);
+                }
+            }
+        }
+
+        // Check every relationship that will have a new end
+        Set<IArchimateRelationship> relationships = new LinkedHashSet<>();
+        for(IArchimateConcept concept : merged.keySet()) {
+            relationships.addAll(concept.getSourceRelationships());
+            relationships.addAll(concept.getTargetRelationships());
+        }
+        relationships.removeAll(merged.keySet());
+
+        for(IArchimateRelationship relationship : relationships) {
+            IArchimateConcept source = merged.getOrDefault(relationship.getSource(), relationship.getSource());
+            IArchimateConcept target = merged.getOrDefault(relationship.getTarget(), relationship.getTarget());
+            if(!TypeRegistry.INSTANCE.isValidRelationship(source, target, relationship.eClass())) {
+                throw new ArchiScriptException(NLS.bind(Messages.ConceptMerger_1,
+                        new Object[] { relationship.eClass().getName(), EObjectProxy.get(source), EObjectProxy.get(target) }));
+            }
+        }
+
+        BulkCommand cmd = new BulkCommand("merge", model); //$NON-NLS-1$
+
+        for(Entry<IArchimateConcept, List<IArchimateConcept>> entry : targets.entrySet()) {
+            IArchimateConcept target = entry.getKey();
+            StringBuilder documentation = new StringBuilder(target.getDocumentation());
+
+            for(IArchimateConcept other : entry.getValue()) {
+                if(other.getDocumentation().length() > 0) {
+                    if(documentation.length() > 0) {
+                        documentation.append('\n');
+                    }
+                    documentation.append(other.getDocumentation());
+                }
+                for(IProperty property : EcoreUtil.copyAll(other.getProperties())) {
+                    cmd.add(target, property);
+                }
+            }
+
+            cmd.set(target, IArchimatePackage.Literals.DOCUMENTABLE__DOCUMENTATION, documentation.toString());
+        }
+
+        for(IArchimateRelationship relationship : relationships) {
+            cmd.reconnect(relationship, merged.getOrDefault(relationship.getSource(), relationship.getSource()),
+                    merged.getOrDefault(relationship.getTarget(), relationship.getTarget()));
+        }
+
+        // Find the diagram components in one pass over the views
+        for(IDiagramModel dm : model.getDiagramModels()) {
+            for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IDiagramModelArchimateObject) {
+                    IArchimateConcept target = merged.get(((IDiagramModelArchimateObject)eObject).getArchimateElement());
+                    if(target != null) {
+                        cmd.add(new SetElementOnDiagramModelObjectCommand((IArchimateElement)target, (IDiagramModelArchimateObject)eObject, false));
+                    }
+                }
+                else if(eObject instanceof IDiagramModelArchimateConnection) {
+                    IArchimateConcept target = merged.get(((IDiagramModelArchimateConnection)eObject).getArchimateRelationship());
+                    if(target != null) {
+                        cmd.add(new SetRelationshipOnDiagramModelConnectionCommand((IArchimateRelationship)target, (IDiagramModelArchimateConnection)eObject));
+                    }
+                }
+            }
+        }
+
+        for(IArchimateConcept concept : merged.keySet()) {
+            cmd.remove(concept);
+        }
+
+        CommandHandler.executeCommand(cmd);
+
+        return result;
+    }
+
+    private static IArchimateConcept getConcept(Object item) {
+        if(item instanceof ArchimateConceptProxy && ((ArchimateConceptProxy)item).getEObject().getArchimateModel() != null) {
+            return ((ArchimateConceptProxy)item).getEObject();
+        }
+        throw new ArchiScriptException(NLS.bind(Messages.ConceptMerger_2, item));
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.BulkCommand;
+import com.archimatetool.script.commands.CommandHandler;
+import com.archimatetool.script.commands.SetElementOnDiagramModelObjectCommand;
+import com.archimatetool.script.commands.SetRelationshipOnDiagramModelConnectionCommand;
+
+/**
+ * Changes the type of many concepts at once
+ *
+ * Does the same as setType() on each element or relationship, but all the relationships to check are checked against the TypeRegistry
+ * before anything is changed, the views are searched once for all of the concepts, and all of the changes are made by one command.
+ *
+ * @author Phillip Beauvoir
+ */
+class ConceptRetyper {
+
+    /**
+     * Set the type of the elements in collection if type is an element type, or of the relationships if type is a relationship type.
+     * Each concept is replaced with a new concept of type, and the collection's proxies are set to the new concepts.
+     */
+    static void setType(EObjectProxyCollection collection, String type) {
+        EClass eClass = TypeRegistry.INSTANCE.getEClass(type);
+
+        EClass kind;
+        if(TypeRegistry.INSTANCE.isElementType(type)) {
+            kind = IArchimatePackage.eINSTANCE.getArchimateElement();
+        }
+        else if(TypeRegistry.INSTANCE.isRelationshipType(type)) {
+            kind = IArchimatePackage.eINSTANCE.getArchimateRelationship();
+        }
+        else {
+            throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_0, type));
+        }
+
+        // Concepts to change and the proxies to update
+        Map<IArchimateConcept, List<ArchimateConceptProxy>> concepts = new LinkedHashMap<>();
+        for(EObjectProxy proxy : collection) {
+            if(proxy instanceof ArchimateConceptProxy && kind.isInstance(proxy.getEObject()) && proxy.getEObject().eClass() != eClass
+                    && ((IArchimateConcept)proxy.getEObject()).getArchimateModel() != null) {
+                concepts.computeIfAbsent((IArchimateConcept)proxy.getEObject(), c -> new ArrayList<>()).add((ArchimateConceptProxy)proxy);
+            }
+        }
+
+        if(concepts.isEmpty()) {
+            return;
+        }
+
+        IArchimateModel model = null;
+        for(IArchimateConcept concept : concepts.keySet()) {
+            ModelUtil.checkComponentsInSameModel(model, concept);
+            model = concept.getArchimateModel();
+        }
+
+        // Check every relationship that will have a new type or a new end
+        Set<IArchimateRelationship> relationships = new LinkedHashSet<>();
+        for(IArchimateConcept concept : concepts.keySet()) {
+            relationships.addAll(concept.getSourceRelationships());
+            relationships.addAll(concept.getTargetRelationships());
+            if(concept instanceof IArchimateRelationship) {
+                relationships.add((IArchimateRelationship)concept);
+            }
+        }
+
+        for(IArchimateRelationship relationship : relationships) {
+            EClass sourceClass = concepts.containsKey(relationship.getSource()) ? eClass : relationship.getSource().eClass();
+            EClass targetClass = concepts.containsKey(relationship.getTarget()) ? eClass : relationship.getTarget().eClass();
+            EClass relationshipClass = concepts.containsKey(relationship) ? eClass : relationship.eClass();
+            if(!TypeRegistry.INSTANCE.isValidRelationship(sourceClass, targetClass, relationshipClass)) {
+                throw new ArchiScriptException(NLS.bind(Messages.ArchimateConceptProxy_1, type));
+            }
+        }
+
+        // Create the new concepts
+        Map<IArchimateConcept, IArchimateConcept> replacements = new HashMap<>();
+        Map<IFolder, Map<EClass, IFolder>> folders = new HashMap<>();
+        RetypeCommand cmd = new RetypeCommand(model);
+
+        for(IArchimateConcept concept : concepts.keySet()) {
+            IArchimateConcept newConcept = (IArchimateConcept)IArchimateFactory.eINSTANCE.create(eClass);
+            newConcept.setName(concept.getName());
+            newConcept.setDocumentation(concept.getDocumentation());
+            newConcept.getProperties().addAll(EcoreUtil.copyAll(concept.getProperties()));
+            newConcept.getFeatures().addAll(EcoreUtil.copyAll(concept.getFeatures()));
+            replacements.put(concept, newConcept);
+
+            IFolder folder = (IFolder)concept.eContainer();
+            // Keep the folder if it is correct for the new type
+            IFolder newFolder = folders.computeIfAbsent(folder, f -> new HashMap<>()).computeIfAbsent(eClass,
+                    e -> ModelUtil.isCorrectFolderForObject(folder, newConcept) ? folder : folder.getArchimateModel().getDefaultFolderForObject(newConcept));
+
+            cmd.replace(concept, newConcept, newFolder, concepts.get(concept));
+        }
+
+        // Move the ends of the other relationships
+        for(IArchimateRelationship relationship : relationships) {
+            if(!concepts.containsKey(relationship)) {
+                cmd.reconnect(relationship, replacements.getOrDefault(relationship.getSource(), relationship.getSource()),
+                        replacements.getOrDefault(relationship.getTarget(), relationship.getTarget()));
+            }
+            else {
+                cmd.connect((IArchimateRelationship)replacements.get(relationship),
+                        replacements.getOrDefault(relationship.getSource(), relationship.getSource()),
+                        replacements.getOrDefault(relationship.getTarget(), relationship.getTarget()));
+            }
+        }
+
+        // Find the diagram components in one pass over the views
+        for(IDiagramModel dm : model.getDiagramModels()) {
+            for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IDiagramModelArchimateObject) {
+                    IArchimateConcept newConcept = replacements.get(((IDiagramModelArchimateObject)eObject).getArchimateElement());
+                    if(newConcept != null) {
+                        cmd.add(new SetElementOnDiagramModelObjectCommand((IArchimateElement)newConcept, (IDiagramModelArchimateObject)eObject, true));
+                    }
+                }
+                else if(eObject instanceof IDiagramModelArchimateConnection) {
+                    IArchimateConcept newConcept = replacements.get(((IDiagramModelArchimateConnection)eObject).getArchimateRelationship());
+                    if(newConcept != null) {
+                        cmd.add(new SetRelationshipOnDiagramModelConnectionCommand((IArchimateRelationship)newConcept, (IDiagramModelArchimateConnection)eObject));
+                    }
+                }
+            }
+        }
+
+        CommandHandler.executeCommand(cmd);
+    }
+
+    /**
+     * Adds the new concepts, moves relationships and diagram components to them, removes the old concepts,
+     * and sets the proxies of the old concepts to the new concepts
+     */
+    private static class RetypeCommand extends BulkCommand {
+        private List<IArchimateConcept> oldConcepts = new ArrayList<>();
+        private List<IArchimateConcept> newConcepts = new ArrayList<>();
+        private List<List<ArchimateConceptProxy>> proxies = new ArrayList<>();
+
+        RetypeCommand(IArchimateModel model) {
+            super("setType", model); //$NON-NLS-1$
+        }
+
+        void replace(IArchimateConcept oldConcept, IArchimateConcept newConcept, IFolder folder, List<ArchimateConceptProxy> conceptProxies) {
+            add(folder, newConcept);
+            remove(oldConcept);
+            oldConcepts.add(oldConcept);
+            newConcepts.add(newConcept);
+            proxies.add(conceptProxies);
+        }
+
+        @Override
+        public void perform() {
+            super.perform();
+
+            for(int i = 0; i < proxies.size(); i++) {
+                for(ArchimateConceptProxy proxy : proxies.get(i)) {
+                    proxy.setEObject(newConcepts.get(i));
+                }
+            }
+        }
+
+        @Override
+        public void undo() {
+            for(int i = 0; i < proxies.size(); i++) {
+                for(ArchimateConceptProxy proxy : proxies.get(i)) {
+                    proxy.setEObject(oldConcepts.get(i));
+                }
+            }
+
+            super.undo();
+        }
+
+        @Override
+        public void dispose() {
+            super.dispose();
+            oldConcepts = null;
+            newConcepts = null;
+            proxies = null;
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.eclipse.ui.PlatformUI;
 import com.archimatetool.commandline.CommandLineState;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.ScriptRunContext;
 import com.archimatetool.script.WorkbenchPartTracker;
 import com.archimatetool.script.dom.IArchiScriptBinding;
 
@@ -25,19 +26,32 @@ import com.archimatetool.script.dom.IArchiScriptBinding;
  */
 public class CurrentModel extends ArchimateModelProxy implements IArchiScriptBinding {
     
-    private static CurrentModel instance;
-    
     /**
-     * Set the singleton instance's underlying model to the one in modelProxy
+     * Set the current script run's instance's underlying model to the one in modelProxy
      */
     static void setAsCurrentModel(ArchimateModelProxy modelProxy) {
-        instance.setEObject(modelProxy.getEObject());
+        ScriptRunContext context = ScriptRunContext.current();
+        
+        // The "model" DOM object is created lazily so create it now if the script hasn't used it yet
+        if(context.getCurrentModel() == null && context.getDomBindings() != null) {
+            context.getDomBindings().get("model"); //$NON-NLS-1$
+        }
+        
+        if(context.getCurrentModel() == null) {
+            throw new ArchiScriptException(Messages.CurrentModel_0);
+        }
+        
+        context.getCurrentModel().setEObject(modelProxy.getEObject());
     }
     
     public CurrentModel() {
         super(null);
         
-        instance = this;
+        // If there is no script running this is not the "model" of a run and setAsCurrentModel() won't find it
+        ScriptRunContext context = ScriptRunContext.find();
+        if(context != null) {
+            context.setCurrentModel(this);
+        }
         
         // If the workbench is running determine if there is an active part containing an IArchimateModel we can set this to
         if(PlatformUI.isWorkbenchRunning()) {
@@ -48,9 +62,10 @@ public class CurrentModel extends ArchimateModelProxy implements IArchiScriptBin
                 setEObject(activePart.getAdapter(IArchimateModel.class));
             }
         }
-        // Else, if we are running in CLI mode, get the Current Model if there is one
+        // Else, if we are running in CLI mode, get the run's model or the Current Model if there is one
         else {
-            setEObject(CommandLineState.getModel());
+            IArchimateModel model = context != null ? context.getModel() : null;
+            setEObject(model != null ? model : CommandLineState.getModel());
         }
     }
     
@@ -66,7 +81,12 @@ public class CurrentModel extends ArchimateModelProxy implements IArchiScriptBin
     
     @Override
     public void dispose() {
-        instance = null;    // Definitely need to set this to null for both Nashorn and GraalVM
+        // Definitely need to release this for both Nashorn and GraalVM
+        ScriptRunContext context = ScriptRunContext.find();
+        if(context != null && context.getCurrentModel() == this) {
+            context.setCurrentModel(null);
+        }
+        
         setEObject(null);   // Set this to null because of a Nashorn memory leak
     }
 }
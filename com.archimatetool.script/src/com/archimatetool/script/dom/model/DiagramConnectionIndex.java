@@ -0,0 +1,254 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelComponent;
+import com.archimatetool.model.IDiagramModelConnection;
+
+/**
+ * The connections in a view
+ *
+ * The list is made the first time it is asked for and then kept up to date from ModelChangeTracker.
+ * Connections are contained in the source connections of the object or connection they come from, so when connections
+ * or objects are added to or removed from the view only the connections they contain are put in or taken out of the list.
+ *
+ * @author Phillip Beauvoir
+ */
+class DiagramConnectionIndex extends AdapterImpl {
+
+    /**
+     * @return The connections in dm in the order they are in the view
+     */
+    static List<IDiagramModelConnection> getConnections(IDiagramModel dm) {
+        IArchimateModel model = dm.getArchimateModel();
+
+        // Not in a model so can't be kept up to date
+        if(model == null) {
+            return findConnections(dm);
+        }
+
+        DiagramConnectionIndex index = null;
+
+        synchronized(DiagramConnectionIndex.class) {
+            for(Adapter adapter : new ArrayList<>(dm.eAdapters())) {
+                if(adapter instanceof DiagramConnectionIndex) {
+                    index = (DiagramConnectionIndex)adapter;
+
+                    // The model was closed since the index was made
+                    if(index.tracker.isDisposed()) {
+                        dm.eAdapters().remove(index);
+                        index = null;
+                    }
+                    break;
+                }
+            }
+
+            if(index == null) {
+                index = new DiagramConnectionIndex(dm, ModelChangeTracker.get(model));
+                dm.eAdapters().add(index);
+            }
+        }
+
+        return index.getConnections();
+    }
+
+    private static List<IDiagramModelConnection> findConnections(EObject eObject) {
+        List<IDiagramModelConnection> list = new ArrayList<>();
+
+        if(eObject instanceof IDiagramModelConnection) {
+            list.add((IDiagramModelConnection)eObject);
+        }
+
+        for(Iterator<EObject> iter = eObject.eAllContents(); iter.hasNext();) {
+            EObject child = iter.next();
+            if(child instanceof IDiagramModelConnection) {
+                list.add((IDiagramModelConnection)child);
+            }
+        }
+
+        return list;
+    }
+
+    private final IDiagramModel dm;
+
+    private final ModelChangeTracker tracker;
+    private final Consumer<Notification> listener = this::modelChanged;
+
+    // Null until the list is first asked for
+    private List<IDiagramModelConnection> connections;
+
+    // Read-only copy of connections that is given out, null when connections has changed
+    private List<IDiagramModelConnection> snapshot;
+
+    private boolean disposed;
+
+    private DiagramConnectionIndex(IDiagramModel dm, ModelChangeTracker tracker) {
+        this.dm = dm;
+        this.tracker = tracker;
+        tracker.addListener(listener);
+    }
+
+    private synchronized List<IDiagramModelConnection> getConnections() {
+        if(connections == null) {
+            connections = findConnections(dm);
+        }
+        if(snapshot == null) {
+            snapshot = Collections.unmodifiableList(new ArrayList<>(connections));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Stop keeping the list and remove the index from the view
+     */
+    private void dispose() {
+        disposed = true;
+        connections = null;
+        snapshot = null;
+        tracker.removeListener(listener);
+        dm.eAdapters().remove(this);
+    }
+
+    private synchronized void modelChanged(Notification notification) {
+        if(disposed) {
+            return;
+        }
+
+        Object feature = notification.getFeature();
+        if(!(feature instanceof EReference) || !((EReference)feature).isContainment()) {
+            return;
+        }
+
+        // The view was removed from the model so stop keeping the list. A new one is made if the view is put back.
+        if(dm.getArchimateModel() == null) {
+            dispose();
+            return;
+        }
+
+        // Connections or objects added to, removed from or moved in this view
+        if(connections != null && (feature == IArchimatePackage.Literals.DIAGRAM_MODEL_CONTAINER__CHILDREN
+                || feature == IArchimatePackage.Literals.CONNECTABLE__SOURCE_CONNECTIONS)) {
+            Object notifier = notification.getNotifier();
+            if(notifier != dm && !(notifier instanceof IDiagramModelComponent && ((IDiagramModelComponent)notifier).getDiagramModel() == dm)) {
+                return;
+            }
+
+            switch(notification.getEventType()) {
+                case Notification.ADD:
+                case Notification.ADD_MANY:
+                    for(EObject added : getEObjects(notification.getNewValue())) {
+                        for(IDiagramModelConnection connection : findConnections(added)) {
+                            insert(connection);
+                        }
+                    }
+                    break;
+
+                case Notification.REMOVE:
+                case Notification.REMOVE_MANY:
+                    for(EObject removed : getEObjects(notification.getOldValue())) {
+                        connections.removeAll(new HashSet<>(findConnections(removed)));
+                    }
+                    break;
+
+                case Notification.MOVE:
+                    for(EObject moved : getEObjects(notification.getNewValue())) {
+                        List<IDiagramModelConnection> list = findConnections(moved);
+                        connections.removeAll(new HashSet<>(list));
+                        for(IDiagramModelConnection connection : list) {
+                            insert(connection);
+                        }
+                    }
+                    break;
+
+                default:
+                    // Anything else, make the list again
+                    connections = null;
+                    break;
+            }
+
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Put connection in the list at its position in the view
+     */
+    private void insert(IDiagramModelConnection connection) {
+        Map<EObject, int[]> paths = new HashMap<>();
+        int index = Collections.binarySearch(connections, connection, (a, b) -> comparePaths(
+                paths.computeIfAbsent(a, DiagramConnectionIndex::getPath),
+                paths.computeIfAbsent(b, DiagramConnectionIndex::getPath)));
+        connections.add(index < 0 ? -index - 1 : index, connection);
+    }
+
+    /**
+     * Compare the position of two objects when the view's contents are visited in order, parents before their children
+     */
+    private static int comparePaths(int[] pathA, int[] pathB) {
+        for(int i = 0; i < pathA.length && i < pathB.length; i++) {
+            if(pathA[i] != pathB[i]) {
+                return Integer.compare(pathA[i], pathB[i]);
+            }
+        }
+
+        return Integer.compare(pathA.length, pathB.length);
+    }
+
+    /**
+     * @return The containment feature and the index in it of eObject and each of its parent objects, from the top of the view down
+     */
+    private static int[] getPath(EObject eObject) {
+        List<Integer> indexes = new ArrayList<>();
+
+        for(EObject e = eObject; !(e instanceof IDiagramModel) && e.eContainer() != null; e = e.eContainer()) {
+            EReference feature = e.eContainmentFeature();
+            indexes.add(feature.isMany() ? ((List<?>)e.eContainer().eGet(feature)).indexOf(e) : 0);
+            indexes.add(e.eContainer().eClass().getEAllContainments().indexOf(feature));
+        }
+
+        int[] path = new int[indexes.size()];
+        for(int i = 0; i < path.length; i++) {
+            path[i] = indexes.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    private static List<EObject> getEObjects(Object value) {
+        List<EObject> list = new ArrayList<>();
+
+        if(value instanceof EObject) {
+            list.add((EObject)value);
+        }
+        else if(value instanceof Collection<?>) {
+            for(Object o : (Collection<?>)value) {
+                if(o instanceof EObject) {
+                    list.add((EObject)o);
+                }
+            }
+        }
+
+        return list;
+    }
+}
@@ -0,0 +1,641 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelBendpoint;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.CommandHandler;
+import com.archimatetool.script.commands.SetBoundsCommand;
+
+/**
+ * Lays out the top level objects of a view
+ *
+ * The positions of all of the objects and the bendpoints of the connections between them are worked out first
+ * and then set by one command. Nested objects move with their top level object.
+ *
+ * Algorithms are:
+ * "grid" - objects in rows and columns in the order they are in the view.
+ * "layered" - objects in layers following the direction of their connections, with fewer crossings. Connections that cross layers get bendpoints.
+ * "tree" - objects as trees, each under the first object that connects to it.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class DiagramLayout {
+
+    static final String GRID = "grid";
+    static final String LAYERED = "layered";
+    static final String TREE = "tree";
+
+    // Number of up and down passes to reduce crossings in layered layout
+    private static final int ORDERING_PASSES = 8;
+
+    /**
+     * Lay out the top level objects of dm.
+     * Options are "algorithm" (default "layered"), "x" and "y" of the top left (default 20),
+     * "hSpacing" and "vSpacing" between objects (default 40), "direction" of layers, "down" (default) or "right",
+     * and "columns" for grid layout (default the square root of the number of objects).
+     */
+    static void layout(IDiagramModel dm, Map<?, ?> options) {
+        String algorithm = ModelUtil.getStringValueFromMap(options, "algorithm", LAYERED);
+
+        DiagramLayout layout = new DiagramLayout(dm, options);
+        if(layout.nodes.isEmpty()) {
+            return;
+        }
+
+        switch(algorithm) {
+            case GRID:
+                layout.layoutGrid(ModelUtil.getIntValueFromMap(options, "columns", 0));
+                break;
+
+            case LAYERED:
+                layout.layoutLayered();
+                break;
+
+            case TREE:
+                layout.layoutTree();
+                break;
+
+            default:
+                throw new ArchiScriptException(NLS.bind(Messages.DiagramLayout_0, algorithm));
+        }
+
+        SetBoundsCommand cmd = layout.createCommand();
+        if(cmd.canExecute()) {
+            CommandHandler.executeCommand(cmd);
+        }
+    }
+
+    private final IDiagramModel dm;
+
+    private final int originX, originY, hSpacing, vSpacing;
+    private final boolean horizontal;
+
+    // Top level objects and their sizes
+    private final List<IDiagramModelObject> nodes;
+    private final Map<EObject, Integer> nodeIndex = new HashMap<>();
+    private final int[] widths, heights;
+
+    // Connections between different top level objects and the index of the objects they join, including nested objects' connections
+    private final Map<IDiagramModelConnection, int[]> connectionEnds = new LinkedHashMap<>();
+
+    // New position of each top level object
+    private int[] xs, ys;
+
+    // New absolute bendpoints of connections. Other connections in connectionEnds have their bendpoints removed.
+    private final Map<IDiagramModelConnection, List<int[]>> routes = new HashMap<>();
+
+    private DiagramLayout(IDiagramModel dm, Map<?, ?> options) {
+        this.dm = dm;
+
+        originX = ModelUtil.getIntValueFromMap(options, "x", 20);
+        originY = ModelUtil.getIntValueFromMap(options, "y", 20);
+        hSpacing = ModelUtil.getIntValueFromMap(options, "hSpacing", 40);
+        vSpacing = ModelUtil.getIntValueFromMap(options, "vSpacing", 40);
+        horizontal = "right".equals(ModelUtil.getStringValueFromMap(options, "direction", "down"));
+
+        nodes = new ArrayList<>(dm.getChildren());
+        widths = new int[nodes.size()];
+        heights = new int[nodes.size()];
+
+        for(int i = 0; i < nodes.size(); i++) {
+            nodeIndex.put(nodes.get(i), i);
+            int[] size = getSize(nodes.get(i), nodes.get(i).getBounds());
+            widths[i] = size[2];
+            heights[i] = size[3];
+        }
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelConnection) {
+                IDiagramModelConnection connection = (IDiagramModelConnection)eObject;
+                Integer source = nodeIndex.get(getTopLevelObject(connection.getSource()));
+                Integer target = nodeIndex.get(getTopLevelObject(connection.getTarget()));
+                if(source != null && target != null && !source.equals(target)) {
+                    connectionEnds.put(connection, new int[] { source, target });
+                }
+            }
+        }
+    }
+
+    /**
+     * Objects in rows and columns, each in a cell the size of the largest object
+     */
+    private void layoutGrid(int columns) {
+        int count = nodes.size();
+        if(columns <= 0) {
+            columns = (int)Math.ceil(Math.sqrt(count));
+        }
+
+        int cellWidth = 0, cellHeight = 0;
+        for(int i = 0; i < count; i++) {
+            cellWidth = Math.max(cellWidth, widths[i]);
+            cellHeight = Math.max(cellHeight, heights[i]);
+        }
+
+        xs = new int[count];
+        ys = new int[count];
+
+        for(int i = 0; i < count; i++) {
+            xs[i] = originX + (i % columns) * (cellWidth + hSpacing);
+            ys[i] = originY + (i / columns) * (cellHeight + vSpacing);
+        }
+    }
+
+    /**
+     * Layered layout. Cycles are broken, objects are put in the layer after the longest path to them,
+     * connections that cross layers are given a point in each layer, and the order in each layer is improved
+     * by moving objects to the average position of the objects they connect to.
+     */
+    private void layoutLayered() {
+        int count = nodes.size();
+        List<List<Integer>> successors = getAcyclicSuccessors();
+
+        // Layer of each object, including the points added for connections that cross layers
+        List<Integer> layerOf = new ArrayList<>(Collections.nCopies(count, 0));
+        for(int v : getTopologicalOrder(successors)) {
+            for(int w : successors.get(v)) {
+                layerOf.set(w, Math.max(layerOf.get(w), layerOf.get(v) + 1));
+            }
+        }
+
+        List<List<Integer>> down = new ArrayList<>();
+        List<List<Integer>> up = new ArrayList<>();
+        for(int v = 0; v < count; v++) {
+            down.add(new ArrayList<>());
+            up.add(new ArrayList<>());
+        }
+
+        // Points added for each connection that crosses layers
+        Map<Long, List<Integer>> chains = new HashMap<>();
+
+        for(int v = 0; v < count; v++) {
+            for(int w : successors.get(v)) {
+                int previous = v;
+                List<Integer> chain = new ArrayList<>();
+                for(int layer = layerOf.get(v) + 1; layer < layerOf.get(w); layer++) {
+                    int point = layerOf.size();
+                    layerOf.add(layer);
+                    down.add(new ArrayList<>());
+                    up.add(new ArrayList<>());
+                    down.get(previous).add(point);
+                    up.get(point).add(previous);
+                    chain.add(point);
+                    previous = point;
+                }
+                down.get(previous).add(w);
+                up.get(w).add(previous);
+                if(!chain.isEmpty()) {
+                    chains.put(edgeKey(v, w), chain);
+                }
+            }
+        }
+
+        int layerCount = Collections.max(layerOf) + 1;
+        List<List<Integer>> layers = new ArrayList<>();
+        for(int i = 0; i < layerCount; i++) {
+            layers.add(new ArrayList<>());
+        }
+        for(int v = 0; v < layerOf.size(); v++) {
+            layers.get(layerOf.get(v)).add(v);
+        }
+
+        // Reduce crossings
+        double[] position = new double[layerOf.size()];
+        for(List<Integer> layer : layers) {
+            setPositions(layer, position);
+        }
+
+        for(int pass = 0; pass < ORDERING_PASSES; pass++) {
+            if(pass % 2 == 0) {
+                for(int i = 1; i < layerCount; i++) {
+                    orderByNeighbours(layers.get(i), up, position);
+                }
+            }
+            else {
+                for(int i = layerCount - 2; i >= 0; i--) {
+                    orderByNeighbours(layers.get(i), down, position);
+                }
+            }
+        }
+
+        // Positions along the layers and across them
+        int[] cross = new int[layerOf.size()];
+        int[] layerStart = new int[layerCount];
+        int[] layerSize = new int[layerCount];
+        placeLayers(layers, layerStart, layerSize);
+
+        int crossSpacing = horizontal ? vSpacing : hSpacing;
+        int[] layerLength = new int[layerCount];
+        int maxLength = 0;
+
+        for(int i = 0; i < layerCount; i++) {
+            int c = 0;
+            for(int v : layers.get(i)) {
+                cross[v] = c;
+                c += getCrossSize(v) + crossSpacing;
+            }
+            layerLength[i] = Math.max(0, c - crossSpacing);
+            maxLength = Math.max(maxLength, layerLength[i]);
+        }
+
+        // Centre each layer
+        for(int i = 0; i < layerCount; i++) {
+            for(int v : layers.get(i)) {
+                cross[v] += (maxLength - layerLength[i]) / 2;
+            }
+        }
+
+        setPositions(layerOf, cross, layerStart, layerSize);
+
+        // Bendpoints at the points added for connections that cross layers
+        for(Entry<IDiagramModelConnection, int[]> entry : connectionEnds.entrySet()) {
+            int source = entry.getValue()[0], target = entry.getValue()[1];
+            List<Integer> chain = chains.get(edgeKey(source, target));
+            if(chain == null) {
+                chain = chains.get(edgeKey(target, source));
+                if(chain != null) {
+                    chain = new ArrayList<>(chain);
+                    Collections.reverse(chain);
+                }
+            }
+
+            if(chain != null) {
+                List<int[]> points = new ArrayList<>();
+                for(int point : chain) {
+                    int layer = layerOf.get(point);
+                    int main = layerStart[layer] + layerSize[layer] / 2;
+                    points.add(horizontal ? new int[] { originX + main, originY + cross[point] } : new int[] { originX + cross[point], originY + main });
+                }
+                routes.put(entry.getKey(), points);
+            }
+        }
+    }
+
+    /**
+     * Tree layout. Each object is placed under the first object that connects to it, and centred over the objects under it.
+     */
+    private void layoutTree() {
+        int count = nodes.size();
+        List<List<Integer>> successors = getAcyclicSuccessors();
+
+        int[] parent = new int[count];
+        Arrays.fill(parent, -1);
+        List<List<Integer>> children = new ArrayList<>();
+        for(int v = 0; v < count; v++) {
+            children.add(new ArrayList<>());
+        }
+
+        for(int v = 0; v < count; v++) {
+            for(int w : successors.get(v)) {
+                if(parent[w] == -1) {
+                    parent[w] = v;
+                    children.get(v).add(w);
+                }
+            }
+        }
+
+        // Depth of each object
+        List<Integer> layerOf = new ArrayList<>(Collections.nCopies(count, 0));
+        List<Integer> roots = new ArrayList<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+        for(int v = 0; v < count; v++) {
+            if(parent[v] == -1) {
+                roots.add(v);
+                queue.add(v);
+            }
+        }
+
+        List<List<Integer>> layers = new ArrayList<>();
+        while(!queue.isEmpty()) {
+            int v = queue.poll();
+            if(layers.size() <= layerOf.get(v)) {
+                layers.add(new ArrayList<>());
+            }
+            layers.get(layerOf.get(v)).add(v);
+            for(int w : children.get(v)) {
+                layerOf.set(w, layerOf.get(v) + 1);
+                queue.add(w);
+            }
+        }
+
+        int[] cross = new int[count];
+        int next = 0;
+        for(int root : roots) {
+            next = placeSubtree(root, next, children, cross);
+        }
+
+        int[] layerStart = new int[layers.size()];
+        int[] layerSize = new int[layers.size()];
+        placeLayers(layers, layerStart, layerSize);
+
+        setPositions(layerOf, cross, layerStart, layerSize);
+    }
+
+    /**
+     * Place the objects in the tree from v across from start
+     * @return Where the next tree can start
+     */
+    private int placeSubtree(int v, int start, List<List<Integer>> children, int[] cross) {
+        int spacing = horizontal ? vSpacing : hSpacing;
+        int size = getCrossSize(v);
+
+        List<Integer> list = children.get(v);
+        if(list.isEmpty()) {
+            cross[v] = start;
+            return start + size + spacing;
+        }
+
+        int next = start;
+        for(int w : list) {
+            next = placeSubtree(w, next, children, cross);
+        }
+
+        int first = list.get(0), last = list.get(list.size() - 1);
+        int position = (cross[first] + getCrossSize(first) / 2 + cross[last] + getCrossSize(last) / 2) / 2 - size / 2;
+
+        // Object is wider than the objects under it so move them across
+        if(position < start) {
+            for(int w : list) {
+                shiftSubtree(w, start - position, children, cross);
+            }
+            next += start - position;
+            position = start;
+        }
+
+        cross[v] = position;
+        return Math.max(next, position + size + spacing);
+    }
+
+    private void shiftSubtree(int v, int distance, List<List<Integer>> children, int[] cross) {
+        cross[v] += distance;
+        for(int w : children.get(v)) {
+            shiftSubtree(w, distance, children, cross);
+        }
+    }
+
+    /**
+     * Each layer is as deep as its largest object. Work out where each layer starts.
+     */
+    private void placeLayers(List<List<Integer>> layers, int[] layerStart, int[] layerSize) {
+        int mainSpacing = horizontal ? hSpacing : vSpacing;
+        int start = 0;
+
+        for(int i = 0; i < layers.size(); i++) {
+            for(int v : layers.get(i)) {
+                layerSize[i] = Math.max(layerSize[i], getMainSize(v));
+            }
+            layerStart[i] = start;
+            start += layerSize[i] + mainSpacing;
+        }
+    }
+
+    /**
+     * Set the position of each top level object from its layer and its position across the layer. Objects are centred in their layer.
+     */
+    private void setPositions(List<Integer> layerOf, int[] cross, int[] layerStart, int[] layerSize) {
+        int count = nodes.size();
+        xs = new int[count];
+        ys = new int[count];
+
+        for(int v = 0; v < count; v++) {
+            int layer = layerOf.get(v);
+            int main = layerStart[layer] + (layerSize[layer] - getMainSize(v)) / 2;
+            xs[v] = originX + (horizontal ? main : cross[v]);
+            ys[v] = originY + (horizontal ? cross[v] : main);
+        }
+    }
+
+    /**
+     * Order layer by the average position of each object's neighbours in the layer before. Objects with no neighbours keep their position.
+     */
+    private static void orderByNeighbours(List<Integer> layer, List<List<Integer>> neighbours, double[] position) {
+        Map<Integer, Double> keys = new HashMap<>();
+
+        for(int v : layer) {
+            List<Integer> list = neighbours.get(v);
+            if(list.isEmpty()) {
+                keys.put(v, position[v]);
+            }
+            else {
+                double sum = 0;
+                for(int w : list) {
+                    sum += position[w];
+                }
+                keys.put(v, sum / list.size());
+            }
+        }
+
+        layer.sort(Comparator.comparingDouble(keys::get));
+        setPositions(layer, position);
+    }
+
+    private static void setPositions(List<Integer> layer, double[] position) {
+        for(int i = 0; i < layer.size(); i++) {
+            position[layer.get(i)] = i;
+        }
+    }
+
+    /**
+     * @return The successors of each top level object following the connections, with connections that go back
+     * to an object that is being visited reversed so that there are no cycles
+     */
+    private List<List<Integer>> getAcyclicSuccessors() {
+        int count = nodes.size();
+
+        List<Set<Integer>> connected = new ArrayList<>();
+        List<List<Integer>> successors = new ArrayList<>();
+        for(int v = 0; v < count; v++) {
+            connected.add(new LinkedHashSet<>());
+            successors.add(new ArrayList<>());
+        }
+        for(int[] ends : connectionEnds.values()) {
+            connected.get(ends[0]).add(ends[1]);
+        }
+
+        Set<Long> added = new HashSet<>();
+        int[] state = new int[count]; // 0 not visited, 1 being visited, 2 visited
+
+        for(int root = 0; root < count; root++) {
+            if(state[root] != 0) {
+                continue;
+            }
+
+            Deque<Iterator<Integer>> iterators = new ArrayDeque<>();
+            Deque<Integer> path = new ArrayDeque<>();
+            state[root] = 1;
+            path.push(root);
+            iterators.push(connected.get(root).iterator());
+
+            while(!path.isEmpty()) {
+                int v = path.peek();
+                Iterator<Integer> iter = iterators.peek();
+
+                if(iter.hasNext()) {
+                    int w = iter.next();
+                    boolean back = state[w] == 1;
+                    int from = back ? w : v, to = back ? v : w;
+                    if(added.add(edgeKey(from, to))) {
+                        successors.get(from).add(to);
+                    }
+                    if(state[w] == 0) {
+                        state[w] = 1;
+                        path.push(w);
+                        iterators.push(connected.get(w).iterator());
+                    }
+                }
+                else {
+                    state[v] = 2;
+                    path.pop();
+                    iterators.pop();
+                }
+            }
+        }
+
+        return successors;
+    }
+
+    private static List<Integer> getTopologicalOrder(List<List<Integer>> successors) {
+        int[] inDegree = new int[successors.size()];
+        for(List<Integer> list : successors) {
+            for(int w : list) {
+                inDegree[w]++;
+            }
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for(int v = 0; v < successors.size(); v++) {
+            if(inDegree[v] == 0) {
+                order.add(v);
+            }
+        }
+
+        for(int i = 0; i < order.size(); i++) {
+            for(int w : successors.get(order.get(i))) {
+                if(--inDegree[w] == 0) {
+                    order.add(w);
+                }
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * @return Size of v along the layers. Points added for connections have no size.
+     */
+    private int getMainSize(int v) {
+        return v >= nodes.size() ? 0 : horizontal ? widths[v] : heights[v];
+    }
+
+    /**
+     * @return Size of v across the layers. Points added for connections have no size.
+     */
+    private int getCrossSize(int v) {
+        return v >= nodes.size() ? 0 : horizontal ? heights[v] : widths[v];
+    }
+
+    private static long edgeKey(int from, int to) {
+        return ((long)from << 32) | to;
+    }
+
+    private SetBoundsCommand createCommand() {
+        SetBoundsCommand cmd = new SetBoundsCommand("layout", dm);
+
+        for(int i = 0; i < nodes.size(); i++) {
+            IBounds bounds = nodes.get(i).getBounds();
+            if(bounds.getX() != xs[i] || bounds.getY() != ys[i]) {
+                cmd.setBounds(nodes.get(i), IArchimateFactory.eINSTANCE.createBounds(xs[i], ys[i], bounds.getWidth(), bounds.getHeight()));
+            }
+        }
+
+        for(IDiagramModelConnection connection : connectionEnds.keySet()) {
+            List<IDiagramModelBendpoint> bendpoints = new ArrayList<>();
+
+            List<int[]> points = routes.get(connection);
+            if(points != null) {
+                int[] source = getNewCentre((IDiagramModelObject)connection.getSource());
+                int[] target = getNewCentre((IDiagramModelObject)connection.getTarget());
+                for(int[] point : points) {
+                    IDiagramModelBendpoint bp = IArchimateFactory.eINSTANCE.createDiagramModelBendpoint();
+                    bp.setStartX(point[0] - source[0]);
+                    bp.setStartY(point[1] - source[1]);
+                    bp.setEndX(point[0] - target[0]);
+                    bp.setEndY(point[1] - target[1]);
+                    bendpoints.add(bp);
+                }
+            }
+
+            if(!bendpoints.isEmpty() || !connection.getBendpoints().isEmpty()) {
+                cmd.setBendpoints(connection, bendpoints);
+            }
+        }
+
+        return cmd;
+    }
+
+    /**
+     * @return The absolute centre of dmo once its top level object has moved
+     */
+    private int[] getNewCentre(IDiagramModelObject dmo) {
+        int[] bounds = getSize(dmo, DiagramModelUtils.getAbsoluteBounds(dmo));
+        int i = nodeIndex.get(getTopLevelObject(dmo));
+        IBounds topBounds = nodes.get(i).getBounds();
+        return new int[] { bounds[0] + xs[i] - topBounds.getX() + bounds[2] / 2, bounds[1] + ys[i] - topBounds.getY() + bounds[3] / 2 };
+    }
+
+    /**
+     * @return The object in the top level of the view that is or contains eObject, or null
+     */
+    private EObject getTopLevelObject(EObject eObject) {
+        while(eObject instanceof IDiagramModelObject && eObject.eContainer() != dm) {
+            eObject = eObject.eContainer();
+        }
+        return eObject instanceof IDiagramModelObject ? eObject : null;
+    }
+
+    /**
+     * @return x, y, width and height of bounds of dmo, with the default size of dmo if it has none
+     */
+    private static int[] getSize(IDiagramModelObject dmo, IBounds bounds) {
+        int width = bounds.getWidth(), height = bounds.getHeight();
+
+        if(width < 0 || height < 0) {
+            Dimension size = ModelUtil.getDefaultSize(dmo);
+            width = width >= 0 ? width : size.width;
+            height = height >= 0 ? height : size.height;
+        }
+
+        return new int[] { bounds.getX(), bounds.getY(), width, height };
+    }
+}
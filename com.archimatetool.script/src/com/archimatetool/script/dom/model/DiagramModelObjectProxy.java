@@ -17,6 +17,7 @@ import com.archimatetool.editor.ui.factory.IArchimateElementUIProvider;
 import com.archimatetool.editor.ui.factory.IGraphicalObjectUIProvider;
 import com.archimatetool.editor.ui.factory.IObjectUIProvider;
 import com.archimatetool.editor.ui.factory.ObjectUIFactory;
+import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IBounds;
@@ -137,9 +138,24 @@ public class DiagramModelObjectProxy extends DiagramModelComponentProxy {
     
     @Override
     protected EObjectProxyCollection find() {
-        // We don't include relationships
-        EObjectProxyCollection all = super.find();
-        return all.filter(IModelConstants.ELEMENT);
+        // We don't include relationships, so only nested diagram objects of elements are found.
+        // Visit the nested diagram objects rather than all of the contents and filter them.
+        EObjectProxyCollection list = new EObjectProxyCollection();
+        if(getEObject() instanceof IDiagramModelContainer) {
+            addElementObjects((IDiagramModelContainer)getEObject(), list);
+        }
+        return list;
+    }
+    
+    private static void addElementObjects(IDiagramModelContainer container, EObjectProxyCollection list) {
+        for(IDiagramModelObject dmo : container.getChildren()) {
+            if(dmo instanceof IDiagramModelArchimateObject && ((IDiagramModelArchimateObject)dmo).getArchimateConcept() instanceof IArchimateElement) {
+                list.add(EObjectProxy.get(dmo));
+            }
+            if(dmo instanceof IDiagramModelContainer) {
+                addElementObjects((IDiagramModelContainer)dmo, list);
+            }
+        }
     }
     
     public String getFillColor() {
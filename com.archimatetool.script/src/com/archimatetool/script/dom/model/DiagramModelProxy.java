@@ -5,21 +5,29 @@
  */
 package com.archimatetool.script.dom.model;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-import org.eclipse.emf.ecore.EObject;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.PlatformUI;
 
 import com.archimatetool.editor.model.DiagramModelUtils;
 import com.archimatetool.editor.ui.services.EditorManager;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IBounds;
 import com.archimatetool.model.IConnectable;
 import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelContainer;
 import com.archimatetool.model.IDiagramModelObject;
 import com.archimatetool.model.IDiagramModelReference;
 import com.archimatetool.script.ArchiScriptException;
 import com.archimatetool.script.commands.CommandHandler;
 import com.archimatetool.script.commands.DeleteFolderObjectCommand;
+import com.archimatetool.script.commands.SetBoundsCommand;
 
 /**
  * DiagramModel wrapper proxy
@@ -75,6 +83,171 @@ public abstract class DiagramModelProxy extends EObjectProxy {
         return ModelFactory.createDiagramConnection((IConnectable)source.getEObject(), (IConnectable)target.getEObject());
     }
     
+    /**
+     * @return the diagram objects whose bounds contain the point x,y in this view, back to front
+     */
+    public EObjectProxyCollection objectsAt(int x, int y) {
+        return toCollection(DiagramSpatialIndex.get(getEObject()).getObjectsAt(x, y));
+    }
+    
+    /**
+     * @return the diagram objects whose bounds are inside the area x,y,width,height in this view, back to front
+     */
+    public EObjectProxyCollection objectsIn(int x, int y, int width, int height) {
+        return toCollection(DiagramSpatialIndex.get(getEObject()).getObjectsIn(x, y, width, height));
+    }
+    
+    /**
+     * @return the diagram objects whose bounds are inside the area {x, y, width, height} in this view, back to front
+     */
+    public EObjectProxyCollection objectsIn(Map<?, ?> bounds) {
+        return objectsIn(ModelUtil.getIntValueFromMap(bounds, "x", 0), ModelUtil.getIntValueFromMap(bounds, "y", 0), //$NON-NLS-1$ //$NON-NLS-2$
+                ModelUtil.getIntValueFromMap(bounds, "width", 0), ModelUtil.getIntValueFromMap(bounds, "height", 0)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    
+    /**
+     * Lay out the top level objects of this view and the connections between them in one command with the layered algorithm
+     */
+    public DiagramModelProxy layout() {
+        return layout(null);
+    }
+    
+    /**
+     * Lay out the top level objects of this view and the connections between them in one command.
+     * Options are "algorithm" ("layered", "grid" or "tree"), "x", "y", "hSpacing", "vSpacing", "direction" ("down" or "right") and "columns".
+     */
+    public DiagramModelProxy layout(Map<?, ?> options) {
+        DiagramLayout.layout(getEObject(), options);
+        return this;
+    }
+    
+    /**
+     * @return the bounds of all diagram objects in this view, nested objects included, in view order.
+     * The map has "ids", and "x", "y", "width" and "height" arrays with the bounds of the object with the same index in "ids".
+     */
+    public Map<String, Object> getAllBounds() {
+        List<IDiagramModelObject> objects = new ArrayList<>();
+        addDiagramModelObjects(getEObject(), objects);
+        
+        int size = objects.size();
+        String[] ids = new String[size];
+        int[] x = new int[size], y = new int[size], width = new int[size], height = new int[size];
+        
+        for(int i = 0; i < size; i++) {
+            IDiagramModelObject dmo = objects.get(i);
+            IBounds bounds = dmo.getBounds();
+            ids[i] = dmo.getId();
+            x[i] = bounds.getX();
+            y[i] = bounds.getY();
+            width[i] = bounds.getWidth();
+            height[i] = bounds.getHeight();
+        }
+        
+        Map<String, Object> map = ProxyUtil.createMap();
+        map.put("ids", ids); //$NON-NLS-1$
+        map.put("x", x); //$NON-NLS-1$
+        map.put("y", y); //$NON-NLS-1$
+        map.put("width", width); //$NON-NLS-1$
+        map.put("height", height); //$NON-NLS-1$
+        return map;
+    }
+    
+    /**
+     * Set the position of many diagram objects in this view in one command
+     */
+    public DiagramModelProxy setAllBounds(List<?> ids, List<?> x, List<?> y) {
+        return setAllBounds(ids, x, y, null, null);
+    }
+    
+    /**
+     * Set the bounds of many diagram objects in this view in one command.
+     * ids are ids or diagram objects, and the bounds of each are the values with the same index in x, y, width and height.
+     * A null value, or a null width or height list, keeps the current value. A width or height of -1 is the default size of the object.
+     */
+    public DiagramModelProxy setAllBounds(List<?> ids, List<?> x, List<?> y, List<?> width, List<?> height) {
+        checkBoundsList(ids, x);
+        checkBoundsList(ids, y);
+        checkBoundsList(ids, width);
+        checkBoundsList(ids, height);
+        
+        // Look up all of the objects first
+        Map<String, IDiagramModelObject> objects = new HashMap<>();
+        List<IDiagramModelObject> list = new ArrayList<>();
+        addDiagramModelObjects(getEObject(), list);
+        for(IDiagramModelObject dmo : list) {
+            objects.put(dmo.getId(), dmo);
+        }
+        
+        SetBoundsCommand cmd = new SetBoundsCommand(getEObject());
+        
+        for(int i = 0; i < ids.size(); i++) {
+            Object id = ids.get(i) instanceof DiagramModelObjectProxy ? ((DiagramModelObjectProxy)ids.get(i)).getId() : ids.get(i);
+            IDiagramModelObject dmo = objects.get(id);
+            if(dmo == null) {
+                throw new ArchiScriptException(NLS.bind(Messages.DiagramModelProxy_3, id));
+            }
+            
+            IBounds bounds = dmo.getBounds();
+            int newWidth = getBoundsValue(width, i, bounds.getWidth());
+            int newHeight = getBoundsValue(height, i, bounds.getHeight());
+            
+            // Only a -1 that is given is the default size, a kept -1 stays as it is
+            if(isDefaultSize(width, i) || isDefaultSize(height, i)) {
+                Dimension size = ModelUtil.getDefaultSize(dmo);
+                newWidth = isDefaultSize(width, i) ? size.width : newWidth;
+                newHeight = isDefaultSize(height, i) ? size.height : newHeight;
+            }
+            
+            IBounds newBounds = IArchimateFactory.eINSTANCE.createBounds(getBoundsValue(x, i, bounds.getX()), getBoundsValue(y, i, bounds.getY()),
+                    newWidth, newHeight);
+            
+            if(newBounds.getX() != bounds.getX() || newBounds.getY() != bounds.getY()
+                    || newBounds.getWidth() != bounds.getWidth() || newBounds.getHeight() != bounds.getHeight()) {
+                cmd.setBounds(dmo, newBounds);
+            }
+        }
+        
+        if(!cmd.isEmpty()) {
+            CommandHandler.executeCommand(cmd);
+        }
+        
+        return this;
+    }
+    
+    private static void checkBoundsList(List<?> ids, List<?> values) {
+        if(values != null && values.size() != ids.size()) {
+            throw new ArchiScriptException(NLS.bind(Messages.DiagramModelProxy_4, ids.size(), values.size()));
+        }
+    }
+    
+    private static int getBoundsValue(List<?> values, int index, int defaultValue) {
+        return values != null && values.get(index) instanceof Number ? ((Number)values.get(index)).intValue() : defaultValue;
+    }
+    
+    private static boolean isDefaultSize(List<?> values, int index) {
+        return getBoundsValue(values, index, 0) == -1;
+    }
+    
+    /**
+     * Add the diagram objects in container and all nested diagram objects to list in view order
+     */
+    private static void addDiagramModelObjects(IDiagramModelContainer container, List<IDiagramModelObject> list) {
+        for(IDiagramModelObject dmo : container.getChildren()) {
+            list.add(dmo);
+            if(dmo instanceof IDiagramModelContainer) {
+                addDiagramModelObjects((IDiagramModelContainer)dmo, list);
+            }
+        }
+    }
+    
+    private EObjectProxyCollection toCollection(List<IDiagramModelObject> objects) {
+        EObjectProxyCollection list = new EObjectProxyCollection();
+        for(IDiagramModelObject dmo : objects) {
+            list.add(EObjectProxy.get(dmo));
+        }
+        return list;
+    }
+    
     @Override
     protected IDiagramModel getEObject() {
         return (IDiagramModel)super.getEObject();
@@ -97,11 +270,8 @@ public abstract class DiagramModelProxy extends EObjectProxy {
         }
         
         // All connections
-        for(Iterator<EObject> iter = getEObject().eAllContents(); iter.hasNext();) {
-            EObject eObject = iter.next();
-            if(eObject instanceof IDiagramModelConnection) {
-                list.add(new DiagramModelConnectionProxy((IDiagramModelConnection)eObject));
-            }
+        for(IDiagramModelConnection connection : DiagramConnectionIndex.getConnections(getEObject())) {
+            list.add(new DiagramModelConnectionProxy(connection));
         }
         
         return list;
@@ -0,0 +1,391 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelContainer;
+import com.archimatetool.model.IDiagramModelObject;
+
+/**
+ * Uniform grid of the absolute bounds of the objects in a view
+ *
+ * Used to find the objects at a point or in an area, and the container to nest a new object in, without visiting every object in the view.
+ * The index is built the first time it is asked for and then kept up to date from ModelChangeTracker.
+ *
+ * @author Phillip Beauvoir
+ */
+class DiagramSpatialIndex extends AdapterImpl {
+
+    static final int CELL_SIZE = 256;
+
+    // Objects that would cover more cells than this are kept in a list that is always checked
+    static final int MAX_CELLS = 1024;
+
+    /**
+     * @return The index for dm, building it if it does not have one yet.
+     * If dm is not in a model the index is built but not kept, as it can't be kept up to date.
+     */
+    static DiagramSpatialIndex get(IDiagramModel dm) {
+        IArchimateModel model = dm.getArchimateModel();
+        if(model == null) {
+            return new DiagramSpatialIndex(dm);
+        }
+
+        synchronized(DiagramSpatialIndex.class) {
+            for(Adapter adapter : new ArrayList<>(dm.eAdapters())) {
+                if(adapter instanceof DiagramSpatialIndex) {
+                    DiagramSpatialIndex index = (DiagramSpatialIndex)adapter;
+                    if(!index.tracker.isDisposed()) {
+                        return index;
+                    }
+
+                    // The model was closed since the index was made
+                    dm.eAdapters().remove(index);
+                }
+            }
+
+            DiagramSpatialIndex index = new DiagramSpatialIndex(dm);
+            dm.eAdapters().add(index);
+            index.tracker = ModelChangeTracker.get(model);
+            index.tracker.addListener(index.listener);
+            return index;
+        }
+    }
+
+    private final IDiagramModel dm;
+
+    // Null if the index is not kept
+    private ModelChangeTracker tracker;
+    private final Consumer<Notification> listener = this::modelChanged;
+
+    // Absolute x, y, width and height of each object
+    private final Map<IDiagramModelObject, int[]> bounds = new HashMap<>();
+
+    // Objects whose bounds touch each cell
+    private final Map<Long, List<IDiagramModelObject>> cells = new HashMap<>();
+
+    // Objects that are too large for the grid or have no size set
+    private final Set<IDiagramModelObject> unplaced = new LinkedHashSet<>();
+
+    private boolean disposed;
+
+    private DiagramSpatialIndex(IDiagramModel dm) {
+        this.dm = dm;
+        for(IDiagramModelObject child : dm.getChildren()) {
+            add(child, 0, 0);
+        }
+    }
+
+    /**
+     * Find the container in parent that will hold a new object at absolute bounds.
+     * This is the container last in view order that contains bounds, as found by visiting all of parent's contents.
+     * @return The container, or parent if there is none
+     */
+    synchronized IDiagramModelContainer getNestedParent(IDiagramModelContainer parent, IBounds bounds) {
+        IDiagramModelContainer result = parent;
+
+        for(IDiagramModelObject dmo : getCandidates(bounds.getX(), bounds.getY())) {
+            if(dmo instanceof IDiagramModelContainer && dmo != parent && isDescendant(dmo, parent)
+                    && DiagramModelUtils.outerBoundsContainsInnerBounds(toBounds(this.bounds.get(dmo)), bounds)
+                    && (result == parent || compareViewOrder(dmo, (IDiagramModelObject)result, null) > 0)) {
+                result = (IDiagramModelContainer)dmo;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The objects whose absolute bounds contain the point x,y, in view order (back to front)
+     */
+    synchronized List<IDiagramModelObject> getObjectsAt(int x, int y) {
+        List<IDiagramModelObject> list = new ArrayList<>();
+
+        for(IDiagramModelObject dmo : getCandidates(x, y)) {
+            int[] b = getSize(dmo);
+            if(x >= b[0] && y >= b[1] && x < b[0] + b[2] && y < b[1] + b[3]) {
+                list.add(dmo);
+            }
+        }
+
+        return sortInViewOrder(list);
+    }
+
+    /**
+     * @return The objects whose absolute bounds are inside the area x,y,width,height, in view order (back to front)
+     */
+    synchronized List<IDiagramModelObject> getObjectsIn(int x, int y, int width, int height) {
+        Collection<IDiagramModelObject> candidates;
+
+        long cellCount = (long)(cell(x + width) - cell(x) + 1) * (cell(y + height) - cell(y) + 1);
+        if(cellCount > cells.size()) {
+            candidates = bounds.keySet();
+        }
+        else {
+            candidates = new LinkedHashSet<>(unplaced);
+            for(int cx = cell(x); cx <= cell(x + width); cx++) {
+                for(int cy = cell(y); cy <= cell(y + height); cy++) {
+                    candidates.addAll(cells.getOrDefault(key(cx, cy), List.of()));
+                }
+            }
+        }
+
+        List<IDiagramModelObject> list = new ArrayList<>();
+
+        for(IDiagramModelObject dmo : candidates) {
+            int[] b = getSize(dmo);
+            if(b[0] >= x && b[1] >= y && b[0] + b[2] <= x + width && b[1] + b[3] <= y + height) {
+                list.add(dmo);
+            }
+        }
+
+        return sortInViewOrder(list);
+    }
+
+    private Collection<IDiagramModelObject> getCandidates(int x, int y) {
+        List<IDiagramModelObject> list = cells.get(key(cell(x), cell(y)));
+        if(unplaced.isEmpty()) {
+            return list != null ? list : List.of();
+        }
+
+        Set<IDiagramModelObject> candidates = new LinkedHashSet<>(unplaced);
+        if(list != null) {
+            candidates.addAll(list);
+        }
+        return candidates;
+    }
+
+    /**
+     * Add dmo and its children, where x,y is the absolute position of dmo's parent
+     */
+    private void add(IDiagramModelObject dmo, int x, int y) {
+        IBounds b = dmo.getBounds();
+        if(b == null) {
+            return;
+        }
+
+        int[] absolute = { x + b.getX(), y + b.getY(), b.getWidth(), b.getHeight() };
+        bounds.put(dmo, absolute);
+
+        // Allow one more pixel on the right and bottom as DiagramModelUtils.outerBoundsContainsInnerBounds can
+        int x1 = cell(absolute[0]), y1 = cell(absolute[1]), x2 = cell(absolute[0] + absolute[2] + 1), y2 = cell(absolute[1] + absolute[3] + 1);
+
+        if(absolute[2] < 0 || absolute[3] < 0 || (long)(x2 - x1 + 1) * (y2 - y1 + 1) > MAX_CELLS) {
+            unplaced.add(dmo);
+        }
+        else {
+            for(int cx = x1; cx <= x2; cx++) {
+                for(int cy = y1; cy <= y2; cy++) {
+                    cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(dmo);
+                }
+            }
+        }
+
+        if(dmo instanceof IDiagramModelContainer) {
+            for(IDiagramModelObject child : ((IDiagramModelContainer)dmo).getChildren()) {
+                add(child, absolute[0], absolute[1]);
+            }
+        }
+    }
+
+    /**
+     * Remove dmo and its children
+     */
+    private void remove(IDiagramModelObject dmo) {
+        int[] absolute = bounds.remove(dmo);
+        if(absolute == null) {
+            return;
+        }
+
+        if(!unplaced.remove(dmo)) {
+            for(int cx = cell(absolute[0]); cx <= cell(absolute[0] + absolute[2] + 1); cx++) {
+                for(int cy = cell(absolute[1]); cy <= cell(absolute[1] + absolute[3] + 1); cy++) {
+                    Long key = key(cx, cy);
+                    List<IDiagramModelObject> list = cells.get(key);
+                    if(list != null) {
+                        list.remove(dmo);
+                        if(list.isEmpty()) {
+                            cells.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+
+        if(dmo instanceof IDiagramModelContainer) {
+            for(IDiagramModelObject child : ((IDiagramModelContainer)dmo).getChildren()) {
+                remove(child);
+            }
+        }
+    }
+
+    /**
+     * Index dmo and its children again at their current position in parent
+     */
+    private void update(IDiagramModelObject dmo, EObject parent) {
+        remove(dmo);
+
+        if(parent == dm) {
+            add(dmo, 0, 0);
+        }
+        else if(bounds.containsKey(parent)) {
+            add(dmo, bounds.get(parent)[0], bounds.get(parent)[1]);
+        }
+    }
+
+    private synchronized void modelChanged(Notification notification) {
+        if(disposed) {
+            return;
+        }
+
+        Object notifier = notification.getNotifier();
+
+        // The view was removed from the model so stop keeping the index. A new one is made if the view is put back.
+        if(notification.getFeature() instanceof EReference && ((EReference)notification.getFeature()).isContainment() && dm.getArchimateModel() == null) {
+            dispose();
+        }
+        // Objects added to or removed from the view
+        else if(notification.getFeature() == IArchimatePackage.Literals.DIAGRAM_MODEL_CONTAINER__CHILDREN && (notifier == dm || bounds.containsKey(notifier))) {
+            for(IDiagramModelObject removed : getDiagramModelObjects(notification.getOldValue())) {
+                remove(removed);
+            }
+            for(IDiagramModelObject added : getDiagramModelObjects(notification.getNewValue())) {
+                update(added, (EObject)notifier);
+            }
+        }
+        // Bounds replaced
+        else if(notification.getFeature() == IArchimatePackage.Literals.DIAGRAM_MODEL_OBJECT__BOUNDS && bounds.containsKey(notifier)) {
+            update((IDiagramModelObject)notifier, ((EObject)notifier).eContainer());
+        }
+        // Bounds changed
+        else if(notifier instanceof IBounds && bounds.containsKey(((IBounds)notifier).eContainer())) {
+            IDiagramModelObject dmo = (IDiagramModelObject)((IBounds)notifier).eContainer();
+            update(dmo, dmo.eContainer());
+        }
+    }
+
+    /**
+     * Stop keeping the index up to date and remove it from the view
+     */
+    private void dispose() {
+        disposed = true;
+        tracker.removeListener(listener);
+        dm.eAdapters().remove(this);
+    }
+
+    /**
+     * @return absolute bounds of dmo with the default size of dmo if it has none
+     */
+    private int[] getSize(IDiagramModelObject dmo) {
+        int[] b = bounds.get(dmo);
+        if(b[2] >= 0 && b[3] >= 0) {
+            return b;
+        }
+
+        Dimension size = ModelUtil.getDefaultSize(dmo);
+        return new int[] { b[0], b[1], b[2] >= 0 ? b[2] : size.width, b[3] >= 0 ? b[3] : size.height };
+    }
+
+    private List<IDiagramModelObject> sortInViewOrder(List<IDiagramModelObject> list) {
+        if(list.size() > 1) {
+            Map<EObject, int[]> paths = new HashMap<>();
+            list.sort((a, b) -> compareViewOrder(a, b, paths));
+        }
+        return list;
+    }
+
+    /**
+     * Compare the position of a and b when the view's contents are visited in order, parents before their children
+     */
+    private static int compareViewOrder(IDiagramModelObject a, IDiagramModelObject b, Map<EObject, int[]> paths) {
+        int[] pathA = paths != null ? paths.computeIfAbsent(a, DiagramSpatialIndex::getPath) : getPath(a);
+        int[] pathB = paths != null ? paths.computeIfAbsent(b, DiagramSpatialIndex::getPath) : getPath(b);
+
+        for(int i = 0; i < pathA.length && i < pathB.length; i++) {
+            if(pathA[i] != pathB[i]) {
+                return Integer.compare(pathA[i], pathB[i]);
+            }
+        }
+
+        return Integer.compare(pathA.length, pathB.length);
+    }
+
+    /**
+     * @return The index of eObject and each of its parent objects in their parent, from the top of the view down
+     */
+    private static int[] getPath(EObject eObject) {
+        List<Integer> indexes = new ArrayList<>();
+
+        for(EObject e = eObject; e instanceof IDiagramModelObject; e = e.eContainer()) {
+            indexes.add(((IDiagramModelContainer)e.eContainer()).getChildren().indexOf(e));
+        }
+
+        int[] path = new int[indexes.size()];
+        for(int i = 0; i < path.length; i++) {
+            path[i] = indexes.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    private static boolean isDescendant(EObject eObject, EObject parent) {
+        for(EObject e = eObject.eContainer(); e != null; e = e.eContainer()) {
+            if(e == parent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static IBounds toBounds(int[] b) {
+        return IArchimateFactory.eINSTANCE.createBounds(b[0], b[1], b[2], b[3]);
+    }
+
+    private static int cell(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    private static Long key(int cx, int cy) {
+        return ((long)cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static List<IDiagramModelObject> getDiagramModelObjects(Object value) {
+        List<IDiagramModelObject> list = new ArrayList<>();
+
+        if(value instanceof IDiagramModelObject) {
+            list.add((IDiagramModelObject)value);
+        }
+        else if(value instanceof Collection<?>) {
+            for(Object o : (Collection<?>)value) {
+                if(o instanceof IDiagramModelObject) {
+                    list.add((IDiagramModelObject)o);
+                }
+            }
+        }
+
+        return list;
+    }
+}
@@ -172,7 +172,7 @@ public abstract class EObjectProxy implements IModelConstants, Comparable<EObjec
      */
     public String getType() {
         if(getReferencedConcept() != null) {
-            return ModelUtil.getKebabCase(getReferencedConcept().eClass().getName());
+            return TypeRegistry.INSTANCE.getTypeName(getReferencedConcept().eClass());
         }
         
         return null;
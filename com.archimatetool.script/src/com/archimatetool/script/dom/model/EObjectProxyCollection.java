@@ -40,6 +40,17 @@ public class EObjectProxyCollection extends ArrayList<EObjectProxy> implements I
         return !filter(selector).isEmpty();
     }
     
+    /**
+     * Set the type of all elements in the collection, or all relationships if type is a relationship type, in one command.
+     * Relationships and diagram references are moved to the new concepts as with setType() on each one.
+     * @param type the Archimate type to replace with
+     * @return this
+     */
+    public EObjectProxyCollection setType(String type) {
+        ConceptRetyper.setType(this, type);
+        return this;
+    }
+    
     /**
      * Delete all in collection
      */
@@ -0,0 +1,226 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.eclipse.emf.ecore.EObject;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IIdentifier;
+import com.archimatetool.model.INameable;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+
+/**
+ * Snapshot of a model held in arrays on the heap
+ *
+ * Ids, types, names, properties and the relationship adjacency structure are copied into flat arrays when the snapshot is taken.
+ * After that the snapshot does not refer to the model.
+ *
+ * @author Phillip Beauvoir
+ */
+class HeapModelSnapshot extends ModelSnapshot {
+
+    // Per object
+    private final String[] ids;
+    private final String[] types;
+    private final String[] names;
+    private final byte[] kinds;
+
+    // Properties of object i are at propStart[i] to propStart[i + 1] - 1
+    private final int[] propStart;
+    private final String[] propKeys;
+    private final String[] propValues;
+
+    // Source and target object of relationship i, or -1 if i is not a relationship
+    private final int[] sources;
+    private final int[] targets;
+
+    // Relationships where object i is the source are outRels[outStart[i]] to outRels[outStart[i + 1] - 1], same for target and in
+    private final int[] outStart;
+    private final int[] outRels;
+    private final int[] inStart;
+    private final int[] inRels;
+
+    private final Map<String, Integer> idIndex;
+
+    /**
+     * Take a snapshot of model. This must be called on the thread that owns the model.
+     */
+    HeapModelSnapshot(IArchimateModel model) {
+        // Collect concepts and views
+        List<EObject> objects = new ArrayList<>();
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IArchimateConcept || eObject instanceof IDiagramModel) {
+                objects.add(eObject);
+            }
+        }
+
+        int size = objects.size();
+
+        ids = new String[size];
+        types = new String[size];
+        names = new String[size];
+        kinds = new byte[size];
+        propStart = new int[size + 1];
+        sources = new int[size];
+        targets = new int[size];
+
+        Map<String, Integer> idMap = new HashMap<>(size * 2);
+        Map<String, String> typeNames = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        for(int i = 0; i < size; i++) {
+            EObject eObject = objects.get(i);
+
+            ids[i] = ((IIdentifier)eObject).getId();
+            names[i] = ((INameable)eObject).getName();
+            kinds[i] = eObject instanceof IArchimateElement ? ELEMENT : eObject instanceof IArchimateRelationship ? RELATIONSHIP : VIEW;
+            // Share one String per type
+            types[i] = typeNames.computeIfAbsent(eObject.eClass().getName(), TypeRegistry.INSTANCE::getTypeName);
+
+            idMap.put(ids[i], i);
+
+            propStart[i] = keys.size();
+            if(eObject instanceof IProperties) {
+                for(IProperty property : ((IProperties)eObject).getProperties()) {
+                    keys.add(property.getKey());
+                    values.add(property.getValue());
+                }
+            }
+        }
+
+        propStart[size] = keys.size();
+        propKeys = keys.toArray(new String[0]);
+        propValues = values.toArray(new String[0]);
+
+        // Relationship ends
+        int[] outCount = new int[size];
+        int[] inCount = new int[size];
+
+        for(int i = 0; i < size; i++) {
+            sources[i] = -1;
+            targets[i] = -1;
+
+            if(objects.get(i) instanceof IArchimateRelationship) {
+                IArchimateRelationship relationship = (IArchimateRelationship)objects.get(i);
+                Integer source = idMap.get(relationship.getSource().getId());
+                Integer target = idMap.get(relationship.getTarget().getId());
+                if(source != null && target != null) {
+                    sources[i] = source;
+                    targets[i] = target;
+                    outCount[source]++;
+                    inCount[target]++;
+                }
+            }
+        }
+
+        // Adjacency in compressed row form
+        outStart = toStarts(outCount);
+        inStart = toStarts(inCount);
+        outRels = new int[outStart[size]];
+        inRels = new int[inStart[size]];
+
+        int[] outPos = outStart.clone();
+        int[] inPos = inStart.clone();
+
+        for(int i = 0; i < size; i++) {
+            if(sources[i] != -1) {
+                outRels[outPos[sources[i]]++] = i;
+                inRels[inPos[targets[i]]++] = i;
+            }
+        }
+
+        idIndex = Collections.unmodifiableMap(idMap);
+    }
+
+    private static int[] toStarts(int[] counts) {
+        int[] starts = new int[counts.length + 1];
+        for(int i = 0; i < counts.length; i++) {
+            starts[i + 1] = starts[i] + counts[i];
+        }
+        return starts;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    int indexOf(String id) {
+        Integer index = idIndex.get(id);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    String getId(int index) {
+        return ids[index];
+    }
+
+    @Override
+    String getType(int index) {
+        return types[index];
+    }
+
+    @Override
+    String getName(int index) {
+        return names[index];
+    }
+
+    @Override
+    byte getKind(int index) {
+        return kinds[index];
+    }
+
+    @Override
+    int getSource(int index) {
+        return sources[index];
+    }
+
+    @Override
+    int getTarget(int index) {
+        return targets[index];
+    }
+
+    @Override
+    int getPropertyCount(int index) {
+        return propStart[index + 1] - propStart[index];
+    }
+
+    @Override
+    String getPropertyKey(int index, int p) {
+        return propKeys[propStart[index] + p];
+    }
+
+    @Override
+    String getPropertyValue(int index, int p) {
+        return propValues[propStart[index] + p];
+    }
+
+    @Override
+    IntStream outgoing(int index) {
+        return IntStream.range(outStart[index], outStart[index + 1]).map(i -> outRels[i]);
+    }
+
+    @Override
+    IntStream incoming(int index) {
+        return IntStream.range(inStart[index], inStart[index + 1]).map(i -> inRels[i]);
+    }
+}
@@ -32,6 +32,9 @@ interface IModelConstants {
     String SOURCE = "source";
     String TARGET = "target";
     
+    String FOLDER = "folder";
+    String PROPERTIES = "properties";
+    
     String RELATIVE_BENDPOINTS = "relativeBendpoints";
     String START_X = "startX";
     String START_Y = "startY";
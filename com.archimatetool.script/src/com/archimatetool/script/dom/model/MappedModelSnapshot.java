@@ -0,0 +1,432 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.script.ArchiScriptException;
+
+/**
+ * Snapshot of a model in a file that is memory-mapped and read in place
+ *
+ * The columns are held off-heap in the mapped file and read on demand, so opening a snapshot
+ * of a very large model takes little heap and does not need the EMF model to be loaded.
+ * Only the small table of type names is decoded when the snapshot is opened.
+ *
+ * The file is laid out as:
+ *
+ * <pre>
+ * header    magic, version, objects, strings, types, properties, relationship ends
+ * int[]     string offsets (strings + 1)
+ * int[]     type table, string index of each type name
+ * int[]     id, type and name of each object. Ids and names are string indexes, types are type table indexes.
+ * int[]     source and target of each object, or -1 if it is not a relationship
+ * int[]     property start (objects + 1), property keys and property values
+ * int[]     out start (objects + 1), out relationships, in start (objects + 1), in relationships
+ * int[]     objects sorted by id, for lookup by id
+ * byte[]    kind of each object
+ * byte[]    UTF-8 bytes of all strings
+ * </pre>
+ *
+ * Strings are stored once however often they occur. A null string is -1.
+ * A mapped buffer can't be larger than 2GB so that is the limit on the size of a snapshot file.
+ *
+ * The snapshot can't be queried after it is closed. The file is not unmapped by close(), as a query still running on another thread
+ * would then read unmapped memory. It stays mapped until the snapshot is garbage collected (on Windows a mapped file is locked).
+ *
+ * @author Phillip Beauvoir
+ */
+public class MappedModelSnapshot extends ModelSnapshot implements Closeable {
+
+    private static final int MAGIC = 0x4A534E50; // "JSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 7;
+
+    /**
+     * Open a snapshot file written by ModelSnapshot.save()
+     */
+    public static MappedModelSnapshot open(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(NLS.bind(Messages.ModelSnapshot_0, file));
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedModelSnapshot(buffer, file);
+        }
+    }
+
+    /**
+     * Write snapshot to file
+     */
+    static void write(ModelSnapshot snapshot, File file) throws IOException {
+        int size = snapshot.size();
+
+        // Intern strings
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        Map<String, Integer> typeIndex = new HashMap<>();
+        List<Integer> typeTable = new ArrayList<>();
+
+        int[] ids = new int[size];
+        int[] types = new int[size];
+        int[] names = new int[size];
+        int[] propStart = new int[size + 1];
+        List<Integer> propKeys = new ArrayList<>();
+        List<Integer> propValues = new ArrayList<>();
+
+        for(int i = 0; i < size; i++) {
+            ids[i] = intern(snapshot.getId(i), stringIndex, strings);
+            names[i] = intern(snapshot.getName(i), stringIndex, strings);
+            types[i] = typeIndex.computeIfAbsent(snapshot.getType(i), type -> {
+                typeTable.add(intern(type, stringIndex, strings));
+                return typeTable.size() - 1;
+            });
+
+            propStart[i] = propKeys.size();
+            for(int p = 0, count = snapshot.getPropertyCount(i); p < count; p++) {
+                propKeys.add(intern(snapshot.getPropertyKey(i, p), stringIndex, strings));
+                propValues.add(intern(snapshot.getPropertyValue(i, p), stringIndex, strings));
+            }
+        }
+        propStart[size] = propKeys.size();
+
+        int relCount = (int)IntStream.range(0, size).filter(i -> snapshot.getSource(i) != -1).count();
+
+        // Objects sorted by id
+        int[] idOrder = IntStream.range(0, size).boxed()
+                .sorted((a, b) -> snapshot.getId(a).compareTo(snapshot.getId(b)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(strings.size());
+            out.writeInt(typeTable.size());
+            out.writeInt(propKeys.size());
+            out.writeInt(relCount);
+
+            int offset = 0;
+            out.writeInt(offset);
+            for(byte[] bytes : strings) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+
+            for(int type : typeTable) {
+                out.writeInt(type);
+            }
+
+            writeInts(out, ids);
+            writeInts(out, types);
+            writeInts(out, names);
+
+            for(int i = 0; i < size; i++) {
+                out.writeInt(snapshot.getSource(i));
+            }
+            for(int i = 0; i < size; i++) {
+                out.writeInt(snapshot.getTarget(i));
+            }
+
+            writeInts(out, propStart);
+            for(int key : propKeys) {
+                out.writeInt(key);
+            }
+            for(int value : propValues) {
+                out.writeInt(value);
+            }
+
+            writeAdjacency(out, size, snapshot::outgoing);
+            writeAdjacency(out, size, snapshot::incoming);
+
+            writeInts(out, idOrder);
+
+            for(int i = 0; i < size; i++) {
+                out.writeByte(snapshot.getKind(i));
+            }
+
+            for(byte[] bytes : strings) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static int intern(String s, Map<String, Integer> stringIndex, List<byte[]> strings) {
+        if(s == null) {
+            return -1;
+        }
+
+        return stringIndex.computeIfAbsent(s, key -> {
+            strings.add(key.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for(int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeAdjacency(DataOutputStream out, int size, IntFunction<IntStream> rels) throws IOException {
+        int start = 0;
+        out.writeInt(start);
+        for(int i = 0; i < size; i++) {
+            start += (int)rels.apply(i).count();
+            out.writeInt(start);
+        }
+
+        for(int i = 0; i < size; i++) {
+            for(int rel : rels.apply(i).toArray()) {
+                out.writeInt(rel);
+            }
+        }
+    }
+
+    private final File file;
+    private final int size;
+
+    private final ByteBuffer buffer;
+    private final int stringsPosition;
+
+    private final IntBuffer stringOffsets;
+    private final IntBuffer ids;
+    private final IntBuffer types;
+    private final IntBuffer names;
+    private final IntBuffer sources;
+    private final IntBuffer targets;
+    private final IntBuffer propStart;
+    private final IntBuffer propKeys;
+    private final IntBuffer propValues;
+    private final IntBuffer outStart;
+    private final IntBuffer outRels;
+    private final IntBuffer inStart;
+    private final IntBuffer inRels;
+    private final IntBuffer idOrder;
+    private final int kindsPosition;
+
+    // Type names decoded once
+    private final String[] typeNames;
+
+    private volatile boolean closed;
+
+    private MappedModelSnapshot(ByteBuffer buffer, File file) throws IOException {
+        this.buffer = buffer;
+        this.file = file;
+
+        if(buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(NLS.bind(Messages.ModelSnapshot_1, file));
+        }
+
+        size = buffer.getInt(8);
+        int stringCount = buffer.getInt(12);
+        int typeCount = buffer.getInt(16);
+        int propCount = buffer.getInt(20);
+        int relCount = buffer.getInt(24);
+
+        int[] position = { HEADER_INTS * 4 };
+
+        stringOffsets = ints(position, stringCount + 1);
+        IntBuffer typeTable = ints(position, typeCount);
+        ids = ints(position, size);
+        types = ints(position, size);
+        names = ints(position, size);
+        sources = ints(position, size);
+        targets = ints(position, size);
+        propStart = ints(position, size + 1);
+        propKeys = ints(position, propCount);
+        propValues = ints(position, propCount);
+        outStart = ints(position, size + 1);
+        outRels = ints(position, relCount);
+        inStart = ints(position, size + 1);
+        inRels = ints(position, relCount);
+        idOrder = ints(position, size);
+
+        kindsPosition = position[0];
+        stringsPosition = kindsPosition + size;
+
+        if(stringsPosition + stringOffsets.get(stringCount) != buffer.capacity()) {
+            throw new IOException(NLS.bind(Messages.ModelSnapshot_1, file));
+        }
+
+        typeNames = new String[typeCount];
+        for(int i = 0; i < typeCount; i++) {
+            typeNames[i] = getString(typeTable.get(i));
+        }
+    }
+
+    private IntBuffer ints(int[] position, int count) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position[0]);
+        slice.limit(position[0] + count * 4);
+        position[0] += count * 4;
+        return slice.slice().asIntBuffer();
+    }
+
+    private String getString(int stringIndex) {
+        if(stringIndex == -1) {
+            return null;
+        }
+
+        int start = stringOffsets.get(stringIndex);
+        int length = stringOffsets.get(stringIndex + 1) - start;
+
+        // Read from a duplicate, so that any number of threads can read at the same time
+        byte[] bytes = new byte[length];
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(stringsPosition + start);
+        dup.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Close the snapshot. The snapshot can't be used after this.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * @return true if the snapshot has been closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void checkOpen() {
+        if(closed) {
+            throw new ArchiScriptException(NLS.bind(Messages.ModelSnapshot_3, file));
+        }
+    }
+
+    /**
+     * @return The snapshot file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    int indexOf(String id) {
+        checkOpen();
+
+        // Binary search of objects sorted by id
+        int low = 0, high = size - 1;
+
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int index = idOrder.get(mid);
+            int cmp = getId(index).compareTo(id);
+
+            if(cmp < 0) {
+                low = mid + 1;
+            }
+            else if(cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    String getId(int index) {
+        checkOpen();
+        return getString(ids.get(index));
+    }
+
+    @Override
+    String getType(int index) {
+        checkOpen();
+        return typeNames[types.get(index)];
+    }
+
+    @Override
+    String getName(int index) {
+        checkOpen();
+        return getString(names.get(index));
+    }
+
+    @Override
+    byte getKind(int index) {
+        checkOpen();
+        return buffer.get(kindsPosition + index);
+    }
+
+    @Override
+    int getSource(int index) {
+        checkOpen();
+        return sources.get(index);
+    }
+
+    @Override
+    int getTarget(int index) {
+        checkOpen();
+        return targets.get(index);
+    }
+
+    @Override
+    int getPropertyCount(int index) {
+        checkOpen();
+        return propStart.get(index + 1) - propStart.get(index);
+    }
+
+    @Override
+    String getPropertyKey(int index, int p) {
+        checkOpen();
+        return getString(propKeys.get(propStart.get(index) + p));
+    }
+
+    @Override
+    String getPropertyValue(int index, int p) {
+        checkOpen();
+        return getString(propValues.get(propStart.get(index) + p));
+    }
+
+    @Override
+    IntStream outgoing(int index) {
+        checkOpen();
+        return IntStream.range(outStart.get(index), outStart.get(index + 1)).map(outRels::get);
+    }
+
+    @Override
+    IntStream incoming(int index) {
+        checkOpen();
+        return IntStream.range(inStart.get(index), inStart.get(index + 1)).map(inRels::get);
+    }
+}
@@ -42,8 +42,26 @@ public class Messages extends NLS {
 
     public static String ArchimateRelationshipProxy_3;
 
+    public static String CSVImporter_0;
+
+    public static String CSVImporter_1;
+
+    public static String CSVImporter_2;
+
+    public static String CSVImporter_3;
+
+    public static String ConceptMerger_0;
+
+    public static String ConceptMerger_1;
+
+    public static String ConceptMerger_2;
+
+    public static String ConceptMerger_3;
+
     public static String CurrentModel_0;
 
+    public static String DiagramLayout_0;
+
     public static String DiagramModelComponentProxy_0;
 
     public static String DiagramModelComponentProxy_1;
@@ -74,10 +92,16 @@ public class Messages extends NLS {
 
     public static String DiagramModelProxy_2;
 
+    public static String DiagramModelProxy_3;
+
+    public static String DiagramModelProxy_4;
+
     public static String EObjectProxy_0;
 
     public static String EObjectProxy_1;
 
+    public static String ModelExporter_0;
+
     public static String ModelFactory_0;
 
     public static String ModelFactory_1;
@@ -92,6 +116,12 @@ public class Messages extends NLS {
 
     public static String ModelFactory_14;
 
+    public static String ModelFactory_15;
+
+    public static String ModelFactory_16;
+
+    public static String ModelFactory_17;
+
     public static String ModelFactory_2;
 
     public static String ModelFactory_3;
@@ -108,6 +138,14 @@ public class Messages extends NLS {
 
     public static String ModelFactory_9;
 
+    public static String ModelSnapshot_0;
+
+    public static String ModelSnapshot_1;
+
+    public static String ModelSnapshot_2;
+
+    public static String ModelSnapshot_3;
+
     public static String ProfileProxy_0;
 
     public static String ProfileProxy_1;
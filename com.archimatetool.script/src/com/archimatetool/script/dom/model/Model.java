@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
@@ -30,9 +31,8 @@ import com.archimatetool.export.svg.PDFExportProvider;
 import com.archimatetool.export.svg.SVGExportProvider;
 import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
-import com.archimatetool.model.IArchimatePackage;
-import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.ScriptRunContext;
 
 /**
  * Model utility functions
@@ -83,7 +83,13 @@ public class Model {
         }
         // No UI, else load from file
         else {
-            IArchimateModel model = IEditorModelManager.INSTANCE.loadModel(file);
+            IArchimateModel model;
+            
+            // Scripts may be running on other threads and EditorModelManager is not thread safe
+            synchronized(IEditorModelManager.INSTANCE) {
+                model = IEditorModelManager.INSTANCE.loadModel(file);
+            }
+            
             if(model != null) {
                 return new ArchimateModelProxy(model);
             }
@@ -92,6 +98,67 @@ public class Model {
         throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_2, path));
     }
     
+    /**
+     * Open a model snapshot file written by ModelSnapshot.save()
+     * The snapshot is memory-mapped and can be queried without loading the model. Call close() on it when it is no longer needed.
+     * @param path
+     * @return the snapshot
+     */
+    public MappedModelSnapshot openSnapshot(String path) {
+        try {
+            return MappedModelSnapshot.open(ScriptRunContext.resolveFile(path));
+        }
+        catch(IOException ex) {
+            throw new ArchiScriptException(NLS.bind(Messages.ModelSnapshot_2, path, ex.getMessage()), ex);
+        }
+    }
+    
+    /**
+     * Import elements, relationships or properties from a CSV or TSV file into a model as one command
+     * @param modelProxy The model to import into
+     * @param path Path of the file. A relative path is resolved against the script's folder.
+     * @param options Options, see CSVImporter
+     * @return A report of rows, created, updated, skipped and errors
+     * @throws IOException
+     */
+    public Map<String, Object> importCSV(ArchimateModelProxy modelProxy, String path, Map<?, ?> options) throws IOException {
+        return new CSVImporter(modelProxy.getEObject(), options).importFile(ScriptRunContext.resolveFile(path));
+    }
+    
+    /**
+     * Export objects to a JSON file as they are read from the model
+     * @param modelProxy The model
+     * @param selector A selector string or a collection. If null all concepts, views and folders are exported.
+     * @param path Path of the file
+     * @param fields List of field names, or null for the default fields
+     * @return the number of objects exported
+     * @throws IOException
+     */
+    public int exportJSON(ArchimateModelProxy modelProxy, Object selector, String path, List<?> fields) throws IOException {
+        return new ModelExporter(getExportObjects(modelProxy, selector), fields).writeJSON(ScriptRunContext.resolveFile(path));
+    }
+    
+    /**
+     * Export objects to a CSV file, or a TSV file if the file extension is ".tsv", as they are read from the model
+     * @param modelProxy The model
+     * @param selector A selector string or a collection. If null all concepts, views and folders are exported.
+     * @param path Path of the file
+     * @param fields List of field names, or null for the default fields
+     * @return the number of objects exported
+     * @throws IOException
+     */
+    public int exportCSV(ArchimateModelProxy modelProxy, Object selector, String path, List<?> fields) throws IOException {
+        return new ModelExporter(getExportObjects(modelProxy, selector), fields).writeCSV(ScriptRunContext.resolveFile(path));
+    }
+    
+    private Iterable<EObject> getExportObjects(ArchimateModelProxy modelProxy, Object selector) {
+        if(selector instanceof EObjectProxyCollection) {
+            return ModelUtil.select((EObjectProxyCollection)selector);
+        }
+        
+        return ModelUtil.select(modelProxy.getEObject(), selector != null ? selector.toString() : "*"); //$NON-NLS-1$
+    }
+    
     /**
      * @param modelProxy
      * @return true if modelProxy is loaded in the models tree
@@ -127,15 +194,78 @@ public class Model {
      * @return True if relationship type is allowed between source and target
      */
     public boolean isAllowedRelationship(String relationshipType, String sourceType, String targetType) {
-        EClass relClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(relationshipType));
-        EClass sourceClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(sourceType));
-        EClass targetClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(targetType));
+        EClass relClass = TypeRegistry.INSTANCE.getEClass(relationshipType);
+        EClass sourceClass = TypeRegistry.INSTANCE.getEClass(sourceType);
+        EClass targetClass = TypeRegistry.INSTANCE.getEClass(targetType);
         
         if(relClass == null || sourceClass == null || targetClass == null) {
             throw new ArchiScriptException("Invalid type name."); //$NON-NLS-1$
         }
         
-        return ArchimateModelUtils.isValidRelationship(sourceClass, targetClass, relClass);
+        return TypeRegistry.INSTANCE.isValidRelationship(sourceClass, targetClass, relClass);
+    }
+    
+    /**
+     * Check many relationships at once, such as the specs for model.createRelationships() before creating them
+     * @param specs List of objects with "type", "source" and "target". Source and target are type names or concepts.
+     * @return A list with true for each spec whose relationship is allowed
+     */
+    public List<Boolean> isAllowedRelationships(List<?> specs) {
+        List<Boolean> result = new ArrayList<>(specs.size());
+        
+        for(Object spec : specs) {
+            boolean allowed = false;
+            
+            if(spec instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>)spec;
+                allowed = TypeRegistry.INSTANCE.isValidRelationship(getSpecClass(map.get(IModelConstants.SOURCE)),
+                        getSpecClass(map.get(IModelConstants.TARGET)), getSpecClass(map.get(IModelConstants.TYPE)));
+            }
+            
+            result.add(allowed);
+        }
+        
+        return result;
+    }
+    
+    private EClass getSpecClass(Object value) {
+        if(value instanceof ArchimateConceptProxy) {
+            return ((ArchimateConceptProxy)value).getEObject().eClass();
+        }
+        return value instanceof String ? TypeRegistry.INSTANCE.getEClass((String)value) : null;
+    }
+    
+    /**
+     * @param sourceType
+     * @param targetType
+     * @return The relationship types that are allowed between source and target types
+     */
+    public List<String> getAllowedRelationships(String sourceType, String targetType) {
+        List<String> types = new ArrayList<>();
+        
+        for(EClass eClass : TypeRegistry.INSTANCE.getValidRelationships(TypeRegistry.INSTANCE.getEClass(sourceType), TypeRegistry.INSTANCE.getEClass(targetType))) {
+            types.add(TypeRegistry.INSTANCE.getTypeName(eClass));
+        }
+        
+        return types;
+    }
+    
+    /**
+     * @return The names of all ArchiMate element types
+     */
+    public List<String> getElementTypes() {
+        List<String> types = new ArrayList<>();
+        TypeRegistry.INSTANCE.getElementClasses().forEach(eClass -> types.add(TypeRegistry.INSTANCE.getTypeName(eClass)));
+        return types;
+    }
+    
+    /**
+     * @return The names of all ArchiMate relationship types
+     */
+    public List<String> getRelationshipTypes() {
+        List<String> types = new ArrayList<>();
+        TypeRegistry.INSTANCE.getRelationshipClasses().forEach(eClass -> types.add(TypeRegistry.INSTANCE.getTypeName(eClass)));
+        return types;
     }
     
     
@@ -0,0 +1,307 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IIdentifier;
+
+/**
+ * Counts changes to a model and keeps a journal of the most recent ones
+ *
+ * The tracker is an EMF content adapter on the model and all of its contents. It is attached the first time it is asked for
+ * and stays attached until the model is closed, so the version only counts changes made after that.
+ * When the model is closed the tracker is removed and its journal and listeners are dropped.
+ * The version can be read from any thread. The journal holds the last JOURNAL_SIZE changes.
+ *
+ * The journal holds the ids of the objects that were changed, added or removed and not the objects themselves,
+ * so that it doesn't keep objects removed from the model in memory.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ModelChangeTracker extends EContentAdapter {
+
+    static final int JOURNAL_SIZE = 10000;
+
+    /**
+     * A change to a feature of an object
+     */
+    public static class Change {
+        private final long version;
+        private final String objectId;
+        private final String feature;
+        private final int eventType;
+        private final Object oldValue;
+        private final Object newValue;
+
+        Change(long version, String objectId, String feature, int eventType, Object oldValue, Object newValue) {
+            this.version = version;
+            this.objectId = objectId;
+            this.feature = feature;
+            this.eventType = eventType;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return The id of the object that was changed, or of the nearest container that has an id if it is something like a property or bounds
+         */
+        public String getObjectId() {
+            return objectId;
+        }
+
+        public String getFeature() {
+            return feature;
+        }
+
+        /**
+         * @return One of the Notification event types such as Notification.SET or Notification.ADD
+         */
+        public int getEventType() {
+            return eventType;
+        }
+
+        /**
+         * @return The old value. An object is given by its ObjectRef, a list of objects as a list of ObjectRefs.
+         */
+        public Object getOldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return The new value. An object is given by its ObjectRef, a list of objects as a list of ObjectRefs.
+         */
+        public Object getNewValue() {
+            return newValue;
+        }
+    }
+
+    /**
+     * An object that was a value in a change, given by its id. The id is null if the object has no id (a property or bounds).
+     */
+    public static class ObjectRef {
+        private final String id;
+
+        private ObjectRef(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+
+    // Whether we are listening for models being closed
+    private static boolean listening;
+
+    /**
+     * @return The tracker for model, attaching one if it does not have one yet
+     */
+    public static ModelChangeTracker get(IArchimateModel model) {
+        synchronized(ModelChangeTracker.class) {
+            for(Adapter adapter : model.eAdapters()) {
+                if(adapter instanceof ModelChangeTracker) {
+                    return (ModelChangeTracker)adapter;
+                }
+            }
+
+            if(!listening) {
+                IEditorModelManager.INSTANCE.addPropertyChangeListener(ModelChangeTracker::modelManagerChanged);
+                listening = true;
+            }
+
+            ModelChangeTracker tracker = new ModelChangeTracker();
+            model.eAdapters().add(tracker);
+            return tracker;
+        }
+    }
+
+    /**
+     * Remove the tracker from model, if it has one. Its journal and listeners are dropped.
+     */
+    static void remove(IArchimateModel model) {
+        synchronized(ModelChangeTracker.class) {
+            for(Adapter adapter : new ArrayList<>(model.eAdapters())) {
+                if(adapter instanceof ModelChangeTracker) {
+                    ModelChangeTracker tracker = (ModelChangeTracker)adapter;
+                    model.eAdapters().remove(tracker);
+                    tracker.dispose();
+                }
+            }
+        }
+    }
+
+    private static void modelManagerChanged(PropertyChangeEvent event) {
+        if(IEditorModelManager.PROPERTY_MODEL_REMOVED.equals(event.getPropertyName()) && event.getNewValue() instanceof IArchimateModel) {
+            remove((IArchimateModel)event.getNewValue());
+        }
+    }
+
+    /**
+     * @return The id of eObject or of its nearest container that has one, or null
+     */
+    private static String getOwnerId(EObject eObject) {
+        for(; eObject != null; eObject = eObject.eContainer()) {
+            if(eObject instanceof IIdentifier) {
+                return ((IIdentifier)eObject).getId();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return value with objects replaced by ObjectRefs
+     */
+    private static Object toJournalValue(Object value) {
+        if(value instanceof EObject) {
+            return new ObjectRef(value instanceof IIdentifier ? ((IIdentifier)value).getId() : null);
+        }
+
+        if(value instanceof List<?>) {
+            List<Object> list = new ArrayList<>(((List<?>)value).size());
+            for(Object o : (List<?>)value) {
+                list.add(toJournalValue(o));
+            }
+            return list;
+        }
+
+        return value;
+    }
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final Deque<Change> journal = new ArrayDeque<>();
+
+    // Version of the newest change that has been dropped from the journal
+    private long droppedVersion;
+
+    // Indexes and the like that keep themselves up to date with the model
+    private final List<Consumer<Notification>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean disposed;
+
+    private ModelChangeTracker() {
+    }
+
+    @Override
+    public void notifyChanged(Notification notification) {
+        // Adds and removes this adapter on contained objects
+        super.notifyChanged(notification);
+
+        if(notification.isTouch() || !(notification.getNotifier() instanceof EObject)
+                || !(notification.getFeature() instanceof EStructuralFeature)) {
+            return;
+        }
+
+        Object oldValue = toJournalValue(notification.getOldValue());
+        Object newValue = toJournalValue(notification.getNewValue());
+        String objectId = getOwnerId((EObject)notification.getNotifier());
+
+        synchronized(journal) {
+            Change change = new Change(version.incrementAndGet(), objectId,
+                    ((EStructuralFeature)notification.getFeature()).getName(), notification.getEventType(),
+                    oldValue, newValue);
+
+            journal.addLast(change);
+
+            if(journal.size() > JOURNAL_SIZE) {
+                droppedVersion = journal.removeFirst().getVersion();
+            }
+        }
+
+        for(Consumer<Notification> listener : listeners) {
+            listener.accept(notification);
+        }
+    }
+
+    /**
+     * Add a listener that is told about each change that is counted
+     */
+    void addListener(Consumer<Notification> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener added with addListener()
+     */
+    void removeListener(Consumer<Notification> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return true if the model was closed and the tracker removed from it.
+     * Anything listening to a removed tracker is no longer told about changes and should be made again.
+     */
+    boolean isDisposed() {
+        return disposed;
+    }
+
+    private void dispose() {
+        disposed = true;
+        listeners.clear();
+
+        synchronized(journal) {
+            journal.clear();
+            droppedVersion = version.get();
+        }
+    }
+
+    /**
+     * @return The number of changes made to the model since this tracker was attached
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @param since A version returned by getVersion()
+     * @return The changes made after version since, oldest first,
+     *         or null if some of them are no longer in the journal and the caller has to start again from the model
+     */
+    public List<Change> getChangesSince(long since) {
+        synchronized(journal) {
+            if(since < droppedVersion) {
+                return null;
+            }
+
+            List<Change> changes = new ArrayList<>();
+
+            // Newest changes are at the end so walk backwards
+            for(Iterator<Change> iter = journal.descendingIterator(); iter.hasNext();) {
+                Change change = iter.next();
+                if(change.getVersion() <= since) {
+                    break;
+                }
+                changes.add(change);
+            }
+
+            Collections.reverse(changes);
+            return changes;
+        }
+    }
+}
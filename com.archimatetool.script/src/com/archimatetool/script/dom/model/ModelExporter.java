@@ -0,0 +1,360 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDocumentable;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IIdentifier;
+import com.archimatetool.model.INameable;
+import com.archimatetool.model.IProfile;
+import com.archimatetool.model.IProfiles;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.script.ArchiScriptException;
+
+/**
+ * Writes model objects to a JSON or CSV file as they are visited
+ *
+ * Objects are read straight from the model without creating proxies or an in-memory copy of the output,
+ * and are written through a large buffer, so memory use does not grow with the size of the model.
+ *
+ * Fields are:
+ *
+ * <pre>
+ * id, type, name, documentation, specialization
+ * source, target   ids of a relationship's ends
+ * folder           id of the parent folder
+ * properties       all properties, as an object in JSON and as a JSON string in CSV
+ * prop.key         value of the property with key
+ * </pre>
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class ModelExporter {
+
+    static final List<String> DEFAULT_FIELDS = Arrays.asList("id", "type", "name", "documentation", "source", "target", "properties");
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String PROPERTY_PREFIX = "prop.";
+
+    private final Iterable<EObject> objects;
+    private final List<String> fields;
+
+    /**
+     * @param objects The objects to export
+     * @param fields Field names, or null for DEFAULT_FIELDS
+     */
+    ModelExporter(Iterable<EObject> objects, List<?> fields) {
+        this.objects = objects;
+
+        if(fields == null || fields.isEmpty()) {
+            this.fields = DEFAULT_FIELDS;
+        }
+        else {
+            this.fields = new ArrayList<>();
+            for(Object field : fields) {
+                String name = String.valueOf(field);
+                if(!isField(name)) {
+                    throw new ArchiScriptException(NLS.bind(Messages.ModelExporter_0, name));
+                }
+                this.fields.add(name);
+            }
+        }
+    }
+
+    private static boolean isField(String field) {
+        return DEFAULT_FIELDS.contains(field) || "specialization".equals(field) || "folder".equals(field)
+                || (field.startsWith(PROPERTY_PREFIX) && field.length() > PROPERTY_PREFIX.length());
+    }
+
+    /**
+     * Write a JSON array with one object per model object. Fields with no value are left out.
+     * @return The number of objects written
+     */
+    int writeJSON(File file) throws IOException {
+        int count = 0;
+
+        try(Writer writer = createWriter(file)) {
+            writer.write('[');
+
+            for(EObject eObject : objects) {
+                writer.write(count++ == 0 ? "\n" : ",\n");
+                writer.write('{');
+
+                boolean first = true;
+                for(String field : fields) {
+                    if("properties".equals(field)) {
+                        if(eObject instanceof IProperties) {
+                            first = writeSeparator(writer, first);
+                            writeJSONString(writer, field);
+                            writer.write(':');
+                            writeJSONProperties(writer, (IProperties)eObject);
+                        }
+                        continue;
+                    }
+
+                    String value = getValue(eObject, field);
+                    if(value != null) {
+                        first = writeSeparator(writer, first);
+                        writeJSONString(writer, field);
+                        writer.write(':');
+                        writeJSONString(writer, value);
+                    }
+                }
+
+                writer.write('}');
+            }
+
+            writer.write(count == 0 ? "]" : "\n]");
+        }
+
+        return count;
+    }
+
+    /**
+     * Write a header row of field names and one row per model object.
+     * The delimiter is a tab for .tsv files and a comma for others.
+     * @return The number of objects written
+     */
+    int writeCSV(File file) throws IOException {
+        char delimiter = file.getName().toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+        int count = 0;
+
+        try(Writer writer = createWriter(file)) {
+            for(int i = 0; i < fields.size(); i++) {
+                if(i > 0) {
+                    writer.write(delimiter);
+                }
+                writeCSVField(writer, fields.get(i), delimiter);
+            }
+            writer.write("\r\n");
+
+            StringBuilder sb = new StringBuilder();
+
+            for(EObject eObject : objects) {
+                for(int i = 0; i < fields.size(); i++) {
+                    if(i > 0) {
+                        writer.write(delimiter);
+                    }
+
+                    String field = fields.get(i);
+                    String value;
+
+                    if("properties".equals(field)) {
+                        sb.setLength(0);
+                        if(eObject instanceof IProperties) {
+                            writeJSONProperties(sb, (IProperties)eObject);
+                        }
+                        value = sb.toString();
+                    }
+                    else {
+                        value = getValue(eObject, field);
+                    }
+
+                    writeCSVField(writer, value, delimiter);
+                }
+
+                writer.write("\r\n");
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private Writer createWriter(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null) {
+            parent.mkdirs();
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * @return The value of field for eObject, or null if it has none
+     */
+    private static String getValue(EObject eObject, String field) {
+        switch(field) {
+            case "id":
+                return eObject instanceof IIdentifier ? ((IIdentifier)eObject).getId() : null;
+
+            case "type":
+                return TypeRegistry.INSTANCE.getTypeName(eObject.eClass());
+
+            case "name":
+                return eObject instanceof INameable ? ((INameable)eObject).getName() : null;
+
+            case "documentation":
+                return eObject instanceof IDocumentable ? ((IDocumentable)eObject).getDocumentation() : null;
+
+            case "specialization":
+                if(eObject instanceof IProfiles) {
+                    IProfile profile = ((IProfiles)eObject).getPrimaryProfile();
+                    return profile != null ? profile.getName() : null;
+                }
+                return null;
+
+            case "source":
+                return eObject instanceof IArchimateRelationship ? ((IArchimateRelationship)eObject).getSource().getId() : null;
+
+            case "target":
+                return eObject instanceof IArchimateRelationship ? ((IArchimateRelationship)eObject).getTarget().getId() : null;
+
+            case "folder":
+                return eObject.eContainer() instanceof IFolder ? ((IFolder)eObject.eContainer()).getId() : null;
+
+            default:
+                // prop.key
+                if(eObject instanceof IProperties) {
+                    String key = field.substring(PROPERTY_PREFIX.length());
+                    for(IProperty property : ((IProperties)eObject).getProperties()) {
+                        if(key.equals(property.getKey())) {
+                            return property.getValue();
+                        }
+                    }
+                }
+                return null;
+        }
+    }
+
+    private static boolean writeSeparator(Writer writer, boolean first) throws IOException {
+        if(!first) {
+            writer.write(',');
+        }
+        return false;
+    }
+
+    /**
+     * Write properties as a JSON object. If a key is used more than once the values are written as an array.
+     */
+    private static void writeJSONProperties(Appendable out, IProperties properties) throws IOException {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for(IProperty property : properties.getProperties()) {
+            values.computeIfAbsent(StringUtils.safeString(property.getKey()), k -> new ArrayList<>()).add(property.getValue());
+        }
+
+        out.append('{');
+
+        boolean first = true;
+        for(Entry<String, List<String>> entry : values.entrySet()) {
+            if(!first) {
+                out.append(',');
+            }
+            first = false;
+
+            writeJSONString(out, entry.getKey());
+            out.append(':');
+
+            if(entry.getValue().size() == 1) {
+                writeJSONString(out, entry.getValue().get(0));
+            }
+            else {
+                out.append('[');
+                for(int i = 0; i < entry.getValue().size(); i++) {
+                    if(i > 0) {
+                        out.append(',');
+                    }
+                    writeJSONString(out, entry.getValue().get(i));
+                }
+                out.append(']');
+            }
+        }
+
+        out.append('}');
+    }
+
+    static void writeJSONString(Appendable out, String s) throws IOException {
+        if(s == null) {
+            out.append("null");
+            return;
+        }
+
+        out.append('"');
+
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch(c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append(String.format("\\u%04x", (int)c));
+                    }
+                    else {
+                        out.append(c);
+                    }
+            }
+        }
+
+        out.append('"');
+    }
+
+    /**
+     * Write a CSV field, quoted only if it contains the delimiter, a quote or a new line
+     */
+    static void writeCSVField(Writer writer, String value, char delimiter) throws IOException {
+        if(value == null || value.isEmpty()) {
+            return;
+        }
+
+        boolean quote = false;
+        for(int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if(!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -6,9 +6,13 @@
 package com.archimatetool.script.dom.model;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.ui.PlatformUI;
@@ -46,6 +50,7 @@ import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.script.ArchiScriptException;
 import com.archimatetool.script.commands.AddElementCommand;
 import com.archimatetool.script.commands.AddRelationshipCommand;
+import com.archimatetool.script.commands.BulkCommand;
 import com.archimatetool.script.commands.CommandHandler;
 import com.archimatetool.script.commands.ScriptCommand;
 import com.archimatetool.script.commands.ScriptCommandWrapper;
@@ -68,7 +73,7 @@ class ModelFactory implements IModelConstants {
         // Ensure all components share the same model
         ModelUtil.checkComponentsInSameModel(model, parentFolder);
         
-        EClass eClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(type));
+        EClass eClass = TypeRegistry.INSTANCE.getEClass(type);
         if(eClass != null && IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass)) { // Check this is the correct type
             IArchimateElement element = (IArchimateElement)IArchimateFactory.eINSTANCE.create(eClass);
             element.setName(StringUtils.safeString(name));
@@ -96,9 +101,9 @@ class ModelFactory implements IModelConstants {
         // Ensure all components share the same model
         ModelUtil.checkComponentsInSameModel(model, parentFolder, source, target);
         
-        EClass eClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(type));
+        EClass eClass = TypeRegistry.INSTANCE.getEClass(type);
         if(eClass != null && IArchimatePackage.eINSTANCE.getArchimateRelationship().isSuperTypeOf(eClass)) { // Check this is the correct type
-            if(!ArchimateModelUtils.isValidRelationship(source, target, eClass)) {
+            if(!TypeRegistry.INSTANCE.isValidRelationship(source, target, eClass)) {
                 throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_3, type));
             }
 
@@ -118,6 +123,168 @@ class ModelFactory implements IModelConstants {
         throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_1, type));
     }
 
+    /**
+     * Create many elements from a list of specs and add them in one command.
+     * Each spec is a map with "type" and optional "name", "documentation", "properties" (a map) and "folder" (a FolderProxy).
+     * All specs are checked before any element is created.
+     */
+    static EObjectProxyCollection createElements(IArchimateModel model, List<?> specs) {
+        int size = specs.size();
+        Map<?, ?>[] maps = new Map<?, ?>[size];
+        EClass[] eClasses = new EClass[size];
+        
+        for(int i = 0; i < size; i++) {
+            maps[i] = getSpec(specs, i);
+            String type = ModelUtil.getStringValueFromMap(maps[i], TYPE, ""); //$NON-NLS-1$
+            eClasses[i] = TypeRegistry.INSTANCE.getEClass(type);
+            if(eClasses[i] == null || !IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClasses[i])) {
+                throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_15, i, NLS.bind(Messages.ArchimateModelProxy_0, type)));
+            }
+            checkSpecFolder(model, maps[i], i);
+        }
+        
+        BulkCommand cmd = new BulkCommand("add", model); //$NON-NLS-1$
+        EObjectProxyCollection result = new EObjectProxyCollection();
+        Map<IFolder, Map<EClass, IFolder>> folders = new HashMap<>();
+        
+        for(int i = 0; i < size; i++) {
+            IArchimateElement element = (IArchimateElement)IArchimateFactory.eINSTANCE.create(eClasses[i]);
+            setSpecValues(element, maps[i]);
+            cmd.add(getSpecFolder(model, maps[i], element, folders), element);
+            result.add(new ArchimateElementProxy(element));
+        }
+        
+        CommandHandler.executeCommand(cmd);
+        
+        return result;
+    }
+    
+    /**
+     * Create many relationships from a list of specs and add them in one command.
+     * Each spec is a map with "type", "source" and "target" and optional "name", "documentation", "properties" (a map) and "folder" (a FolderProxy).
+     * Source and target are concept proxies or ids.
+     * All specs are checked before any relationship is created.
+     */
+    static EObjectProxyCollection createRelationships(IArchimateModel model, List<?> specs) {
+        int size = specs.size();
+        Map<?, ?>[] maps = new Map<?, ?>[size];
+        EClass[] eClasses = new EClass[size];
+        IArchimateConcept[] sources = new IArchimateConcept[size];
+        IArchimateConcept[] targets = new IArchimateConcept[size];
+        Map<String, IArchimateConcept> idIndex = new HashMap<>();
+        
+        for(int i = 0; i < size; i++) {
+            maps[i] = getSpec(specs, i);
+            String type = ModelUtil.getStringValueFromMap(maps[i], TYPE, ""); //$NON-NLS-1$
+            eClasses[i] = TypeRegistry.INSTANCE.getEClass(type);
+            if(eClasses[i] == null || !IArchimatePackage.eINSTANCE.getArchimateRelationship().isSuperTypeOf(eClasses[i])) {
+                throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_15, i, NLS.bind(Messages.ArchimateModelProxy_1, type)));
+            }
+            
+            sources[i] = getSpecConcept(model, maps[i].get(SOURCE), idIndex);
+            targets[i] = getSpecConcept(model, maps[i].get(TARGET), idIndex);
+            if(sources[i] == null || targets[i] == null) {
+                throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_15, i, NLS.bind(Messages.ModelFactory_16,
+                        sources[i] == null ? SOURCE : TARGET)));
+            }
+            
+            ModelUtil.checkComponentsInSameModel(model, sources[i], targets[i]);
+            
+            if(!TypeRegistry.INSTANCE.isValidRelationship(sources[i], targets[i], eClasses[i])) {
+                throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_15, i, NLS.bind(Messages.ArchimateModelProxy_3, type)));
+            }
+            
+            checkSpecFolder(model, maps[i], i);
+        }
+        
+        BulkCommand cmd = new BulkCommand("add", model); //$NON-NLS-1$
+        EObjectProxyCollection result = new EObjectProxyCollection();
+        Map<IFolder, Map<EClass, IFolder>> folders = new HashMap<>();
+        
+        for(int i = 0; i < size; i++) {
+            IArchimateRelationship relationship = (IArchimateRelationship)IArchimateFactory.eINSTANCE.create(eClasses[i]);
+            setSpecValues(relationship, maps[i]);
+            cmd.add(getSpecFolder(model, maps[i], relationship, folders), relationship, sources[i], targets[i]);
+            result.add(new ArchimateRelationshipProxy(relationship));
+        }
+        
+        CommandHandler.executeCommand(cmd);
+        
+        return result;
+    }
+    
+    private static Map<?, ?> getSpec(List<?> specs, int index) {
+        Object spec = specs.get(index);
+        if(!(spec instanceof Map)) {
+            throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_15, index, Messages.ModelFactory_17));
+        }
+        return (Map<?, ?>)spec;
+    }
+    
+    private static void checkSpecFolder(IArchimateModel model, Map<?, ?> spec, int index) {
+        Object folder = spec.get(FOLDER);
+        if(folder != null) {
+            if(!(folder instanceof FolderProxy)) {
+                throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_15, index, Messages.ModelFactory_0));
+            }
+            ModelUtil.checkComponentsInSameModel(model, ((FolderProxy)folder).getEObject());
+        }
+    }
+    
+    /**
+     * @return The spec's folder if it is correct for the concept, else the default folder. Results are cached by folder and type.
+     */
+    private static IFolder getSpecFolder(IArchimateModel model, Map<?, ?> spec, IArchimateConcept concept, Map<IFolder, Map<EClass, IFolder>> cache) {
+        IFolder folder = spec.get(FOLDER) instanceof FolderProxy ? ((FolderProxy)spec.get(FOLDER)).getEObject() : null;
+        
+        return cache.computeIfAbsent(folder, f -> new HashMap<>()).computeIfAbsent(concept.eClass(), eClass -> {
+            return folder != null && ModelUtil.isCorrectFolderForObject(folder, concept) ? folder : model.getDefaultFolderForObject(concept);
+        });
+    }
+    
+    /**
+     * Set name, documentation and properties of a new concept from a spec
+     */
+    private static void setSpecValues(IArchimateConcept concept, Map<?, ?> spec) {
+        concept.setName(StringUtils.safeString(ModelUtil.getStringValueFromMap(spec, NAME, null)));
+        
+        String documentation = ModelUtil.getStringValueFromMap(spec, DOCUMENTATION, null);
+        if(documentation != null) {
+            concept.setDocumentation(documentation);
+        }
+        
+        if(spec.get(PROPERTIES) instanceof Map) {
+            for(Entry<?, ?> entry : ((Map<?, ?>)spec.get(PROPERTIES)).entrySet()) {
+                concept.getProperties().add(IArchimateFactory.eINSTANCE.createProperty(String.valueOf(entry.getKey()),
+                        entry.getValue() == null ? "" : String.valueOf(entry.getValue()))); //$NON-NLS-1$
+            }
+        }
+    }
+    
+    /**
+     * @return The concept for a spec's source or target, which is a proxy or an id
+     */
+    private static IArchimateConcept getSpecConcept(IArchimateModel model, Object value, Map<String, IArchimateConcept> idIndex) {
+        if(value instanceof ArchimateConceptProxy) {
+            return ((ArchimateConceptProxy)value).getEObject();
+        }
+        
+        if(value instanceof String) {
+            // Index the model's concepts the first time an id is used
+            if(idIndex.isEmpty()) {
+                for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+                    EObject eObject = iter.next();
+                    if(eObject instanceof IArchimateConcept) {
+                        idIndex.put(((IArchimateConcept)eObject).getId(), (IArchimateConcept)eObject);
+                    }
+                }
+            }
+            return idIndex.get(value);
+        }
+        
+        return null;
+    }
+
     /**
      * Create a new FolderProxy
      */
@@ -475,7 +642,7 @@ class ModelFactory implements IModelConstants {
         }
         
         // Convert kebab to camel case
-        conceptType = ModelUtil.getCamelCase(conceptType);
+        conceptType = TypeRegistry.INSTANCE.getClassName(conceptType);
         
         // Check it's the correct type
         if(!ModelUtil.isArchimateConcept(conceptType)) {
@@ -0,0 +1,197 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.INameable;
+
+/**
+ * Trigram index of the names of a model's concepts, views and folders
+ *
+ * Used to narrow down the objects whose names could match a NamePattern before the pattern is run.
+ * The index is built the first time it is asked for and then kept up to date from ModelChangeTracker.
+ *
+ * @author Phillip Beauvoir
+ */
+class ModelNameIndex extends AdapterImpl {
+
+    /**
+     * @return The index for model, building it if it does not have one yet
+     */
+    static ModelNameIndex get(IArchimateModel model) {
+        synchronized(ModelNameIndex.class) {
+            for(Adapter adapter : new ArrayList<>(model.eAdapters())) {
+                if(adapter instanceof ModelNameIndex) {
+                    ModelNameIndex index = (ModelNameIndex)adapter;
+                    if(!index.tracker.isDisposed()) {
+                        return index;
+                    }
+
+                    // The model was closed since the index was made so it is no longer kept up to date
+                    model.eAdapters().remove(index);
+                }
+            }
+
+            ModelNameIndex index = new ModelNameIndex();
+            index.add(model);
+            model.eAdapters().add(index);
+            index.tracker = ModelChangeTracker.get(model);
+            index.tracker.addListener(index::modelChanged);
+            return index;
+        }
+    }
+
+    /**
+     * @return true if eObject's name is indexed
+     */
+    static boolean isIndexed(EObject eObject) {
+        return eObject instanceof IArchimateConcept || eObject instanceof IDiagramModel || eObject instanceof IFolder;
+    }
+
+    // Objects whose name contains each trigram
+    private final Map<String, Set<EObject>> postings = new HashMap<>();
+
+    // Trigrams of each indexed object so that they can be removed
+    private final Map<EObject, Set<String>> objectTrigrams = new HashMap<>();
+
+    private ModelChangeTracker tracker;
+
+    private ModelNameIndex() {
+    }
+
+    /**
+     * @return Indexed objects whose name matches pattern
+     */
+    synchronized Set<EObject> getMatches(NamePattern pattern) {
+        Set<EObject> candidates = null;
+
+        if(!pattern.getTrigrams().isEmpty()) {
+            // Start with the smallest posting list
+            List<Set<EObject>> lists = new ArrayList<>();
+            for(String trigram : pattern.getTrigrams()) {
+                lists.add(postings.getOrDefault(trigram, Collections.emptySet()));
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+            candidates = new HashSet<>(lists.get(0));
+            for(int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(lists.get(i));
+            }
+        }
+        else {
+            // No trigrams to narrow the search so test every name
+            candidates = new HashSet<>(objectTrigrams.keySet());
+        }
+
+        candidates.removeIf(object -> !pattern.matches(((INameable)object).getName()));
+        return candidates;
+    }
+
+    private void add(EObject eObject) {
+        if(isIndexed(eObject)) {
+            index(eObject);
+        }
+
+        for(Iterator<EObject> iter = eObject.eAllContents(); iter.hasNext();) {
+            EObject child = iter.next();
+            if(isIndexed(child)) {
+                index(child);
+            }
+        }
+    }
+
+    private void remove(EObject eObject) {
+        unindex(eObject);
+
+        for(Iterator<EObject> iter = eObject.eAllContents(); iter.hasNext();) {
+            unindex(iter.next());
+        }
+    }
+
+    private void index(EObject object) {
+        unindex(object);
+
+        Set<String> trigrams = new HashSet<>();
+        String name = ((INameable)object).getName();
+        if(name != null) {
+            NamePattern.addTrigrams(name, trigrams);
+        }
+
+        for(String trigram : trigrams) {
+            postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(object);
+        }
+
+        objectTrigrams.put(object, trigrams);
+    }
+
+    private void unindex(EObject object) {
+        Set<String> trigrams = objectTrigrams.remove(object);
+        if(trigrams == null) {
+            return;
+        }
+
+        for(String trigram : trigrams) {
+            Set<EObject> objects = postings.get(trigram);
+            objects.remove(object);
+            if(objects.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private synchronized void modelChanged(Notification notification) {
+        // Objects added to or removed from the model
+        if(notification.getFeature() instanceof EReference && ((EReference)notification.getFeature()).isContainment()) {
+            for(EObject removed : getEObjects(notification.getOldValue())) {
+                remove(removed);
+            }
+            for(EObject added : getEObjects(notification.getNewValue())) {
+                add(added);
+            }
+        }
+        // Name changed
+        else if(notification.getFeature() == IArchimatePackage.Literals.NAMEABLE__NAME && objectTrigrams.containsKey(notification.getNotifier())) {
+            index((EObject)notification.getNotifier());
+        }
+    }
+
+    private static List<EObject> getEObjects(Object value) {
+        List<EObject> list = new ArrayList<>();
+
+        if(value instanceof EObject) {
+            list.add((EObject)value);
+        }
+        else if(value instanceof Collection<?>) {
+            for(Object o : (Collection<?>)value) {
+                if(o instanceof EObject) {
+                    list.add((EObject)o);
+                }
+            }
+        }
+
+        return list;
+    }
+}
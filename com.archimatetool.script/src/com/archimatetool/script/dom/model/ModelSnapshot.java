@@ -0,0 +1,150 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.archimatetool.script.ScriptRunContext;
+
+/**
+ * Read-only snapshot of a model's concepts and views
+ *
+ * A snapshot holds ids, types, names, properties and the relationship adjacency structure of a model as columns indexed by object.
+ * It does not refer to the model and never changes, so it can be queried from any number of threads.
+ * SnapshotQuery runs its built-in filters, traversals and aggregations in parallel on the common ForkJoinPool.
+ *
+ * HeapModelSnapshot is taken from a loaded model, MappedModelSnapshot is opened from a file written by save().
+ *
+ * @author Phillip Beauvoir
+ */
+public abstract class ModelSnapshot {
+
+    static final byte ELEMENT = 0;
+    static final byte RELATIONSHIP = 1;
+    static final byte VIEW = 2;
+
+    /**
+     * @return number of objects in the snapshot
+     */
+    public abstract int size();
+
+    /**
+     * @return All objects in the snapshot
+     */
+    public SnapshotQuery all() {
+        return new SnapshotQuery(this, IntStream.range(0, size()).toArray());
+    }
+
+    /**
+     * @return All objects in the snapshot
+     */
+    public SnapshotQuery find() {
+        return all();
+    }
+
+    /**
+     * @param selector A selector such as "*", "element", "business-actor", "#id", ".name" or "business-actor.name"
+     * @return objects that match the selector
+     */
+    public SnapshotQuery find(String selector) {
+        return all().filter(selector);
+    }
+
+    /**
+     * @return The object with the given id, or null
+     */
+    public SnapshotObject get(String id) {
+        int index = indexOf(id);
+        return index == -1 ? null : new SnapshotObject(this, index);
+    }
+
+    /**
+     * Write the snapshot to file so that it can be opened later with MappedModelSnapshot.open() without loading the model
+     * @param path The file to write to
+     */
+    public void save(String path) throws IOException {
+        File file = ScriptRunContext.resolveFile(path);
+        if(file.getAbsoluteFile().getParentFile() != null) {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        MappedModelSnapshot.write(this, file);
+    }
+
+    /**
+     * @return The index of the object with the given id, or -1
+     */
+    abstract int indexOf(String id);
+
+    abstract String getId(int index);
+
+    abstract String getType(int index);
+
+    abstract String getName(int index);
+
+    abstract byte getKind(int index);
+
+    /**
+     * @return Source object of relationship index, or -1 if index is not a relationship
+     */
+    abstract int getSource(int index);
+
+    /**
+     * @return Target object of relationship index, or -1 if index is not a relationship
+     */
+    abstract int getTarget(int index);
+
+    /**
+     * @return number of properties of object index
+     */
+    abstract int getPropertyCount(int index);
+
+    /**
+     * @return key of the p'th property of object index
+     */
+    abstract String getPropertyKey(int index, int p);
+
+    /**
+     * @return value of the p'th property of object index
+     */
+    abstract String getPropertyValue(int index, int p);
+
+    /**
+     * @return relationships where object index is the source
+     */
+    abstract IntStream outgoing(int index);
+
+    /**
+     * @return relationships where object index is the target
+     */
+    abstract IntStream incoming(int index);
+
+    /**
+     * @return the first value of property key of object index, or null
+     */
+    String getProperty(int index, String key) {
+        for(int p = 0, count = getPropertyCount(index); p < count; p++) {
+            if(key.equals(getPropertyKey(index, p))) {
+                return getPropertyValue(index, p);
+            }
+        }
+        return null;
+    }
+
+    List<String> getPropertyKeys(int index) {
+        List<String> list = new ArrayList<>();
+        for(int p = 0, count = getPropertyCount(index); p < count; p++) {
+            String key = getPropertyKey(index, p);
+            if(!list.contains(key)) {
+                list.add(key);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDocumentable;
+import com.archimatetool.model.INameable;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+
+/**
+ * Inverted index of the words in the names, documentation and property values of a model's concepts and views
+ *
+ * The index is built the first time it is asked for and then kept up to date from ModelChangeTracker,
+ * so only objects that change are indexed again.
+ *
+ * A query is a list of clauses that must all match, case insensitive:
+ *
+ * <pre>
+ * word          objects containing the word
+ * word*         objects containing a word starting with word
+ * "some words"  objects containing the words next to each other in the same name, documentation or property value
+ * </pre>
+ *
+ * @author Phillip Beauvoir
+ */
+public class ModelTextIndex extends AdapterImpl {
+
+    /**
+     * @return The index for model, building it if it does not have one yet
+     */
+    public static ModelTextIndex get(IArchimateModel model) {
+        synchronized(ModelTextIndex.class) {
+            for(Adapter adapter : new ArrayList<>(model.eAdapters())) {
+                if(adapter instanceof ModelTextIndex) {
+                    ModelTextIndex index = (ModelTextIndex)adapter;
+                    if(!index.tracker.isDisposed()) {
+                        return index;
+                    }
+
+                    // The model was closed since the index was made so it is no longer kept up to date
+                    model.eAdapters().remove(index);
+                }
+            }
+
+            ModelTextIndex index = new ModelTextIndex();
+            index.add(model);
+            model.eAdapters().add(index);
+            index.tracker = ModelChangeTracker.get(model);
+            index.tracker.addListener(index::modelChanged);
+            return index;
+        }
+    }
+
+    // Objects that contain each word, words are sorted for prefix search
+    private final TreeMap<String, Set<EObject>> postings = new TreeMap<>();
+
+    // Words of each indexed object so that they can be removed
+    private final Map<EObject, Set<String>> objectWords = new HashMap<>();
+
+    // Order in which objects were indexed so that results are returned in a stable order
+    private final Map<EObject, Long> order = new HashMap<>();
+    private long nextOrder;
+
+    private ModelChangeTracker tracker;
+
+    private ModelTextIndex() {
+    }
+
+    /**
+     * @param query The query
+     * @return Objects that match all clauses of the query, or an empty list if there are no clauses
+     */
+    public synchronized List<EObject> search(String query) {
+        List<List<String>> clauses = parse(query);
+        if(clauses.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<EObject> result = null;
+
+        for(List<String> clause : clauses) {
+            Set<EObject> matches = match(clause);
+            if(result == null) {
+                result = matches;
+            }
+            else {
+                result.retainAll(matches);
+            }
+
+            if(result.isEmpty()) {
+                break;
+            }
+        }
+
+        List<EObject> list = new ArrayList<>(result);
+        list.sort(Comparator.comparing(order::get));
+        return list;
+    }
+
+    /**
+     * @return number of distinct words in the index
+     */
+    public synchronized int getWordCount() {
+        return postings.size();
+    }
+
+    /**
+     * @return objects matching a clause. A clause is one word, one word ending in * for a prefix, or several words for a phrase.
+     */
+    private Set<EObject> match(List<String> clause) {
+        if(clause.size() == 1) {
+            String word = clause.get(0);
+
+            if(word.endsWith("*")) { //$NON-NLS-1$
+                String prefix = word.substring(0, word.length() - 1);
+                Set<EObject> matches = new HashSet<>();
+                for(Set<EObject> objects : postings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+                    matches.addAll(objects);
+                }
+                return matches;
+            }
+
+            return new HashSet<>(postings.getOrDefault(word, Collections.emptySet()));
+        }
+
+        // Phrase. Objects that contain all of the words, then check that the words are next to each other.
+        Set<EObject> matches = null;
+        for(String word : clause) {
+            Set<EObject> objects = postings.getOrDefault(word, Collections.emptySet());
+            if(matches == null) {
+                matches = new HashSet<>(objects);
+            }
+            else {
+                matches.retainAll(objects);
+            }
+        }
+
+        matches.removeIf(object -> !containsPhrase(object, clause));
+        return matches;
+    }
+
+    private boolean containsPhrase(EObject object, List<String> phrase) {
+        for(String text : getTexts(object)) {
+            if(Collections.indexOfSubList(tokenize(text), phrase) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse a query into clauses
+     */
+    static List<List<String>> parse(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        if(query == null) {
+            return clauses;
+        }
+
+        int i = 0;
+        while(i < query.length()) {
+            char c = query.charAt(i);
+
+            if(Character.isWhitespace(c)) {
+                i++;
+            }
+            else if(c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if(end == -1) {
+                    end = query.length();
+                }
+                List<String> words = tokenize(query.substring(i + 1, end));
+                if(!words.isEmpty()) {
+                    clauses.add(words);
+                }
+                i = end + 1;
+            }
+            else {
+                int end = i;
+                while(end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+                    end++;
+                }
+                String term = query.substring(i, end);
+                List<String> words = tokenize(term);
+                if(words.size() == 1 && term.endsWith("*")) { //$NON-NLS-1$
+                    words.set(0, words.get(0) + "*"); //$NON-NLS-1$
+                }
+                if(!words.isEmpty()) {
+                    clauses.add(words);
+                }
+                i = end;
+            }
+        }
+
+        return clauses;
+    }
+
+    /**
+     * @return The lower case words in text. A word is a run of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if(text == null) {
+            return words;
+        }
+
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if(wordChar && start == -1) {
+                start = i;
+            }
+            else if(!wordChar && start != -1) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+
+        return words;
+    }
+
+    private static boolean isIndexed(EObject eObject) {
+        return eObject instanceof IArchimateConcept || eObject instanceof IDiagramModel;
+    }
+
+    /**
+     * @return The name, documentation and property values of object
+     */
+    private static List<String> getTexts(EObject object) {
+        List<String> texts = new ArrayList<>();
+
+        if(object instanceof INameable) {
+            texts.add(((INameable)object).getName());
+        }
+        if(object instanceof IDocumentable) {
+            texts.add(((IDocumentable)object).getDocumentation());
+        }
+        if(object instanceof IProperties) {
+            for(IProperty property : ((IProperties)object).getProperties()) {
+                texts.add(property.getValue());
+            }
+        }
+
+        return texts;
+    }
+
+    /**
+     * Index eObject and the objects it contains
+     */
+    private void add(EObject eObject) {
+        if(isIndexed(eObject)) {
+            index(eObject);
+        }
+
+        for(Iterator<EObject> iter = eObject.eAllContents(); iter.hasNext();) {
+            EObject child = iter.next();
+            if(isIndexed(child)) {
+                index(child);
+            }
+        }
+    }
+
+    /**
+     * Remove eObject and the objects it contains from the index
+     */
+    private void remove(EObject eObject) {
+        unindex(eObject);
+        order.remove(eObject);
+
+        for(Iterator<EObject> iter = eObject.eAllContents(); iter.hasNext();) {
+            EObject child = iter.next();
+            unindex(child);
+            order.remove(child);
+        }
+    }
+
+    private void index(EObject object) {
+        unindex(object);
+
+        Set<String> words = new HashSet<>();
+        for(String text : getTexts(object)) {
+            words.addAll(tokenize(text));
+        }
+
+        for(String word : words) {
+            postings.computeIfAbsent(word, w -> new HashSet<>()).add(object);
+        }
+
+        objectWords.put(object, words);
+        order.computeIfAbsent(object, o -> nextOrder++);
+    }
+
+    private void unindex(EObject object) {
+        Set<String> words = objectWords.remove(object);
+        if(words == null) {
+            return;
+        }
+
+        for(String word : words) {
+            Set<EObject> objects = postings.get(word);
+            objects.remove(object);
+            if(objects.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Keep the index up to date with a change in the model
+     */
+    private synchronized void modelChanged(Notification notification) {
+        // Objects added to or removed from the model
+        if(notification.getFeature() instanceof EReference && ((EReference)notification.getFeature()).isContainment()) {
+            for(EObject removed : getEObjects(notification.getOldValue())) {
+                remove(removed);
+            }
+            for(EObject added : getEObjects(notification.getNewValue())) {
+                add(added);
+            }
+        }
+
+        // Text of an object or its properties changed
+        for(EObject eObject = (EObject)notification.getNotifier(); eObject != null; eObject = eObject.eContainer()) {
+            if(isIndexed(eObject)) {
+                if(objectWords.containsKey(eObject)) {
+                    index(eObject);
+                }
+                break;
+            }
+        }
+    }
+
+    private static List<EObject> getEObjects(Object value) {
+        List<EObject> list = new ArrayList<>();
+
+        if(value instanceof EObject) {
+            list.add((EObject)value);
+        }
+        else if(value instanceof Collection<?>) {
+            for(Object o : (Collection<?>)value) {
+                if(o instanceof EObject) {
+                    list.add((EObject)o);
+                }
+            }
+        }
+
+        return list;
+    }
+}
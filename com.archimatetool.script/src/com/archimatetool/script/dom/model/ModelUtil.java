@@ -5,18 +5,24 @@
  */
 package com.archimatetool.script.dom.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 
+import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.ui.PlatformUI;
 
+import com.archimatetool.editor.ArchiPlugin;
 import com.archimatetool.editor.model.DiagramModelUtils;
 import com.archimatetool.editor.model.IArchiveManager;
 import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.editor.preferences.IPreferenceConstants;
+import com.archimatetool.editor.ui.factory.IGraphicalObjectUIProvider;
 import com.archimatetool.editor.ui.factory.IObjectUIProvider;
 import com.archimatetool.editor.ui.factory.ObjectUIFactory;
 import com.archimatetool.editor.utils.StringUtils;
@@ -27,11 +33,12 @@ import com.archimatetool.model.IArchimateModelObject;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IArchimateRelationship;
 import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelContainer;
 import com.archimatetool.model.IDiagramModelObject;
 import com.archimatetool.model.IFolder;
-import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.dom.model.SelectorFilterFactory.ISelectorFilter;
 
 /**
  * Model Utils
@@ -53,17 +60,7 @@ class ModelUtil {
      */
     static IDiagramModelContainer getNestedParentAndBounds(IDiagramModelContainer parent, IBounds bounds) {
         // Get the actual parent if there is one that occupies that space
-        for(Iterator<EObject> iter = parent.eAllContents(); iter.hasNext();) {
-            EObject eObject = iter.next();
-            
-            if(eObject instanceof IDiagramModelContainer) {
-                IDiagramModelObject dmo = (IDiagramModelObject)eObject;
-                IBounds dmoBounds = DiagramModelUtils.getAbsoluteBounds(dmo);
-                if(DiagramModelUtils.outerBoundsContainsInnerBounds(dmoBounds, bounds)) {
-                    parent = (IDiagramModelContainer)eObject;
-                }
-            }
-        }
+        parent = DiagramSpatialIndex.get(parent.getDiagramModel()).getNestedParent(parent, bounds);
         
         // Convert back to relative co-ords
         if(parent instanceof IDiagramModelObject) {
@@ -139,25 +136,25 @@ class ModelUtil {
      * @return false if trying to set an invalid type
      */
     static boolean isAllowedSetType(IArchimateConcept concept, String type) {
-        EClass eClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(getCamelCase(type));
+        EClass eClass = TypeRegistry.INSTANCE.getEClass(type);
         
         // Check source relationships
         for(IArchimateRelationship rel : concept.getSourceRelationships()) {
-            if(!ArchimateModelUtils.isValidRelationship(eClass, rel.getTarget().eClass(), rel.eClass())) {
+            if(!TypeRegistry.INSTANCE.isValidRelationship(eClass, rel.getTarget().eClass(), rel.eClass())) {
                 return false;
             }
         }
         
         // Check target relationships
         for(IArchimateRelationship rel : concept.getTargetRelationships()) {
-            if(!ArchimateModelUtils.isValidRelationship(rel.getSource().eClass(), eClass, rel.eClass())) {
+            if(!TypeRegistry.INSTANCE.isValidRelationship(rel.getSource().eClass(), eClass, rel.eClass())) {
                 return false;
             }
         }
         
         // If a relationship, check ends
         if(concept instanceof IArchimateRelationship) {
-            if(!ArchimateModelUtils.isValidRelationship(((IArchimateRelationship)concept).getSource(),
+            if(!TypeRegistry.INSTANCE.isValidRelationship(((IArchimateRelationship)concept).getSource(),
                     ((IArchimateRelationship)concept).getTarget(), eClass)) {
                 return false;
             }
@@ -229,6 +226,17 @@ class ModelUtil {
         return (map != null && map.get(key) instanceof String) ? (String)map.get(key) : defaultValue;
     }
     
+    /**
+     * Get a boolean value from a property map.
+     * @param map
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    static boolean getBooleanValueFromMap(Map<?, ?> map, String key, boolean defaultValue) {
+        return (map != null && map.get(key) instanceof Boolean) ? (Boolean)map.get(key) : defaultValue;
+    }
+    
     /**
      * Check all components belong to the same model
      */
@@ -260,6 +268,20 @@ class ModelUtil {
         return true;
     }
 
+    /**
+     * @return The default size of a new dmo of the same type. Notes and groups have their own size, ArchiMate figures have the preferences size.
+     */
+    static Dimension getDefaultSize(IDiagramModelObject dmo) {
+        IObjectUIProvider provider = ObjectUIFactory.INSTANCE.getProvider(dmo);
+        
+        if(provider instanceof IGraphicalObjectUIProvider) {
+            return ((IGraphicalObjectUIProvider)provider).getDefaultSize();
+        }
+        
+        return new Dimension(ArchiPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.DEFAULT_ARCHIMATE_FIGURE_WIDTH),
+                ArchiPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.DEFAULT_ARCHIMATE_FIGURE_HEIGHT));
+    }
+
     /**
      * Return the IArchiveManager for a model
      * @throws ArchiScriptException if null
@@ -295,4 +317,73 @@ class ModelUtil {
         return eClass != null && IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass) &&
                 !IArchimatePackage.eINSTANCE.getJunction().isSuperTypeOf(eClass);
     }
+
+    /**
+     * @return The objects in model that match selector, visited lazily.
+     * As with model.find(selector), only concepts, views and folders are matched unless the selector is an id.
+     */
+    static Iterable<EObject> select(IArchimateModel model, String selector) {
+        ISelectorFilter filter = SelectorFilterFactory.INSTANCE.getFilter(selector);
+        if(filter == null) {
+            return new ArrayList<>();
+        }
+
+        boolean byId = selector.startsWith("#");
+
+        return () -> new Iterator<EObject>() {
+            Iterator<EObject> iter = model.eAllContents();
+            EObject next = advance();
+
+            EObject advance() {
+                while(iter != null && iter.hasNext()) {
+                    EObject eObject = iter.next();
+                    if((byId || isConceptViewOrFolder(eObject)) && filter.accept(eObject)) {
+                        if(filter.isSingle()) {
+                            iter = null;
+                        }
+                        return eObject;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public EObject next() {
+                if(next == null) {
+                    throw new NoSuchElementException();
+                }
+                EObject eObject = next;
+                next = advance();
+                return eObject;
+            }
+        };
+    }
+
+    /**
+     * @return The objects of an existing collection
+     */
+    static Iterable<EObject> select(EObjectProxyCollection collection) {
+        return () -> new Iterator<EObject>() {
+            Iterator<EObjectProxy> iter = collection.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public EObject next() {
+                return iter.next().getEObject();
+            }
+        };
+    }
+
+    private static boolean isConceptViewOrFolder(EObject eObject) {
+        return eObject instanceof IArchimateConcept || eObject instanceof IDiagramModel || eObject instanceof IFolder;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,333 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A glob or regular expression used to match names in selectors
+ *
+ * <pre>
+ * Cust*         glob, * is any characters and ? is one character. The whole name must match.
+ * /^Cust.*r$/   regular expression, found anywhere in the name unless anchored
+ * /cust/i       case insensitive regular expression
+ * </pre>
+ *
+ * Anything that is not a regular expression is a glob, so a glob without * or ? matches the name exactly.
+ *
+ * Patterns are compiled once and kept in a small cache. Each pattern also knows the trigrams that any matching name must contain,
+ * so that ModelNameIndex can find the candidate objects before the pattern is run on their names.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class NamePattern {
+
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<String, NamePattern> cache = Collections.synchronizedMap(new LinkedHashMap<String, NamePattern>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, NamePattern> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    /**
+     * @return true if s is a regular expression in the form /regex/ or /regex/i
+     */
+    static boolean isRegex(String s) {
+        return s.length() > 2 && s.startsWith("/") && (s.endsWith("/") || s.endsWith("/i"));
+    }
+
+    /**
+     * @return The compiled pattern for s, a regular expression if isRegex(s) or else a glob
+     */
+    static NamePattern compile(String s) {
+        return cache.computeIfAbsent(s, NamePattern::new);
+    }
+
+    private final String source;
+    private final Pattern pattern;
+    private final boolean glob;
+
+    // Lower case trigrams that every matching name contains
+    private final Set<String> trigrams = new LinkedHashSet<>();
+
+    private NamePattern(String source) {
+        this.source = source;
+
+        if(isRegex(source)) {
+            glob = false;
+            boolean ignoreCase = source.endsWith("/i");
+            String regex = source.substring(1, source.length() - (ignoreCase ? 2 : 1));
+            pattern = Pattern.compile(regex, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+            for(String literal : getRegexLiterals(regex)) {
+                addTrigrams(literal, trigrams);
+            }
+        }
+        else {
+            glob = true;
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+
+            for(char c : source.toCharArray()) {
+                if(c == '*' || c == '?') {
+                    regex.append(Pattern.quote(literal.toString())).append(c == '*' ? ".*" : ".");
+                    addTrigrams(literal.toString(), trigrams);
+                    literal.setLength(0);
+                }
+                else {
+                    literal.append(c);
+                }
+            }
+
+            regex.append(Pattern.quote(literal.toString()));
+            addTrigrams(literal.toString(), trigrams);
+
+            pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+
+    /**
+     * @return true if name matches. A glob also matches a name that is the same as the glob, so names containing * and ? can still be found.
+     */
+    boolean matches(String name) {
+        if(name == null) {
+            return false;
+        }
+
+        if(glob) {
+            return name.equals(source) || pattern.matcher(name).matches();
+        }
+
+        return pattern.matcher(name).find();
+    }
+
+    /**
+     * @return Lower case trigrams that every matching name contains. If empty, any name could match.
+     */
+    Set<String> getTrigrams() {
+        return trigrams;
+    }
+
+    /**
+     * Add the lower case trigrams of s to set
+     */
+    static void addTrigrams(String s, Set<String> set) {
+        s = s.toLowerCase(Locale.ROOT);
+        for(int i = 0; i + 3 <= s.length(); i++) {
+            set.add(s.substring(i, i + 3));
+        }
+    }
+
+    /**
+     * @return Runs of literal characters that any string matched by regex must contain.
+     * This is conservative: groups, character classes and alternatives are skipped rather than analysed.
+     */
+    static List<String> getRegexLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+
+        if(hasTopLevelAlternative(regex)) {
+            return literals;
+        }
+
+        StringBuilder run = new StringBuilder();
+        int i = 0;
+
+        while(i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal;
+
+            if(c == '\\' && i + 1 < regex.length()) {
+                char next = regex.charAt(i + 1);
+                // \d, \w, \b, back references, character codes and the like are not taken as literals
+                if(Character.isLetterOrDigit(next)) {
+                    endRun(run, literals);
+                    i = skipEscape(regex, i);
+                    continue;
+                }
+                literal = next;
+                i += 2;
+            }
+            else if(c == '(' || c == '[') {
+                endRun(run, literals);
+                i = skipGroup(regex, i);
+                continue;
+            }
+            else if(".^$|*+?{}])".indexOf(c) != -1) {
+                endRun(run, literals);
+                i++;
+                continue;
+            }
+            else {
+                literal = c;
+                i++;
+            }
+
+            // A quantifier after the character makes it optional or repeated
+            char quantifier = i < regex.length() ? regex.charAt(i) : 0;
+            if(quantifier == '*' || quantifier == '?' || quantifier == '{') {
+                endRun(run, literals);
+            }
+            else if(quantifier == '+') {
+                run.append(literal);
+                endRun(run, literals);
+            }
+            else {
+                run.append(literal);
+            }
+        }
+
+        endRun(run, literals);
+        return literals;
+    }
+
+    /**
+     * @return index after the escape that starts with a backslash at start and is followed by a letter or digit
+     */
+    private static int skipEscape(String regex, int start) {
+        char c = regex.charAt(start + 1);
+        int i = start + 2;
+
+        switch(c) {
+            // \xhh or \x{h...h}
+            case 'x':
+                if(i < regex.length() && regex.charAt(i) == '{') {
+                    return skipTo(regex, i, '}');
+                }
+                return Math.min(i + 2, regex.length());
+
+            // Backslash u and four hex digits
+            case 'u':
+                return Math.min(i + 4, regex.length());
+
+            // \0n, \0nn or \0mnn where m is 0-3
+            case '0': {
+                int digits = 0;
+                while(digits < 3 && i + digits < regex.length() && regex.charAt(i + digits) >= '0' && regex.charAt(i + digits) <= '7') {
+                    digits++;
+                }
+                if(digits == 3 && regex.charAt(i) > '3') {
+                    digits = 2;
+                }
+                return i + digits;
+            }
+
+            // \cx
+            case 'c':
+                return Math.min(i + 1, regex.length());
+
+            // \p{name}, \P{name} and \N{name}
+            case 'p':
+            case 'P':
+            case 'N':
+                if(i < regex.length() && regex.charAt(i) == '{') {
+                    return skipTo(regex, i, '}');
+                }
+                return Math.min(i + 1, regex.length());
+
+            // \k<name>
+            case 'k':
+                return skipTo(regex, i, '>');
+
+            // \Q...\E quotes everything in between
+            case 'Q': {
+                int end = regex.indexOf("\\E", i);
+                return end == -1 ? regex.length() : end + 2;
+            }
+
+            default:
+                // Back reference \n, which can have more digits
+                if(Character.isDigit(c)) {
+                    while(i < regex.length() && Character.isDigit(regex.charAt(i))) {
+                        i++;
+                    }
+                }
+                return i;
+        }
+    }
+
+    /**
+     * @return index after the first c at or after start, or the end of regex
+     */
+    private static int skipTo(String regex, int start, char c) {
+        int end = regex.indexOf(c, start);
+        return end == -1 ? regex.length() : end + 1;
+    }
+
+    private static void endRun(StringBuilder run, List<String> literals) {
+        if(run.length() > 0) {
+            literals.add(run.toString());
+            run.setLength(0);
+        }
+    }
+
+    /**
+     * @return index after the group or character class that starts at start
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        boolean inClass = false;
+
+        for(int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            if(c == '\\') {
+                i++;
+            }
+            else if(inClass) {
+                if(c == ']') {
+                    inClass = false;
+                    if(depth == 0) {
+                        return i + 1;
+                    }
+                }
+            }
+            else if(c == '[') {
+                inClass = true;
+            }
+            else if(c == '(') {
+                depth++;
+            }
+            else if(c == ')') {
+                depth--;
+                if(depth == 0) {
+                    return i + 1;
+                }
+            }
+        }
+
+        return regex.length();
+    }
+
+    private static boolean hasTopLevelAlternative(String regex) {
+        for(int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            if(c == '\\') {
+                i++;
+            }
+            else if(c == '(' || c == '[') {
+                i = skipGroup(regex, i) - 1;
+            }
+            else if(c == '|') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -62,12 +62,12 @@ public class ProfileProxy implements Comparable<ProfileProxy> {
     }
     
     public String getType() {
-        return ModelUtil.getKebabCase(profile.getConceptType());
+        return TypeRegistry.INSTANCE.getTypeName(profile.getConceptType());
     }
     
     public ProfileProxy setType(String conceptType) {
         // Convert kebab to camel case
-        conceptType = ModelUtil.getCamelCase(conceptType);
+        conceptType = TypeRegistry.INSTANCE.getClassName(conceptType);
         
         // Same
         if(profile.getConceptType().equals(conceptType)) {
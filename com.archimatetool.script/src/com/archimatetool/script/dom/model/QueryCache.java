@@ -0,0 +1,256 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.model.IArchimateModel;
+
+/**
+ * Results of queries and of $.memo() kept across script runs for as long as the model they were computed from does not change
+ *
+ * Each result is stored with the model's version from ModelChangeTracker and is only returned while the version is the same,
+ * so any change to the model makes its results stale. Models are held weakly so that closed models can be garbage collected.
+ *
+ * The least recently used results are evicted when there are more than MAX_ENTRIES results
+ * or their total weight is more than MAX_WEIGHT. The weight of a result is roughly the number of objects it holds.
+ *
+ * @author Phillip Beauvoir
+ */
+public class QueryCache {
+
+    public static final QueryCache INSTANCE = new QueryCache();
+
+    static final int MAX_ENTRIES = 500;
+    static final long MAX_WEIGHT = 1_000_000;
+
+    // Prefix of keys used for selector results so that they can't clash with $.memo() keys
+    private static final String FIND_PREFIX = "\u0000find:"; //$NON-NLS-1$
+
+    /**
+     * A cached value
+     */
+    public static class Entry {
+        private final long version;
+        private final Object value;
+        private final boolean json;
+        private final long weight;
+
+        private Entry(long version, Object value, boolean json) {
+            this.version = version;
+            this.value = value;
+            this.json = json;
+            weight = getWeight(value, json);
+        }
+
+        /**
+         * @return The value. If the value is a list a new copy is returned each time so that changes to it don't change the cache.
+         */
+        public Object getValue() {
+            if(value instanceof EObjectProxyCollection) {
+                return copy((EObjectProxyCollection)value);
+            }
+
+            if(value instanceof List<?>) {
+                return new ArrayList<>((List<?>)value);
+            }
+
+            return value;
+        }
+
+        /**
+         * @return true if the value is a script object stored as a JSON string
+         */
+        public boolean isJSON() {
+            return json;
+        }
+    }
+
+    private static class Key {
+        private final WeakReference<IArchimateModel> model;
+        private final int modelHash;
+        private final String key;
+
+        private Key(IArchimateModel model, String key) {
+            this.model = new WeakReference<>(model);
+            modelHash = System.identityHashCode(model);
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key)obj;
+            IArchimateModel m = model.get();
+            return m != null && m == other.model.get() && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * modelHash + key.hashCode();
+        }
+    }
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    private QueryCache() {
+        // Cached results hold on to their model, so drop them when the model is closed.
+        // Models loaded by scripts without the workbench are closed through the model manager too.
+        IEditorModelManager.INSTANCE.addPropertyChangeListener(event -> {
+            if(IEditorModelManager.PROPERTY_MODEL_REMOVED.equals(event.getPropertyName()) && event.getNewValue() instanceof IArchimateModel) {
+                removeModel((IArchimateModel)event.getNewValue());
+            }
+        });
+    }
+
+    /**
+     * @return The cached entry for key and model, or null if there is none or the model has changed since it was stored
+     */
+    public synchronized Entry get(ArchimateModelProxy model, String key) {
+        IArchimateModel eModel = model.getEObject();
+        Key k = new Key(eModel, key);
+
+        Entry entry = entries.get(k);
+        if(entry == null) {
+            return null;
+        }
+
+        if(entry.version != ModelChangeTracker.get(eModel).getVersion()) {
+            remove(k);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Store a value for key and model
+     * @return value
+     */
+    public Object put(ArchimateModelProxy model, String key, Object value) {
+        put(model.getEObject(), key, value, false);
+        return value;
+    }
+
+    /**
+     * Store a script object as a JSON string for key and model
+     */
+    public void putJSON(ArchimateModelProxy model, String key, String json) {
+        put(model.getEObject(), key, json, true);
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the result of model.find(selector) from the cache, or from query if it is not cached.
+     * The result is always a new collection that the caller can change.
+     */
+    EObjectProxyCollection find(ArchimateModelProxy model, String selector, Supplier<EObjectProxyCollection> query) {
+        String key = FIND_PREFIX + selector;
+
+        Entry entry = get(model, key);
+        if(entry != null) {
+            return copy((EObjectProxyCollection)entry.value);
+        }
+
+        EObjectProxyCollection result = query.get();
+
+        // Store a copy as the caller may change the result
+        put(model.getEObject(), key, copy(result), false);
+
+        return result;
+    }
+
+    private static EObjectProxyCollection copy(EObjectProxyCollection collection) {
+        EObjectProxyCollection copy = new EObjectProxyCollection();
+        copy.addAll(collection);
+        return copy;
+    }
+
+    private synchronized void put(IArchimateModel model, String key, Object value, boolean json) {
+        Key k = new Key(model, key);
+        Entry entry = new Entry(ModelChangeTracker.get(model).getVersion(), value, json);
+
+        remove(k);
+
+        // Too big to cache
+        if(entry.weight > MAX_WEIGHT) {
+            return;
+        }
+
+        entries.put(k, entry);
+        totalWeight += entry.weight;
+
+        // Remove entries of models that have been garbage collected and then the least recently used
+        removeModel(null);
+
+        for(Iterator<Map.Entry<Key, Entry>> iter = entries.entrySet().iterator(); iter.hasNext()
+                && (entries.size() > MAX_ENTRIES || totalWeight > MAX_WEIGHT);) {
+            totalWeight -= iter.next().getValue().weight;
+            iter.remove();
+        }
+    }
+
+    private synchronized void removeModel(IArchimateModel model) {
+        for(Iterator<Map.Entry<Key, Entry>> iter = entries.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<Key, Entry> e = iter.next();
+            IArchimateModel m = e.getKey().model.get();
+            if(m == null || m == model) {
+                totalWeight -= e.getValue().weight;
+                iter.remove();
+            }
+        }
+    }
+
+    private void remove(Key k) {
+        Entry old = entries.remove(k);
+        if(old != null) {
+            totalWeight -= old.weight;
+        }
+    }
+
+    private static long getWeight(Object value, boolean json) {
+        if(json || value instanceof String) {
+            // About one object per 64 characters
+            return ((String)value).length() / 64 + 1;
+        }
+
+        if(value instanceof Collection<?>) {
+            return ((Collection<?>)value).size() + 1;
+        }
+
+        if(value instanceof Map<?, ?>) {
+            return ((Map<?, ?>)value).size() + 1;
+        }
+
+        return 1;
+    }
+}
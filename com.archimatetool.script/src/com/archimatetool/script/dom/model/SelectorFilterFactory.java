@@ -5,10 +5,17 @@
  */
 package com.archimatetool.script.dom.model;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.eclipse.emf.ecore.EObject;
 
 import com.archimatetool.model.IArchimateConcept;
 import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateModelObject;
 import com.archimatetool.model.IArchimateRelationship;
 import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelArchimateComponent;
@@ -31,6 +38,9 @@ class SelectorFilterFactory {
         }
     }
     
+    // Prefix of the name part of a selector that matches names with a glob or regular expression, as in ".name*=Cust*"
+    private static final String NAME_MATCH = "name*="; //$NON-NLS-1$
+    
     private SelectorFilterFactory() {}
     
     static SelectorFilterFactory INSTANCE = new SelectorFilterFactory();
@@ -94,6 +104,26 @@ class SelectorFilterFactory {
             };
         }
 
+        // Full text search in names, documentation and property values
+        else if(selector.startsWith("~") && selector.length() > 1) { //$NON-NLS-1$
+            String query = selector.substring(1);
+            
+            return new ISelectorFilter() {
+                // Matches for each model, looked up the first time an object of that model is tested
+                Map<IArchimateModel, Set<EObject>> matches = new HashMap<>();
+                
+                @Override
+                public boolean accept(EObject object) {
+                    if(!(object instanceof IArchimateModelObject) || ((IArchimateModelObject)object).getArchimateModel() == null) {
+                        return false;
+                    }
+                    
+                    IArchimateModel model = ((IArchimateModelObject)object).getArchimateModel();
+                    return matches.computeIfAbsent(model, m -> new HashSet<>(ModelTextIndex.get(m).search(query))).contains(object);
+                }
+            };
+        }
+        
         // Find single unique object by its ID
         else if(selector.startsWith("#") && selector.length() > 1) { //$NON-NLS-1$
             String id = selector.substring(1);
@@ -111,10 +141,20 @@ class SelectorFilterFactory {
             };
         }
         
+        // Find all objects with name matching a regular expression
+        else if(NamePattern.isRegex(selector)) {
+            return createNamePatternFilter(NamePattern.compile(selector), null);
+        }
+        
         // Find all objects with given name
         else if(selector.startsWith(".") & selector.length() > 1) { //$NON-NLS-1$
             String name = selector.substring(1);
             
+            // Name matching a glob or regular expression
+            if(isNameMatch(name)) {
+                return createNamePatternFilter(NamePattern.compile(name.substring(NAME_MATCH.length())), null);
+            }
+            
             return new ISelectorFilter() {
                 @Override
                 public boolean accept(EObject object) {
@@ -131,9 +171,14 @@ class SelectorFilterFactory {
                 return null;
             }
             
-            String type = ModelUtil.getCamelCase(s[0]);
+            String type = TypeRegistry.INSTANCE.getClassName(s[0]);
             String name = s[1];
             
+            // Name matching a glob or regular expression
+            if(isNameMatch(name)) {
+                return createNamePatternFilter(NamePattern.compile(name.substring(NAME_MATCH.length())), type);
+            }
+            
             return new ISelectorFilter() {
                 @Override
                 public boolean accept(EObject object) {
@@ -147,7 +192,7 @@ class SelectorFilterFactory {
 
         // Class type of concept
         else {
-            String type = ModelUtil.getCamelCase(selector);
+            String type = TypeRegistry.INSTANCE.getClassName(selector);
             return new ISelectorFilter() {
                 @Override
                 public boolean accept(EObject object) {
@@ -158,6 +203,45 @@ class SelectorFilterFactory {
         }
     }
     
+    /**
+     * @return true if the name part of a selector is a name match such as "name*=Cust*" rather than a name
+     */
+    private boolean isNameMatch(String name) {
+        return name.startsWith(NAME_MATCH) && name.length() > NAME_MATCH.length();
+    }
+    
+    /**
+     * @param pattern The name pattern
+     * @param type If not null the class name that the object, or the concept it references, must have
+     */
+    private ISelectorFilter createNamePatternFilter(NamePattern pattern, String type) {
+        return new ISelectorFilter() {
+            // Matches for each model, looked up in the model's name index the first time an object of that model is tested
+            Map<IArchimateModel, Set<EObject>> matches = new HashMap<>();
+            
+            @Override
+            public boolean accept(EObject object) {
+                if(type != null) {
+                    object = getReferencedConcept(object);
+                    if(!object.eClass().getName().equals(type)) {
+                        return false;
+                    }
+                }
+                
+                if(!(object instanceof INameable)) {
+                    return false;
+                }
+                
+                if(ModelNameIndex.isIndexed(object) && ((IArchimateModelObject)object).getArchimateModel() != null) {
+                    IArchimateModel model = ((IArchimateModelObject)object).getArchimateModel();
+                    return matches.computeIfAbsent(model, m -> ModelNameIndex.get(m).getMatches(pattern)).contains(object);
+                }
+                
+                return pattern.matches(((INameable)object).getName());
+            }
+        };
+    }
+    
     private EObject getReferencedConcept(EObject object) {
         if(object instanceof IDiagramModelArchimateComponent) {
             return ((IDiagramModelArchimateComponent)object).getArchimateConcept();
@@ -0,0 +1,116 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.List;
+
+/**
+ * An object in a ModelSnapshot
+ *
+ * @author Phillip Beauvoir
+ */
+public class SnapshotObject {
+
+    private final ModelSnapshot snapshot;
+    private final int index;
+
+    SnapshotObject(ModelSnapshot snapshot, int index) {
+        this.snapshot = snapshot;
+        this.index = index;
+    }
+
+    public String getId() {
+        return snapshot.getId(index);
+    }
+
+    public String getType() {
+        return snapshot.getType(index);
+    }
+
+    public String getName() {
+        return snapshot.getName(index);
+    }
+
+    /**
+     * @param attribute "id", "name" or "type"
+     * @return the attribute value, or null if attribute is not one of these
+     */
+    public Object attr(String attribute) {
+        switch(attribute) {
+            case IModelConstants.ID:
+                return getId();
+            case IModelConstants.NAME:
+                return getName();
+            case IModelConstants.TYPE:
+                return getType();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the list of property keys
+     */
+    public List<String> prop() {
+        return snapshot.getPropertyKeys(index);
+    }
+
+    /**
+     * @return the first value of property key, or null
+     */
+    public String prop(String key) {
+        return snapshot.getProperty(index, key);
+    }
+
+    /**
+     * @return The source of this relationship, or null if this is not a relationship
+     */
+    public SnapshotObject getSource() {
+        int source = snapshot.getSource(index);
+        return source == -1 ? null : new SnapshotObject(snapshot, source);
+    }
+
+    /**
+     * @return The target of this relationship, or null if this is not a relationship
+     */
+    public SnapshotObject getTarget() {
+        int target = snapshot.getTarget(index);
+        return target == -1 ? null : new SnapshotObject(snapshot, target);
+    }
+
+    /**
+     * @return relationships where this is the source
+     */
+    public SnapshotQuery outRels() {
+        return new SnapshotQuery(snapshot, snapshot.outgoing(index).toArray());
+    }
+
+    /**
+     * @return relationships where this is the target
+     */
+    public SnapshotQuery inRels() {
+        return new SnapshotQuery(snapshot, snapshot.incoming(index).toArray());
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SnapshotObject && ((SnapshotObject)obj).snapshot == snapshot && ((SnapshotObject)obj).index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return getType() + ": " + getName(); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,442 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable set of objects in a ModelSnapshot
+ *
+ * The read-only parts of the EObjectProxyCollection API are mirrored here, including selectors, so that reporting
+ * scripts can be run against a snapshot in much the same way as against a model.
+ * Built-in filters, traversals and aggregations run in parallel on the common ForkJoinPool for large sets.
+ * filter() with a script function runs on the calling thread because script engines can't be called from more than one thread.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class SnapshotQuery {
+
+    // Sets smaller than this are not worth splitting across threads
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    private final ModelSnapshot snapshot;
+
+    // Indexes of objects in the snapshot, ascending and distinct
+    private final int[] indexes;
+
+    SnapshotQuery(ModelSnapshot snapshot, int[] indexes) {
+        this.snapshot = snapshot;
+        this.indexes = indexes;
+    }
+
+    public int size() {
+        return indexes.length;
+    }
+
+    public boolean isEmpty() {
+        return indexes.length == 0;
+    }
+
+    public SnapshotObject first() {
+        return isEmpty() ? null : get(0);
+    }
+
+    public SnapshotObject get(int i) {
+        return new SnapshotObject(snapshot, indexes[i]);
+    }
+
+    /**
+     * @return The objects as a list
+     */
+    public List<SnapshotObject> toArray() {
+        return mapToList(i -> new SnapshotObject(snapshot, i));
+    }
+
+    public List<String> ids() {
+        return mapToList(snapshot::getId);
+    }
+
+    public List<String> names() {
+        return mapToList(snapshot::getName);
+    }
+
+    /**
+     * @return the list of property keys of the first object, or null if this set is empty
+     */
+    public List<String> prop() {
+        return isEmpty() ? null : first().prop();
+    }
+
+    /**
+     * @return the first value of property key of the first object, or null
+     */
+    public String prop(String key) {
+        return isEmpty() ? null : first().prop(key);
+    }
+
+    /**
+     * @param attribute "id", "name" or "type"
+     * @return the attribute of the first object, or null
+     */
+    public Object attr(String attribute) {
+        return isEmpty() ? null : first().attr(attribute);
+    }
+
+    /**
+     * Call action for each object in this set on the calling thread
+     */
+    public SnapshotQuery each(Consumer<SnapshotObject> action) {
+        for(int i : indexes) {
+            action.accept(new SnapshotObject(snapshot, i));
+        }
+        return this;
+    }
+
+    /**
+     * @return true if at least one object in this set matches the selector
+     */
+    public boolean is(String selector) {
+        return !filter(selector).isEmpty();
+    }
+
+    /**
+     * @param selector A selector such as "*", "element", "business-actor", "#id", ".name" or "business-actor.name"
+     * @return objects in this set that match the selector, or an empty set if the selector is null or empty
+     */
+    public SnapshotQuery filter(String selector) {
+        if(selector == null || selector.isEmpty()) {
+            return new SnapshotQuery(snapshot, new int[0]);
+        }
+
+        // Single object by id
+        if(selector.startsWith("#") && selector.length() > 1) {
+            int index = snapshot.indexOf(selector.substring(1));
+            return new SnapshotQuery(snapshot, index != -1 && Arrays.binarySearch(indexes, index) >= 0 ? new int[] { index } : new int[0]);
+        }
+
+        return select(getSelectorFilter(selector));
+    }
+
+    /**
+     * @return objects in this set that don't match the selector, or an empty set if the selector is null or empty
+     */
+    public SnapshotQuery not(String selector) {
+        if(selector == null || selector.isEmpty()) {
+            return new SnapshotQuery(snapshot, new int[0]);
+        }
+
+        return not(filter(selector));
+    }
+
+    /**
+     * @return objects in this set that are not in query
+     */
+    public SnapshotQuery not(SnapshotQuery query) {
+        return select(i -> Arrays.binarySearch(query.indexes, i) < 0);
+    }
+
+    /**
+     * @return objects in this set and objects in the snapshot that match the selector
+     */
+    public SnapshotQuery add(String selector) {
+        return add(snapshot.find(selector));
+    }
+
+    /**
+     * @return objects in this set and in query
+     */
+    public SnapshotQuery add(SnapshotQuery query) {
+        if(query == null || query.snapshot != snapshot) {
+            return this;
+        }
+
+        return new SnapshotQuery(snapshot, IntStream.concat(IntStream.of(indexes), IntStream.of(query.indexes)).distinct().sorted().toArray());
+    }
+
+    /**
+     * @param types Object types such as "business-actor", or "element", "relationship", "concept" or "view"
+     * @return objects of any of the given types
+     */
+    public SnapshotQuery type(String... types) {
+        Set<String> typeSet = new HashSet<>();
+        boolean elements = false, relationships = false, views = false;
+
+        for(String type : types) {
+            switch(type) {
+                case "element":
+                    elements = true;
+                    break;
+                case "relationship":
+                case "relation":
+                    relationships = true;
+                    break;
+                case "concept":
+                    elements = relationships = true;
+                    break;
+                case "view":
+                    views = true;
+                    break;
+                default:
+                    typeSet.add(type);
+            }
+        }
+
+        boolean e = elements, r = relationships, v = views;
+
+        return select(i -> {
+            byte kind = snapshot.getKind(i);
+            return (e && kind == ModelSnapshot.ELEMENT) || (r && kind == ModelSnapshot.RELATIONSHIP) || (v && kind == ModelSnapshot.VIEW)
+                    || typeSet.contains(snapshot.getType(i));
+        });
+    }
+
+    /**
+     * @return objects with the given name
+     */
+    public SnapshotQuery name(String name) {
+        return select(i -> name.equals(snapshot.getName(i)));
+    }
+
+    /**
+     * @return objects whose name matches a regular expression
+     */
+    public SnapshotQuery nameMatches(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return select(i -> snapshot.getName(i) != null && pattern.matcher(snapshot.getName(i)).find());
+    }
+
+    /**
+     * @return objects that have a property with the given key
+     */
+    public SnapshotQuery hasProp(String key) {
+        return select(i -> snapshot.getProperty(i, key) != null);
+    }
+
+    /**
+     * @return objects whose property key has the given value
+     */
+    public SnapshotQuery hasProp(String key, String value) {
+        return select(i -> value.equals(snapshot.getProperty(i, key)));
+    }
+
+    /**
+     * Filter with a predicate such as a script function. This runs on the calling thread.
+     */
+    public SnapshotQuery filter(Predicate<SnapshotObject> predicate) {
+        return new SnapshotQuery(snapshot, IntStream.of(indexes)
+                .filter(i -> predicate.test(new SnapshotObject(snapshot, i)))
+                .toArray());
+    }
+
+    /**
+     * @return relationships where objects in this set are the source
+     */
+    public SnapshotQuery outRels() {
+        return traverse(snapshot::outgoing);
+    }
+
+    /**
+     * @return relationships where objects in this set are the target
+     */
+    public SnapshotQuery inRels() {
+        return traverse(snapshot::incoming);
+    }
+
+    /**
+     * @return relationships where objects in this set are the source or target
+     */
+    public SnapshotQuery rels() {
+        return traverse(i -> IntStream.concat(snapshot.outgoing(i), snapshot.incoming(i)));
+    }
+
+    /**
+     * @return relationships in this set's rels() that match the selector
+     */
+    public SnapshotQuery rels(String selector) {
+        return rels().filter(selector);
+    }
+
+    /**
+     * @return relationships in this set's inRels() that match the selector
+     */
+    public SnapshotQuery inRels(String selector) {
+        return inRels().filter(selector);
+    }
+
+    /**
+     * @return relationships in this set's outRels() that match the selector
+     */
+    public SnapshotQuery outRels(String selector) {
+        return outRels().filter(selector);
+    }
+
+    /**
+     * @return sources and targets of relationships in this set
+     */
+    public SnapshotQuery ends() {
+        return traverse(i -> snapshot.getSource(i) == -1 ? IntStream.empty() : IntStream.of(snapshot.getSource(i), snapshot.getTarget(i)));
+    }
+
+    /**
+     * @return sources of relationships in this set
+     */
+    public SnapshotQuery sourceEnds() {
+        return traverse(i -> snapshot.getSource(i) == -1 ? IntStream.empty() : IntStream.of(snapshot.getSource(i)));
+    }
+
+    /**
+     * @return targets of relationships in this set
+     */
+    public SnapshotQuery targetEnds() {
+        return traverse(i -> snapshot.getTarget(i) == -1 ? IntStream.empty() : IntStream.of(snapshot.getTarget(i)));
+    }
+
+    public SnapshotQuery ends(String selector) {
+        return ends().filter(selector);
+    }
+
+    public SnapshotQuery sourceEnds(String selector) {
+        return sourceEnds().filter(selector);
+    }
+
+    public SnapshotQuery targetEnds(String selector) {
+        return targetEnds().filter(selector);
+    }
+
+    /**
+     * Follow outgoing relationships from objects in this set, level by level, until no new objects are found
+     * @param relationshipTypes Only follow relationships of these types. If none are given follow all relationships.
+     * @return all objects reachable from this set, not including this set unless reachable from it
+     */
+    public SnapshotQuery reachable(String... relationshipTypes) {
+        Set<String> types = new HashSet<>(Arrays.asList(relationshipTypes));
+        IntPredicate follow = rel -> types.isEmpty() || types.contains(snapshot.getType(rel));
+
+        BitSet visited = new BitSet(snapshot.size());
+        int[] frontier = indexes;
+
+        while(frontier.length > 0) {
+            int[] next = stream(frontier)
+                    .flatMap(snapshot::outgoing)
+                    .filter(follow)
+                    .map(snapshot::getTarget)
+                    .distinct()
+                    .toArray();
+
+            // Only keep objects we have not seen before
+            frontier = IntStream.of(next).filter(i -> !visited.get(i)).toArray();
+            for(int i : frontier) {
+                visited.set(i);
+            }
+        }
+
+        return new SnapshotQuery(snapshot, visited.stream().toArray());
+    }
+
+    /**
+     * @return number of objects in this set
+     */
+    public int count() {
+        return size();
+    }
+
+    /**
+     * @return number of objects of each type
+     */
+    public Map<String, Object> countByType() {
+        return countBy(snapshot::getType);
+    }
+
+    /**
+     * @return number of objects for each value of property key. Objects without the property are not counted.
+     */
+    public Map<String, Object> countByProp(String key) {
+        return countBy(i -> snapshot.getProperty(i, key));
+    }
+
+    private Map<String, Object> countBy(IntFunction<String> classifier) {
+        Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+        stream(indexes).forEach(i -> {
+            String key = classifier.apply(i);
+            if(key != null) {
+                counts.computeIfAbsent(key, k -> new LongAdder()).increment();
+            }
+        });
+
+        Map<String, Object> map = ProxyUtil.createMap();
+        counts.forEach((k, v) -> map.put(k, v.longValue()));
+        return map;
+    }
+
+    /**
+     * @return a test for objects that match the selector, the same as SelectorFilterFactory but for snapshot objects. Not "#id".
+     */
+    private IntPredicate getSelectorFilter(String selector) {
+        switch(selector) {
+            case "*":
+                return i -> true;
+            case IModelConstants.CONCEPT:
+                return i -> snapshot.getKind(i) != ModelSnapshot.VIEW;
+            case IModelConstants.ELEMENT:
+                return i -> snapshot.getKind(i) == ModelSnapshot.ELEMENT;
+            case IModelConstants.RELATION:
+            case IModelConstants.RELATIONSHIP:
+                return i -> snapshot.getKind(i) == ModelSnapshot.RELATIONSHIP;
+            case IModelConstants.VIEW:
+                return i -> snapshot.getKind(i) == ModelSnapshot.VIEW;
+            default:
+                break;
+        }
+
+        // Objects with given name
+        if(selector.startsWith(".") && selector.length() > 1) {
+            String name = selector.substring(1);
+            return i -> name.equals(snapshot.getName(i));
+        }
+
+        // Objects with given type and name
+        if(selector.contains(".") && selector.length() > 2) {
+            String[] s = selector.split("\\.", 2);
+            return i -> s[0].equals(snapshot.getType(i)) && s[1].equals(snapshot.getName(i));
+        }
+
+        // Objects of given type
+        return i -> selector.equals(snapshot.getType(i));
+    }
+
+    private SnapshotQuery select(IntPredicate predicate) {
+        return new SnapshotQuery(snapshot, stream(indexes).filter(predicate).toArray());
+    }
+
+    private SnapshotQuery traverse(IntFunction<IntStream> mapper) {
+        return new SnapshotQuery(snapshot, stream(indexes).flatMap(mapper).distinct().sorted().toArray());
+    }
+
+    private <T> List<T> mapToList(IntFunction<T> mapper) {
+        return IntStream.of(indexes).mapToObj(mapper).collect(Collectors.toList());
+    }
+
+    private static IntStream stream(int[] indexes) {
+        IntStream stream = IntStream.of(indexes);
+        return indexes.length >= PARALLEL_THRESHOLD ? stream.parallel() : stream;
+    }
+}
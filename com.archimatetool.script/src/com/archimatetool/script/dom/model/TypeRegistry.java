@@ -0,0 +1,222 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.util.ArchimateModelUtils;
+
+/**
+ * Type names and relationship rules of the ArchiMate concepts, worked out once
+ *
+ * Maps between script type names (kebab case) and class names (camel case) without running the string conversions each time,
+ * and holds a matrix of the valid relationship types between each source and target concept type
+ * so that checking a relationship is an array lookup.
+ *
+ * @author Phillip Beauvoir
+ */
+class TypeRegistry {
+
+    static final TypeRegistry INSTANCE = new TypeRegistry();
+
+    // Names from scripts can be anything, so stop caching new ones after this many
+    private static final int MAX_CACHED_NAMES = 1000;
+
+    private final Map<String, String> classNames = new ConcurrentHashMap<>();
+    private final Map<String, String> typeNames = new ConcurrentHashMap<>();
+
+    private final List<EClass> elementClasses = new ArrayList<>();
+    private final List<EClass> relationshipClasses = new ArrayList<>();
+
+    // Index of each concrete concept class and relationship class in the matrix
+    private final Map<EClass, Integer> conceptIndex = new HashMap<>();
+    private final Map<EClass, Integer> relationshipIndex = new HashMap<>();
+
+    // Bit r of validity[source * conceptCount + target] is set if relationshipClasses[r] is valid from source to target
+    private final int[] validity;
+
+    private TypeRegistry() {
+        List<EClass> conceptClasses = new ArrayList<>();
+
+        for(EClassifier eClassifier : IArchimatePackage.eINSTANCE.getEClassifiers()) {
+            if(eClassifier instanceof EClass) {
+                EClass eClass = (EClass)eClassifier;
+
+                String typeName = ModelUtil.getKebabCase(eClass.getName());
+                classNames.put(typeName, eClass.getName());
+                classNames.put(eClass.getName(), eClass.getName());
+                typeNames.put(eClass.getName(), typeName);
+
+                if(!eClass.isAbstract() && !eClass.isInterface() && IArchimatePackage.eINSTANCE.getArchimateConcept().isSuperTypeOf(eClass)) {
+                    conceptIndex.put(eClass, conceptClasses.size());
+                    conceptClasses.add(eClass);
+
+                    if(IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass)) {
+                        elementClasses.add(eClass);
+                    }
+                    else if(IArchimatePackage.eINSTANCE.getArchimateRelationship().isSuperTypeOf(eClass)) {
+                        relationshipIndex.put(eClass, relationshipClasses.size());
+                        relationshipClasses.add(eClass);
+                    }
+                }
+            }
+        }
+
+        int count = conceptClasses.size();
+        validity = new int[count * count];
+
+        for(int source = 0; source < count; source++) {
+            for(int target = 0; target < count; target++) {
+                int bits = 0;
+                for(int r = 0; r < relationshipClasses.size(); r++) {
+                    if(ArchimateModelUtils.isValidRelationship(conceptClasses.get(source), conceptClasses.get(target), relationshipClasses.get(r))) {
+                        bits |= 1 << r;
+                    }
+                }
+                validity[source * count + target] = bits;
+            }
+        }
+    }
+
+    /**
+     * @param type A type name such as "business-actor" or a class name such as "BusinessActor"
+     * @return The class name, such as "BusinessActor"
+     */
+    String getClassName(String type) {
+        if(type == null) {
+            return null;
+        }
+
+        String className = classNames.get(type);
+        if(className == null) {
+            className = ModelUtil.getCamelCase(type);
+            if(classNames.size() < MAX_CACHED_NAMES) {
+                classNames.put(type, className);
+            }
+        }
+
+        return className;
+    }
+
+    /**
+     * @param className A class name such as "BusinessActor"
+     * @return The type name used in scripts, such as "business-actor"
+     */
+    String getTypeName(String className) {
+        if(className == null) {
+            return null;
+        }
+
+        String typeName = typeNames.get(className);
+        if(typeName == null) {
+            typeName = ModelUtil.getKebabCase(className);
+            if(typeNames.size() < MAX_CACHED_NAMES) {
+                typeNames.put(className, typeName);
+            }
+        }
+
+        return typeName;
+    }
+
+    /**
+     * @return The type name used in scripts for eClass, such as "business-actor"
+     */
+    String getTypeName(EClass eClass) {
+        return getTypeName(eClass.getName());
+    }
+
+    /**
+     * @param type A type name or class name
+     * @return The ArchiMate model EClass, or null
+     */
+    EClass getEClass(String type) {
+        EClassifier eClassifier = IArchimatePackage.eINSTANCE.getEClassifier(getClassName(type));
+        return eClassifier instanceof EClass ? (EClass)eClassifier : null;
+    }
+
+    /**
+     * @return true if type is the name of an ArchiMate element type
+     */
+    boolean isElementType(String type) {
+        EClass eClass = getEClass(type);
+        return eClass != null && conceptIndex.containsKey(eClass) && IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass);
+    }
+
+    /**
+     * @return true if type is the name of an ArchiMate relationship type
+     */
+    boolean isRelationshipType(String type) {
+        return relationshipIndex.containsKey(getEClass(type));
+    }
+
+    /**
+     * @return The concrete ArchiMate element classes
+     */
+    List<EClass> getElementClasses() {
+        return Collections.unmodifiableList(elementClasses);
+    }
+
+    /**
+     * @return The concrete ArchiMate relationship classes
+     */
+    List<EClass> getRelationshipClasses() {
+        return Collections.unmodifiableList(relationshipClasses);
+    }
+
+    /**
+     * @return true if a relationship of type relationshipClass is valid from a sourceClass concept to a targetClass concept
+     */
+    boolean isValidRelationship(EClass sourceClass, EClass targetClass, EClass relationshipClass) {
+        Integer source = conceptIndex.get(sourceClass);
+        Integer target = conceptIndex.get(targetClass);
+        Integer r = relationshipIndex.get(relationshipClass);
+
+        if(source == null || target == null || r == null) {
+            return false;
+        }
+
+        return (validity[source * conceptIndex.size() + target] & (1 << r)) != 0;
+    }
+
+    /**
+     * @return true if a relationship of type relationshipClass is valid from source to target
+     */
+    boolean isValidRelationship(IArchimateConcept source, IArchimateConcept target, EClass relationshipClass) {
+        return source != null && target != null && isValidRelationship(source.eClass(), target.eClass(), relationshipClass);
+    }
+
+    /**
+     * @return The relationship classes that are valid from a sourceClass concept to a targetClass concept
+     */
+    List<EClass> getValidRelationships(EClass sourceClass, EClass targetClass) {
+        List<EClass> list = new ArrayList<>();
+
+        Integer source = conceptIndex.get(sourceClass);
+        Integer target = conceptIndex.get(targetClass);
+        if(source == null || target == null) {
+            return list;
+        }
+
+        int bits = validity[source * conceptIndex.size() + target];
+        for(int r = 0; r < relationshipClasses.size(); r++) {
+            if((bits & (1 << r)) != 0) {
+                list.add(relationshipClasses.get(r));
+            }
+        }
+
+        return list;
+    }
+}
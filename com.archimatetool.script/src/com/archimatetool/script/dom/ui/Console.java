@@ -5,6 +5,8 @@
  */
 package com.archimatetool.script.dom.ui;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.StringJoiner;
@@ -13,6 +15,8 @@ import org.eclipse.swt.graphics.Color;
 import org.eclipse.ui.PlatformUI;
 
 import com.archimatetool.editor.ui.services.ViewManager;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.views.console.ConsoleFileSink;
 import com.archimatetool.script.views.console.ConsoleOutput;
 import com.archimatetool.script.views.console.ConsoleView;
 
@@ -39,7 +43,6 @@ public class Console {
     public void show() {
         if(PlatformUI.isWorkbenchRunning()) {
             ViewManager.showViewPart(ConsoleView.ID, true);
-            ConsoleOutput.start(); // Ensure Console is re-directing output
         }
     }
     
@@ -49,13 +52,68 @@ public class Console {
     public void hide() {
         if(PlatformUI.isWorkbenchRunning()) {
             ViewManager.hideViewPart(ConsoleView.ID);
-            ConsoleOutput.end(); // Ensure Console is re-directing output
         }
     }
     
+    /**
+     * Also write console output to a file for the rest of the script run, replacing the file if it exists
+     * @param path The file path
+     */
+    public void toFile(String path) {
+        toFile(path, null);
+    }
+    
+    /**
+     * Also write console output to a file for the rest of the script run
+     * @param path The file path
+     * @param options Optional. "maxSize" - rotate the file at this size in bytes (default 100MB),
+     *                "maxFiles" - number of rotated files to keep (default 5),
+     *                "append" - append to an existing file (default false),
+     *                "console" - also show output in the Console (default true)
+     */
+    public void toFile(String path, Map<?, ?> options) {
+        long maxSize = ConsoleFileSink.DEFAULT_MAX_SIZE;
+        int maxFiles = ConsoleFileSink.DEFAULT_MAX_FILES;
+        boolean append = false;
+        boolean tee = true;
+        
+        if(options != null) {
+            if(options.get("maxSize") instanceof Number) {
+                maxSize = ((Number)options.get("maxSize")).longValue();
+            }
+            if(options.get("maxFiles") instanceof Number) {
+                maxFiles = ((Number)options.get("maxFiles")).intValue();
+            }
+            if(options.get("append") instanceof Boolean) {
+                append = (Boolean)options.get("append");
+            }
+            if(options.get("console") instanceof Boolean) {
+                tee = (Boolean)options.get("console");
+            }
+        }
+        
+        try {
+            ConsoleOutput.startFileSink(new ConsoleFileSink(new File(path), maxSize, maxFiles, append, tee));
+        }
+        catch(IOException ex) {
+            throw new ArchiScriptException("Could not open console file: " + path, ex);
+        }
+    }
+    
+    /**
+     * Stop writing console output to a file
+     */
+    public void closeFile() {
+        ConsoleOutput.closeFileSink();
+    }
+    
     public void setText(String text) {
         ConsoleView viewer = findConsoleViewer();
         if(viewer != null) {
+            if(writeToFileSink(text)) {
+                return;
+            }
+
             viewer.setTextColor(currentColor);
             viewer.setText(text);
         }
@@ -95,7 +153,12 @@ public class Console {
     private void toConsole(String output) {
         ConsoleView viewer = findConsoleViewer();
         
+        // If there is no Console, System.out writes to any file sink
         if(viewer != null) {
+            if(writeToFileSink(output)) {
+                return;
+            }
+            
             viewer.setTextColor(currentColor);
             viewer.append(output);
         }
@@ -104,6 +167,20 @@ public class Console {
         }
     }
     
+    /**
+     * Write output to the file sink if there is one
+     * @return true if output should not also go to the Console
+     */
+    private boolean writeToFileSink(String output) {
+        ConsoleFileSink sink = ConsoleOutput.getFileSink();
+        if(sink == null) {
+            return false;
+        }
+        
+        sink.write(output);
+        return !sink.isTee();
+    }
+    
     private String toString(Object obj) {
         // Null
         if(obj == null) {
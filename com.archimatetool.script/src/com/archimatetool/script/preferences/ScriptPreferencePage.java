@@ -24,6 +24,7 @@ import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.FontDialog;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
@@ -55,6 +56,9 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
     private Combo fDoubleClickBehaviourCombo;
     
     private Label fConsoleFontLabel;
+    private Spinner fConsoleBufferSizeSpinner;
+    private Text fConsoleLogFileTextField;
+    private Spinner fConsoleLogMaxSizeSpinner;
     private FontData fDefaultConsoleFontData = ConsoleView.DEFAULT_FONT.getFontData()[0];
     private FontData fConsoleFontData = fDefaultConsoleFontData;
     
@@ -175,6 +179,47 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
             }
         });
         
+        // Console buffer size
+        label = new Label(settingsGroup, SWT.NULL);
+        label.setText(Messages.ScriptPreferencePage_15);
+        fConsoleBufferSizeSpinner = new Spinner(settingsGroup, SWT.BORDER);
+        fConsoleBufferSizeSpinner.setMinimum(1000);
+        fConsoleBufferSizeSpinner.setMaximum(100000000);
+        fConsoleBufferSizeSpinner.setIncrement(10000);
+        fConsoleBufferSizeSpinner.setPageIncrement(100000);
+        gd = new GridData();
+        gd.horizontalSpan = 2;
+        fConsoleBufferSizeSpinner.setLayoutData(gd);
+        
+        // Console log file
+        label = new Label(settingsGroup, SWT.NULL);
+        label.setText(Messages.ScriptPreferencePage_16);
+        
+        fConsoleLogFileTextField = UIUtils.createSingleTextControl(settingsGroup, SWT.BORDER, false);
+        fConsoleLogFileTextField.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        
+        Button logFileButton = new Button(settingsGroup, SWT.PUSH);
+        logFileButton.setText(Messages.ScriptPreferencePage_2);
+        logFileButton.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                String path = chooseConsoleLogFile();
+                if(path != null) {
+                    fConsoleLogFileTextField.setText(path);
+                }
+            }
+        });
+        
+        // Console log file max size
+        label = new Label(settingsGroup, SWT.NULL);
+        label.setText(Messages.ScriptPreferencePage_17);
+        fConsoleLogMaxSizeSpinner = new Spinner(settingsGroup, SWT.BORDER);
+        fConsoleLogMaxSizeSpinner.setMinimum(1);
+        fConsoleLogMaxSizeSpinner.setMaximum(10000);
+        gd = new GridData();
+        gd.horizontalSpan = 2;
+        fConsoleLogMaxSizeSpinner.setLayoutData(gd);
+        
         setValues();
         
         return client;
@@ -200,6 +245,17 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         return dialog.open();
     }
 
+    private String chooseConsoleLogFile() {
+        FileDialog dialog = new FileDialog(Display.getCurrent().getActiveShell(), SWT.SAVE);
+        dialog.setText(Messages.ScriptPreferencePage_18);
+        dialog.setOverwrite(false);
+        File file = new File(fConsoleLogFileTextField.getText());
+        dialog.setFilterPath(file.getParent());
+        dialog.setFileName(file.getName());
+        
+        return dialog.open();
+    }
+
     private void setValues() {
         fScriptsFolderTextField.setText(getPreferenceStore().getString(PREFS_SCRIPTS_FOLDER));
         fEditorPathTextField.setText(getPreferenceStore().getString(PREFS_EDITOR));
@@ -214,6 +270,10 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
             fConsoleFontData = new FontData(fontName);
         }
         updateFontLabel();
+        
+        fConsoleBufferSizeSpinner.setSelection(getPreferenceStore().getInt(PREFS_CONSOLE_BUFFER_SIZE));
+        fConsoleLogFileTextField.setText(getPreferenceStore().getString(PREFS_CONSOLE_LOG_FILE));
+        fConsoleLogMaxSizeSpinner.setSelection(getPreferenceStore().getInt(PREFS_CONSOLE_LOG_MAX_SIZE));
     }
     
     @Override
@@ -227,6 +287,9 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         }
         
         getPreferenceStore().setValue(PREFS_CONSOLE_FONT, fDefaultConsoleFontData.equals(fConsoleFontData) ? "" : fConsoleFontData.toString()); //$NON-NLS-1$
+        getPreferenceStore().setValue(PREFS_CONSOLE_BUFFER_SIZE, fConsoleBufferSizeSpinner.getSelection());
+        getPreferenceStore().setValue(PREFS_CONSOLE_LOG_FILE, fConsoleLogFileTextField.getText().trim());
+        getPreferenceStore().setValue(PREFS_CONSOLE_LOG_MAX_SIZE, fConsoleLogMaxSizeSpinner.getSelection());
         
         return true;
     }
@@ -243,6 +306,10 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         
         fConsoleFontData = fDefaultConsoleFontData;
         updateFontLabel();
+        
+        fConsoleBufferSizeSpinner.setSelection(getPreferenceStore().getDefaultInt(PREFS_CONSOLE_BUFFER_SIZE));
+        fConsoleLogFileTextField.setText(getPreferenceStore().getDefaultString(PREFS_CONSOLE_LOG_FILE));
+        fConsoleLogMaxSizeSpinner.setSelection(getPreferenceStore().getDefaultInt(PREFS_CONSOLE_LOG_MAX_SIZE));
     }
     
     private void updateFontLabel() {
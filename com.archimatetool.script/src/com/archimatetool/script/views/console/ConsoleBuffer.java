@@ -0,0 +1,121 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+import org.eclipse.swt.graphics.Color;
+
+/**
+ * Bounded buffer of console text waiting to be shown in the Console
+ *
+ * Text is held as runs of the same colour so that adjacent appends in the same colour become one run (and one StyleRange).
+ * If more than the maximum number of characters is appended before the buffer is drained the oldest text is dropped.
+ *
+ * This class is thread safe.
+ */
+class ConsoleBuffer {
+
+    /**
+     * A run of text in one colour
+     */
+    static class Segment {
+        final Color color;
+        final StringBuilder text = new StringBuilder();
+
+        Segment(Color color) {
+            this.color = color;
+        }
+    }
+
+    private Deque<Segment> segments = new ArrayDeque<>();
+    private int length;
+    private int maxLength;
+    private boolean truncated;
+
+    ConsoleBuffer(int maxLength) {
+        setMaxLength(maxLength);
+    }
+
+    synchronized void setMaxLength(int maxLength) {
+        this.maxLength = Math.max(1, maxLength);
+        trim();
+    }
+
+    /**
+     * Append text in the given colour (null for the default colour)
+     */
+    synchronized void append(String text, Color color) {
+        if(text == null || text.isEmpty()) {
+            return;
+        }
+
+        Segment last = segments.peekLast();
+        if(last == null || !Objects.equals(last.color, color)) {
+            last = new Segment(color);
+            segments.addLast(last);
+        }
+
+        last.text.append(text);
+        length += text.length();
+
+        trim();
+    }
+
+    /**
+     * @return The number of characters waiting
+     */
+    synchronized int length() {
+        return length;
+    }
+
+    /**
+     * @return true if text was dropped since the last time the buffer was drained
+     */
+    synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Remove and return all waiting segments
+     */
+    synchronized List<Segment> drain() {
+        List<Segment> list = new ArrayList<>(segments);
+        segments.clear();
+        length = 0;
+        truncated = false;
+        return list;
+    }
+
+    synchronized void clear() {
+        drain();
+    }
+
+    /**
+     * Drop the oldest text until we are within the maximum length
+     */
+    private void trim() {
+        while(length > maxLength) {
+            Segment first = segments.peekFirst();
+            int excess = length - maxLength;
+
+            if(first.text.length() <= excess) {
+                segments.removeFirst();
+                length -= first.text.length();
+            }
+            else {
+                first.text.delete(0, excess);
+                length -= excess;
+            }
+
+            truncated = true;
+        }
+    }
+}
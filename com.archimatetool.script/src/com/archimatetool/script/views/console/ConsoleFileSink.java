@@ -0,0 +1,203 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.archimatetool.script.ArchiScriptPlugin;
+
+/**
+ * Streams console output to a file
+ *
+ * Text is queued and written as UTF-8 by a background thread through a buffered stream so that the script isn't held up by disk writes.
+ * The queue is bounded so a script that writes faster than the disk will wait rather than use up memory.
+ * When the file reaches maxSize it is rotated to "file.1", "file.1" to "file.2" and so on, keeping at most maxFiles old files.
+ */
+@SuppressWarnings("nls")
+public class ConsoleFileSink implements Closeable {
+
+    public static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Marks the end of the queue
+    private static final String END = new String();
+
+    private Path path;
+    private long maxSize;
+    private int maxFiles;
+    private boolean tee;
+
+    private BlockingQueue<String> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread thread;
+    private volatile boolean closed;
+
+    private OutputStream out;
+    private long size;
+
+    /**
+     * @param file The file to write to. Parent folders are created if needed.
+     * @param maxSize Rotate the file when it reaches this size in bytes. If 0 the file is never rotated.
+     * @param maxFiles Number of rotated files to keep
+     * @param append If true append to an existing file, else replace it
+     * @param tee If true output should also be shown in the Console (or standard out if there is no Console)
+     */
+    public ConsoleFileSink(File file, long maxSize, int maxFiles, boolean append, boolean tee) throws IOException {
+        path = file.getAbsoluteFile().toPath();
+        this.maxSize = maxSize;
+        this.maxFiles = Math.max(0, maxFiles);
+        this.tee = tee;
+
+        if(path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        open(append);
+
+        thread = new Thread(this::drain, "jArchi Console File Sink");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The file being written to
+     */
+    public File getFile() {
+        return path.toFile();
+    }
+
+    /**
+     * @return true if output should also be shown in the Console
+     */
+    public boolean isTee() {
+        return tee;
+    }
+
+    /**
+     * Queue text to be written
+     */
+    public void write(String text) {
+        if(closed || text == null || text.isEmpty()) {
+            return;
+        }
+
+        try {
+            queue.put(text);
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write any queued text and close the file
+     */
+    @Override
+    public void close() {
+        if(closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            queue.put(END);
+            thread.join();
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while(true) {
+                String text = queue.take();
+                if(text == END) {
+                    break;
+                }
+
+                writeText(text);
+
+                // Flush to disk only when there is nothing else waiting
+                if(queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        }
+        catch(IOException ex) {
+            ArchiScriptPlugin.INSTANCE.getLog().error("Could not write console output to " + path, ex);
+            closed = true;
+            queue.clear();
+        }
+        catch(InterruptedException ex) {
+        }
+        finally {
+            try {
+                out.close();
+            }
+            catch(IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void writeText(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        if(maxSize > 0 && size > 0 && size + bytes.length > maxSize) {
+            rotate();
+        }
+
+        out.write(bytes);
+        size += bytes.length;
+    }
+
+    private void open(boolean append) throws IOException {
+        if(append) {
+            out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE);
+            size = Files.size(path);
+        }
+        else {
+            out = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+            size = 0;
+        }
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+
+        if(maxFiles > 0) {
+            for(int i = maxFiles - 1; i >= 1; i--) {
+                Path source = getRotatedPath(i);
+                if(Files.exists(source)) {
+                    Files.move(source, getRotatedPath(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            Files.move(path, getRotatedPath(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        open(false);
+    }
+
+    private Path getRotatedPath(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+}
@@ -5,57 +5,224 @@
  */
 package com.archimatetool.script.views.console;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.ui.PlatformUI;
 
 import com.archimatetool.editor.ui.services.ViewManager;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.script.ArchiScriptPlugin;
+import com.archimatetool.script.ScriptRunContext;
+import com.archimatetool.script.preferences.IPreferenceConstants;
 
 
 /**
  * Redirect standard out to Console
+ * 
+ * System.out and System.err are replaced once by streams that write to the output streams of the ScriptRunContext
+ * of the calling thread, so that scripts running at the same time on different threads each have their own output.
+ * If there is no script running output goes to the original streams.
  */
 public class ConsoleOutput {
     
     private static PrintStream oldOut;
     private static PrintStream oldErr;
     
-    private static PrintStream newOut;
-    private static PrintStream newErr;
+    // Log file set on the command line or in preferences, shared by all runs that are using it
+    private static ConsoleFileSink defaultFileSink;
+    private static int defaultFileSinkUsers;
+    
+    // Log file set on the command line. This overrides the preference.
+    private static File commandLineLogFile;
+    private static long commandLineLogMaxSize = ConsoleFileSink.DEFAULT_MAX_SIZE;
     
     /**
-     * Start the console re-direction
+     * Start the console re-direction for the script running on this thread. Call this once for each run.
+     * The run's output goes to the Console if it is showing, and to its file sink if it has one,
+     * else to the run's own output streams if set or the original streams.
      */
     public static void start() {
-        // Init
-        if(PlatformUI.isWorkbenchRunning()) {
+        synchronized(ConsoleOutput.class) {
+            // Init
             if(oldOut == null) {
                 oldOut = System.out;
                 oldErr = System.err;
                 
-                newOut = new PrintStream(new DumpStream(new Color(0, 0, 255)), true);
-                newErr = new PrintStream(new DumpStream(new Color(255, 0, 0)), true);
+                System.setOut(new PrintStream(new RunOutputStream(false), true, StandardCharsets.UTF_8));
+                System.setErr(new PrintStream(new RunOutputStream(true), true, StandardCharsets.UTF_8));
             }
         }
-
-        // If console is showing redirect
-        if(getConsoleViewer() != null) {
-            System.setOut(newOut);
-            System.setErr(newErr);
+        
+        ScriptRunContext context = ScriptRunContext.current();
+        PrintStream out = context.getOut() != null ? context.getOut() : oldOut;
+        PrintStream err = context.getErr() != null ? context.getErr() : oldErr;
+        
+        context.setOutput(new PrintStream(new DumpStream(new Color(0, 0, 255), out, context), true, StandardCharsets.UTF_8),
+                          new PrintStream(new DumpStream(new Color(255, 0, 0), err, context), true, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * @return The stream that System.out wrote to before it was redirected
+     */
+    public static synchronized PrintStream getStandardOut() {
+        return oldOut != null ? oldOut : System.out;
+    }
+    
+    /**
+     * @return The stream that System.err wrote to before it was redirected
+     */
+    public static synchronized PrintStream getStandardErr() {
+        return oldErr != null ? oldErr : System.err;
+    }
+    
+    /**
+     * Set the file that all scripts' console output is written to when running from the command line
+     * @param file The file, or null to not write to a file
+     * @param maxSize Rotate the file at this size in bytes
+     */
+    public static void setCommandLineLogFile(File file, long maxSize) {
+        commandLineLogFile = file;
+        commandLineLogMaxSize = maxSize;
+    }
+    
+    /**
+     * Start writing the output of the script running on this thread to the log file set on the command line or in preferences, if any.
+     * When run from the command line output only goes to the file, otherwise it is also shown in the Console.
+     * If the run already has a file sink it is left as it is.
+     * @return true if the run now writes to the log file
+     */
+    public static boolean startDefaultFileSink() {
+        ScriptRunContext context = ScriptRunContext.current();
+        if(context.getFileSink() != null) {
+            return false;
+        }
+        
+        ConsoleFileSink sink = acquireDefaultFileSink();
+        context.setFileSink(sink);
+        return sink != null;
+    }
+    
+    /**
+     * Open the log file set on the command line or in preferences, or use it if it is already open.
+     * Runs that are using the log file at the same time share it. Each call must be matched by a call to releaseDefaultFileSink().
+     * @return The log file sink, or null if there is no log file
+     */
+    public static synchronized ConsoleFileSink acquireDefaultFileSink() {
+        if(defaultFileSink != null) {
+            defaultFileSinkUsers++;
+            return defaultFileSink;
+        }
+        
+        File file = null;
+        long maxSize = 0;
+        boolean tee = true;
+        
+        if(commandLineLogFile != null) {
+            file = commandLineLogFile;
+            maxSize = commandLineLogMaxSize;
+            tee = false;
+        }
+        else if(PlatformUI.isWorkbenchRunning()) {
+            String path = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getString(IPreferenceConstants.PREFS_CONSOLE_LOG_FILE);
+            if(StringUtils.isSet(path)) {
+                file = new File(path);
+                maxSize = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.PREFS_CONSOLE_LOG_MAX_SIZE) * 1024L * 1024L;
+            }
+        }
+        
+        if(file != null) {
+            try {
+                defaultFileSink = new ConsoleFileSink(file, maxSize, ConsoleFileSink.DEFAULT_MAX_FILES, true, tee);
+                defaultFileSinkUsers = 1;
+            }
+            catch(IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        
+        return defaultFileSink;
+    }
+    
+    /**
+     * Stop using the log file. It is closed when no run is using it.
+     * @param sink The sink returned by acquireDefaultFileSink(), may be null
+     */
+    public static synchronized void releaseDefaultFileSink(ConsoleFileSink sink) {
+        if(sink == null || sink != defaultFileSink) {
+            return;
+        }
+        
+        if(--defaultFileSinkUsers == 0) {
+            defaultFileSink = null;
+            sink.close();
+        }
+    }
+    
+    /**
+     * Start writing the output of the script running on this thread to sink, closing the run's existing one
+     */
+    public static void startFileSink(ConsoleFileSink sink) {
+        closeFileSink();
+        ScriptRunContext.current().setFileSink(sink);
+    }
+    
+    /**
+     * @return The file sink of the script running on this thread, or null
+     */
+    public static ConsoleFileSink getFileSink() {
+        ScriptRunContext context = ScriptRunContext.find();
+        return context != null ? context.getFileSink() : null;
+    }
+    
+    /**
+     * Stop writing the output of the script running on this thread to a file, if it is.
+     * Other runs that are writing to the same log file carry on.
+     */
+    public static void closeFileSink() {
+        ScriptRunContext context = ScriptRunContext.find();
+        if(context == null || context.getFileSink() == null) {
+            return;
+        }
+        
+        // Make sure anything written to System.out and System.err is in the file
+        flush(context);
+        
+        ConsoleFileSink sink = context.getFileSink();
+        context.setFileSink(null);
+        
+        if(sink == defaultFileSink) {
+            releaseDefaultFileSink(sink);
+        }
+        else {
+            sink.close();
         }
     }
     
     /**
-     * End the console re-direction
+     * End the console re-direction for the script running on this thread, and close its file sink
      */
     public static void end() {
-        // Restore streams
-        if(oldOut != null) {
-            System.setOut(oldOut);
-            System.setErr(oldErr);
+        ScriptRunContext context = ScriptRunContext.find();
+        if(context != null) {
+            flush(context);
+            closeFileSink();
+        }
+    }
+    
+    private static void flush(ScriptRunContext context) {
+        if(context.getOut() != null) {
+            context.getOut().flush();
+            context.getErr().flush();
         }
     }
     
@@ -66,38 +233,111 @@ public class ConsoleOutput {
         return PlatformUI.isWorkbenchRunning() ? (ConsoleView)ViewManager.findViewPart(ConsoleView.ID) : null;
     }
 
+    /**
+     * Writes to the output stream of the script running on the calling thread, or the original stream if there is none
+     */
+    private static class RunOutputStream extends OutputStream {
+        private boolean err;
+        
+        RunOutputStream(boolean err) {
+            this.err = err;
+        }
+        
+        private PrintStream getTarget() {
+            ScriptRunContext context = ScriptRunContext.find();
+            PrintStream stream = context != null ? (err ? context.getErr() : context.getOut()) : null;
+            return stream != null ? stream : (err ? oldErr : oldOut);
+        }
+        
+        @Override
+        public void write(int b) {
+            getTarget().write(b);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            getTarget().write(b, off, len);
+        }
+        
+        @Override
+        public void flush() {
+            getTarget().flush();
+        }
+    }
+
     /**
      * An OutputStream that redirects all System output to the Console
+     * Bytes are buffered and decoded as UTF-8 on flush. An incomplete multi-byte sequence is kept for the next flush.
      */
     private static class DumpStream extends OutputStream {
-        StringBuffer buf;
-        Color color;
+        private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        private CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        
+        private Color color;
+        
+        // Where output goes if there is no Console
+        private PrintStream fallback;
         
-        public DumpStream(Color color) {
+        // The run whose file sink output is written to
+        private ScriptRunContext context;
+        
+        public DumpStream(Color color, PrintStream fallback, ScriptRunContext context) {
             this.color = color;
+            this.fallback = fallback;
+            this.context = context;
         }
         
         @Override
-        public void write(int b) {
-            if(buf == null) {
-                buf = new StringBuffer();
-            }
-            
-            buf.append((char)(b & 255));
+        public synchronized void write(int b) {
+            bytes.write(b);
         }
         
         @Override
-        public void flush() throws IOException {
-            ConsoleView console = getConsoleViewer();
+        public synchronized void write(byte[] b, int off, int len) {
+            bytes.write(b, off, len);
+        }
+        
+        @Override
+        public synchronized void flush() {
+            if(bytes.size() == 0) {
+                return;
+            }
+            
+            ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+            CharBuffer out = CharBuffer.allocate(in.remaining());
+            decoder.decode(in, out, false);
+            
+            bytes.reset();
+            if(in.hasRemaining()) {
+                bytes.write(in.array(), in.position(), in.remaining());
+            }
+            
+            out.flip();
             
-            if(buf != null && console != null) {
-                Color oldColor = console.getTextColor();
-                console.setTextColor(color);
-                console.append(buf.toString());
-                console.setTextColor(oldColor);
+            if(!out.hasRemaining()) {
+                return;
             }
             
-            buf = null;
+            String text = out.toString();
+            
+            ConsoleFileSink sink = context.getFileSink();
+            if(sink != null) {
+                sink.write(text);
+                if(!sink.isTee()) {
+                    return;
+                }
+            }
+            
+            ConsoleView console = getConsoleViewer();
+            if(console != null) {
+                console.append(text, color);
+            }
+            else {
+                fallback.print(text);
+            }
         }
     }
 }
@@ -5,6 +5,10 @@
  */
 package com.archimatetool.script.views.console;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.action.IToolBarManager;
@@ -17,6 +21,7 @@ import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.part.ViewPart;
 
@@ -26,6 +31,7 @@ import com.archimatetool.script.ArchiScriptPlugin;
 import com.archimatetool.script.IArchiScriptImages;
 import com.archimatetool.script.RefreshUIHandler;
 import com.archimatetool.script.preferences.IPreferenceConstants;
+import com.archimatetool.script.views.console.ConsoleBuffer.Segment;
 
 
 
@@ -39,15 +45,26 @@ extends ViewPart {
 
     public static Font DEFAULT_FONT = JFaceResources.getFontRegistry().get(JFaceResources.TEXT_FONT);
     
+    // Appended text is coalesced and written to the text pane at this interval (ms)
+    private static final int FLUSH_INTERVAL = 50;
+    
     private IAction fActionClear, fActionWordWrap, fActionScrollLock;
     
     private StyledText fTextPane;
     private Color fTextColor;
     
+    private ConsoleBuffer fBuffer;
+    private AtomicBoolean fFlushScheduled = new AtomicBoolean();
+    private int fMaxChars;
+    
     private IPropertyChangeListener prefsListener = (event) -> {
         if(IPreferenceConstants.PREFS_CONSOLE_FONT == event.getProperty()) {
             setFontFromPreferences();
         }
+        else if(IPreferenceConstants.PREFS_CONSOLE_BUFFER_SIZE == event.getProperty()) {
+            setBufferSizeFromPreferences();
+            trimScrollback();
+        }
     };
     
     @Override
@@ -59,6 +76,9 @@ extends ViewPart {
 
         setFontFromPreferences();
         
+        fBuffer = new ConsoleBuffer(1);
+        setBufferSizeFromPreferences();
+        
         fActionClear = new Action(Messages.ConsoleView_0) {
             {
                 setImageDescriptor(IArchiScriptImages.ImageFactory.getImageDescriptor(IArchiScriptImages.ICON_CLEAR_CONSOLE));
@@ -67,6 +87,7 @@ extends ViewPart {
             
             @Override
             public void run() {
+                fBuffer.clear();
                 fTextPane.setText(""); //$NON-NLS-1$
             }
         };
@@ -139,16 +160,18 @@ extends ViewPart {
     }
 
     public void append(String string) {
+        append(string, fTextColor);
+    }
+    
+    /**
+     * Append text in the given color (null for the default color)
+     * The text is buffered and written to the text pane on the display thread at FLUSH_INTERVAL.
+     * This may be called from any thread.
+     */
+    public void append(String string, Color color) {
         if(!fTextPane.isDisposed()) {
-            StyleRange sr = createStyleRange(string);
-            fTextPane.append(string);
-            fTextPane.setStyleRange(sr);
-            
-            // Scroll to end
-            if(!fActionScrollLock.isChecked()) {
-                fTextPane.setTopIndex(fTextPane.getLineCount() - 1);
-                fTextPane.setCaretOffset(fTextPane.getText().length());
-            }
+            fBuffer.append(string, color);
+            scheduleFlush();
             
             // Update UI
             RefreshUIHandler.refresh();
@@ -157,27 +180,119 @@ extends ViewPart {
     
     public void setText(String text) {
         if(!fTextPane.isDisposed()) {
+            // Discard anything waiting to be appended
+            fBuffer.clear();
+            
             fTextPane.setText(text);
             
-            // Scroll to end
-            if(!fActionScrollLock.isChecked()) {
-                fTextPane.setTopIndex(fTextPane.getLineCount() - 1);
-                fTextPane.setCaretOffset(fTextPane.getText().length());
-            }
+            trimScrollback();
+            scrollToEnd();
             
             // Update UI
             RefreshUIHandler.refresh();
         }
     }
     
-    private StyleRange createStyleRange(String string) {
+    private void scheduleFlush() {
+        if(fFlushScheduled.compareAndSet(false, true)) {
+            Display display = fTextPane.getDisplay();
+            Runnable runnable = () -> display.timerExec(FLUSH_INTERVAL, this::flush);
+            
+            if(Display.getCurrent() == display) {
+                runnable.run();
+            }
+            else {
+                display.asyncExec(runnable);
+            }
+        }
+    }
+    
+    /**
+     * Write buffered text to the text pane in one append with one StyleRange per run of the same color
+     */
+    private void flush() {
+        fFlushScheduled.set(false);
+        
+        if(fTextPane.isDisposed()) {
+            fBuffer.clear();
+            return;
+        }
+        
+        // If text was dropped from the buffer then everything currently shown is older than that so remove it
+        if(fBuffer.isTruncated()) {
+            fTextPane.setText(""); //$NON-NLS-1$
+        }
+        
+        List<Segment> segments = fBuffer.drain();
+        if(segments.isEmpty()) {
+            return;
+        }
+        
+        int start = fTextPane.getCharCount();
+        StringBuilder sb = new StringBuilder();
+        List<StyleRange> ranges = new ArrayList<>();
+        
+        for(Segment segment : segments) {
+            // Default color doesn't need a StyleRange
+            if(segment.color != null) {
+                ranges.add(createStyleRange(start + sb.length(), segment.text.length(), segment.color));
+            }
+            sb.append(segment.text);
+        }
+        
+        fTextPane.append(sb.toString());
+        
+        if(!ranges.isEmpty()) {
+            fTextPane.replaceStyleRanges(start, sb.length(), ranges.toArray(new StyleRange[ranges.size()]));
+        }
+        
+        trimScrollback();
+        scrollToEnd();
+    }
+    
+    /**
+     * If the text pane holds more than the maximum number of characters remove whole lines from the start
+     * down to 80% of the maximum so that this doesn't happen on every flush
+     */
+    private void trimScrollback() {
+        if(fTextPane.isDisposed()) {
+            return;
+        }
+        
+        int count = fTextPane.getCharCount();
+        if(count <= fMaxChars) {
+            return;
+        }
+        
+        int cut = count - (fMaxChars / 5 * 4);
+        int line = fTextPane.getLineAtOffset(cut);
+        if(line + 1 < fTextPane.getLineCount()) {
+            cut = fTextPane.getOffsetAtLine(line + 1);
+        }
+        
+        fTextPane.replaceTextRange(0, Math.min(cut, count), ""); //$NON-NLS-1$
+    }
+    
+    private void scrollToEnd() {
+        if(!fActionScrollLock.isChecked()) {
+            fTextPane.setTopIndex(fTextPane.getLineCount() - 1);
+            fTextPane.setCaretOffset(fTextPane.getCharCount());
+        }
+    }
+    
+    private StyleRange createStyleRange(int start, int length, Color color) {
         StyleRange sr = new StyleRange();
-        sr.foreground = fTextColor;
-        sr.start = fTextPane.getCharCount();
-        sr.length = string.length();
+        sr.foreground = color;
+        sr.start = start;
+        sr.length = length;
         return sr;
     }
     
+    private void setBufferSizeFromPreferences() {
+        fMaxChars = Math.max(1000, ArchiScriptPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.PREFS_CONSOLE_BUFFER_SIZE));
+        fBuffer.setMaxLength(fMaxChars);
+    }
+    
     private void setFontFromPreferences() {
         String fontName = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getString(IPreferenceConstants.PREFS_CONSOLE_FONT);
         if(!StringUtils.isSet(fontName)) {
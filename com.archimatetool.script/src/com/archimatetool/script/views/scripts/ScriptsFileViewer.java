@@ -55,6 +55,7 @@ import com.archimatetool.script.JSProvider;
 import com.archimatetool.script.RefreshUICommandHandler;
 import com.archimatetool.script.RunScriptCommandHandler;
 import com.archimatetool.script.ScriptFiles;
+import com.archimatetool.script.ScriptsCatalog;
 import com.archimatetool.script.WorkbenchPartTracker;
 import com.archimatetool.script.preferences.IPreferenceConstants;
 import com.archimatetool.script.views.file.AbstractFileView;
@@ -308,7 +309,7 @@ extends AbstractFileView  {
                             }
                             
                             // Store new one
-                            store.putValue(RunScriptCommandHandler.PREFS_PREFIX + paramValue, file.getAbsolutePath());
+                            store.setValue(RunScriptCommandHandler.PREFS_PREFIX + paramValue, file.getAbsolutePath());
                         }
                     };
                     
@@ -357,6 +358,13 @@ extends AbstractFileView  {
         manager.add(new Separator(IWorkbenchActionConstants.MB_ADDITIONS));
     }
     
+    @Override
+    protected void handleRefreshAction() {
+        // File system watching may not be supported for the scripts folder so rebuild the catalog now
+        ScriptsCatalog.INSTANCE.invalidate();
+        super.handleRefreshAction();
+    }
+    
     @Override
     protected void handleDoubleClickAction() {
         int option = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.PREFS_DOUBLE_CLICK_BEHAVIOUR);
@@ -6,7 +6,6 @@
 package com.archimatetool.script.views.scripts;
 
 import java.io.File;
-import java.io.IOException;
 
 import org.eclipse.jface.viewers.IBaseLabelProvider;
 import org.eclipse.jface.viewers.IDecoration;
@@ -16,7 +15,8 @@ import org.eclipse.swt.widgets.Composite;
 import com.archimatetool.editor.utils.FileUtils;
 import com.archimatetool.script.IArchiScriptImages;
 import com.archimatetool.script.IScriptEngineProvider;
-import com.archimatetool.script.ScriptFiles;
+import com.archimatetool.script.ScriptsCatalog;
+import com.archimatetool.script.ScriptsCatalog.ScriptEntry;
 import com.archimatetool.script.views.file.FileTreeViewer;
 
 
@@ -51,23 +51,22 @@ public class ScriptsTreeViewer extends FileTreeViewer {
             // Get default image
             Image image = super.getImage(file);
             
+            // Provider and link target come from the catalog rather than the file system
+            ScriptEntry entry = ScriptsCatalog.INSTANCE.getEntry(file);
+            
             // If we have a provider get the provider's image
-            IScriptEngineProvider provider = IScriptEngineProvider.INSTANCE.getProviderForFile(file);
+            IScriptEngineProvider provider = entry.getProvider();
             if(provider != null) {
                 image = provider.getImage();
             }
             
             // If it's a linked file...
-            if(ScriptFiles.isLinkedFile(file)) {
+            File linkedFile = entry.getLinkedFile();
+            if(linkedFile != null) {
                 // If the linked file exists add the link overlay
-                try {
-                    if(ScriptFiles.resolveLinkFile(file).exists()) {
-                        return IArchiScriptImages.ImageFactory.getOverlayImage(image,
-                                IArchiScriptImages.ICON_LINK_OVERLAY, IDecoration.BOTTOM_RIGHT);
-                    }
-                }
-                catch(IOException ex) {
-                    ex.printStackTrace();
+                if(linkedFile.exists()) {
+                    return IArchiScriptImages.ImageFactory.getOverlayImage(image,
+                            IArchiScriptImages.ICON_LINK_OVERLAY, IDecoration.BOTTOM_RIGHT);
                 }
                 
                 // Else add the warning overlay
@@ -80,7 +79,7 @@ public class ScriptsTreeViewer extends FileTreeViewer {
         
         @Override
         public String getText(File file) {
-            if(ScriptFiles.isScriptFile(file)) {
+            if(ScriptsCatalog.INSTANCE.isScriptFile(file)) {
                 return FileUtils.getFileNameWithoutExtension(file);
             }
             
@@ -91,13 +90,9 @@ public class ScriptsTreeViewer extends FileTreeViewer {
         public String getToolTipText(Object element) {
             if(element instanceof File) {
                 File file = (File)element;
-                if(ScriptFiles.isLinkedFile(file)) {
-                    try {
-                        return ScriptFiles.resolveLinkFile(file).getAbsolutePath();
-                    }
-                    catch(IOException ex) {
-                        ex.printStackTrace();
-                    }
+                File linkedFile = ScriptsCatalog.INSTANCE.getLinkedFile(file);
+                if(linkedFile != null) {
+                    return linkedFile.getAbsolutePath();
                 }
                 return file.getAbsolutePath();
             }